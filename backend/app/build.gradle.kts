@@ -29,6 +29,15 @@ dependencies {
     // DB driver
     implementation("org.postgresql:postgresql:42.7.3")
 
+    // Embedded catalog search index
+    implementation("org.apache.lucene:lucene-core:9.11.1")
+
+    // Title/copy lookup cache (version managed by Spring Boot)
+    implementation("com.github.ben-manes.caffeine:caffeine")
+
+    // Shared HTTP sessions (JdbcSessionRepository; version managed by Spring Boot)
+    implementation("org.springframework.session:spring-session-core")
+
     // Tests
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
@@ -53,4 +62,6 @@ application {
 tasks.named<Test>("test") {
     // Use JUnit Platform for unit tests.
     useJUnitPlatform()
+    // Opt-in benchmarks: ./gradlew test -Dbenchmarks=true
+    systemProperty("benchmarks", System.getProperty("benchmarks") ?: "false")
 }
@@ -7,24 +7,40 @@ import jakarta.servlet.http.HttpSession;
 
 import edu.sjsu.library.services.UserService;
 import edu.sjsu.library.models.User;
+import edu.sjsu.library.models.UserPrincipal;
+import edu.sjsu.library.utils.LoginRateLimiter;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthorizationController {
 
     private final UserService userService;
+    private final LoginRateLimiter loginRateLimiter;
     private static final String SESSION_USER_ID = "USER_ID";
 
-    public AuthorizationController(UserService userService) {
+    public AuthorizationController(UserService userService, LoginRateLimiter loginRateLimiter) {
         this.userService = userService;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     // POST /api/auth/login
+    // 429 + Retry-After when the account or client IP has too many recent attempts (checked before hashing),
+    // 503 + Retry-After when the password hashing pool is saturated.
     @PostMapping("/login")
     public ResponseEntity<User> login(@RequestBody LoginRequest body, HttpServletRequest req) {
+        long retryAfter = loginRateLimiter.tryAcquire(body.email, req.getRemoteAddr());
+        if (retryAfter > 0) {
+            return ResponseEntity.status(429).header("Retry-After", String.valueOf(retryAfter)).build();
+        }
+
+        // PasswordHashingUnavailableException becomes the 503 in PasswordHashingUnavailableHandler.
         User user = userService.authenticate(body.email, body.password);
+        loginRateLimiter.succeeded(body.email);
+
         HttpSession session = req.getSession(true);
         session.setAttribute(SESSION_USER_ID, user.getUserID());
+        // Later requests authorize from this snapshot until the user's version changes.
+        session.setAttribute(UserPrincipal.SESSION_ATTRIBUTE, UserPrincipal.of(user));
         return ResponseEntity.ok(user);
     }
 
@@ -43,7 +59,7 @@ public class AuthorizationController {
         if (session == null) return ResponseEntity.status(401).build();
         Integer id = (Integer) session.getAttribute(SESSION_USER_ID);
         if (id == null) return ResponseEntity.status(401).build();
-        User u = userService.findById(id);
+        User u = userService.findRequestor(id);
         if (u == null) return ResponseEntity.notFound().build();
         return ResponseEntity.ok(u);
     }
@@ -2,37 +2,91 @@ package edu.sjsu.library.controllers;
 
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import edu.sjsu.library.models.BookRecord;
+import edu.sjsu.library.models.LoanView;
 import edu.sjsu.library.services.LoanService;
 import edu.sjsu.library.utils.AuthorizationUtils;
+import edu.sjsu.library.utils.ExportWriter;
+import edu.sjsu.library.utils.Pagination;
 
 @Controller
 @RequestMapping("/api/loans")
 public class BookRecordController {
 
+    // CSV columns for /export.
+    private static final Map<String, Function<BookRecord, Object>> CSV_COLUMNS = ExportWriter.columns();
+    static {
+        CSV_COLUMNS.put("loanId", BookRecord::getLoanID);
+        CSV_COLUMNS.put("copyId", BookRecord::getCopyID);
+        CSV_COLUMNS.put("userId", BookRecord::getUserID);
+        CSV_COLUMNS.put("checkoutDate", BookRecord::getCheckoutDate);
+        CSV_COLUMNS.put("dueDate", BookRecord::getDueDate);
+        CSV_COLUMNS.put("returnDate", BookRecord::getReturnDate);
+        CSV_COLUMNS.put("renewCount", BookRecord::getRenewCount);
+    }
+
     private final LoanService loanService;
     private final AuthorizationUtils authUtils;
+    private final ObjectMapper objectMapper;
 
-    public BookRecordController(LoanService loanService, AuthorizationUtils authUtils) {
+    public BookRecordController(LoanService loanService, AuthorizationUtils authUtils, ObjectMapper objectMapper) {
         this.loanService = loanService;
         this.authUtils = authUtils;
+        this.objectMapper = objectMapper;
     }
 
-    // GET /api/loans - View all loans (STAFF ONLY)
+    // GET /api/loans?after=&limit= - View all loans, one page at a time (STAFF ONLY)
+    // Each loan carries its copy, title, borrower and fine totals (see LoanView), so a page is one request.
+    // The cursor for the next page is returned in the X-Next-Cursor header.
     @GetMapping
     @ResponseBody
-    public ResponseEntity<List<BookRecord>> getAllLoans(HttpServletRequest request) {
+    public ResponseEntity<List<LoanView>> getAllLoans(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request) {
         int requestorID = getRequestorId(request);
         authUtils.validateStaffAccess(requestorID); // Staff only
         
-        // Get all loans from the loan service
-        List<BookRecord> allLoans = loanService.getAllLoans(requestorID);
-        return ResponseEntity.ok(allLoans);
+        // Get one page of loans from the loan service
+        int pageSize = Pagination.clampLimit(limit);
+        List<LoanView> loans = loanService.getAllLoans(requestorID, Pagination.afterKey(after), pageSize);
+        return Pagination.ok(loans, pageSize, LoanView::getLoanID);
+    }
+
+    // GET /api/loans/export?format=ndjson|csv - Stream every loan (STAFF only)
+    // Rows are written as they are read, so memory stays flat however large the table is.
+    @GetMapping("/export")
+    public void exportLoans(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        int requestorID = getRequestorId(request);
+        authUtils.validateStaffAccess(requestorID);
+
+        ExportWriter.Format exportFormat;
+        try {
+            exportFormat = ExportWriter.parseFormat(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        try (ExportWriter<BookRecord> out = ExportWriter.open(response, exportFormat, "loans", objectMapper, CSV_COLUMNS)) {
+            loanService.exportAllLoans(requestorID, out);
+        }
     }
 
     // POST /api/loans/checkout
@@ -74,16 +128,17 @@ public class BookRecordController {
         return ResponseEntity.ok(returned);
     }
 
-    // GET /api/loans/user/{userID}
+    // GET /api/loans/user/{userID}?includeArchived=
     // Get loan history by user (MEMBERS see own, STAFF see any).
     @GetMapping("/user/{userID}")
     @ResponseBody
-    public ResponseEntity<List<BookRecord>> getLoanHistoryByUser(
+    public ResponseEntity<List<LoanView>> getLoanHistoryByUser(
             @PathVariable int userID,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
             HttpServletRequest request) {
 
         int requestorID = getRequestorId(request);
-        List<BookRecord> loans = loanService.getLoanHistoryByUser(requestorID, userID);
+        List<LoanView> loans = loanService.getLoanHistoryByUser(requestorID, userID, includeArchived);
         return ResponseEntity.ok(loans);
     }
 
@@ -91,40 +146,49 @@ public class BookRecordController {
     // Get current loans by user (MEMBERS see own, STAFF see any).
     @GetMapping("/user/{userID}/current")
     @ResponseBody
-    public ResponseEntity<List<BookRecord>> getCurrentLoansByUser(
+    public ResponseEntity<List<LoanView>> getCurrentLoansByUser(
             @PathVariable int userID,
             HttpServletRequest request) {
 
         int requestorID = getRequestorId(request);
-        List<BookRecord> loans = loanService.getCurrentLoansByUser(requestorID, userID);
+        List<LoanView> loans = loanService.getCurrentLoansByUser(requestorID, userID);
         return ResponseEntity.ok(loans);
     }
 
-    // GET /api/loans/title/{titleID}
-    // Get loan history by title (STAFF ONLY).
+    // GET /api/loans/title/{titleID}?from=&to=&before=&limit=&includeArchived= - Loan history by title, newest first (STAFF ONLY)
+    // from/to (yyyy-MM-dd, inclusive) filter on checkout date. Each loan carries its copy, borrower and fine totals.
+    // The cursor for the next (older) page is returned in the X-Next-Cursor header; pass it back as "before".
     @GetMapping("/title/{titleID}")
     @ResponseBody
-    public ResponseEntity<List<BookRecord>> getLoanHistoryByTitle(
+    public ResponseEntity<List<LoanView>> getLoanHistoryByTitle(
             @PathVariable int titleID,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
             HttpServletRequest request) {
 
         int requestorID = getRequestorId(request);
         authUtils.validateStaffAccess(requestorID); // Staff only.
-        List<BookRecord> loans = loanService.getLoanHistoryByTitle(requestorID, titleID);
-        return ResponseEntity.ok(loans);
+        int pageSize = Pagination.clampLimit(limit);
+        List<LoanView> loans = loanService.getLoanHistoryByTitle(
+            requestorID, titleID, from, to, Pagination.beforeKey(before), pageSize, includeArchived);
+        return Pagination.ok(loans, pageSize, LoanView::getLoanID);
     }
 
-    // GET /api/loans/copy/{copyID}
+    // GET /api/loans/copy/{copyID}?includeArchived=
     // Get loan history by copy (STAFF ONLY).
     @GetMapping("/copy/{copyID}")
     @ResponseBody
-    public ResponseEntity<List<BookRecord>> getLoanHistoryByCopy(
+    public ResponseEntity<List<LoanView>> getLoanHistoryByCopy(
             @PathVariable int copyID,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
             HttpServletRequest request) {
 
         int requestorID = getRequestorId(request);
         authUtils.validateStaffAccess(requestorID); // Staff only.
-        List<BookRecord> loans = loanService.getLoanHistoryByCopy(requestorID, copyID);
+        List<LoanView> loans = loanService.getLoanHistoryByCopy(requestorID, copyID, includeArchived);
         return ResponseEntity.ok(loans);
     }
 
@@ -132,13 +196,26 @@ public class BookRecordController {
     // Get current loan by copy (STAFF ONLY).
     @GetMapping("/copy/{copyID}/current")
     @ResponseBody
-    public ResponseEntity<BookRecord> getCurrentLoanByCopy(
+    public ResponseEntity<LoanView> getCurrentLoanByCopy(
             @PathVariable int copyID,
             HttpServletRequest request) {
 
         int requestorID = getRequestorId(request);
         authUtils.validateStaffAccess(requestorID); // Staff only.
-        BookRecord loan = loanService.getCurrentLoanByCopy(requestorID, copyID);
+        LoanView loan = loanService.getCurrentLoanByCopy(requestorID, copyID);
+        return loan != null ? ResponseEntity.ok(loan) : ResponseEntity.notFound().build();
+    }
+
+    // GET /api/loans/{loanID}
+    // Get one loan with its copy, title, borrower and fine totals (MEMBERS see own, STAFF see any).
+    @GetMapping("/{loanID}")
+    @ResponseBody
+    public ResponseEntity<LoanView> getLoanById(
+            @PathVariable int loanID,
+            HttpServletRequest request) {
+
+        int requestorID = getRequestorId(request);
+        LoanView loan = loanService.getLoanById(requestorID, loanID);
         return loan != null ? ResponseEntity.ok(loan) : ResponseEntity.notFound().build();
     }
 
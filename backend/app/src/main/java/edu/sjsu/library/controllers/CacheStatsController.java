@@ -0,0 +1,76 @@
+package edu.sjsu.library.controllers;
+
+import org.springframework.web.bind.annotation.*;
+import org.springframework.http.ResponseEntity;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+import edu.sjsu.library.dao.CopyDAO;
+import edu.sjsu.library.dao.TitleDAO;
+import edu.sjsu.library.utils.AuthorizationUtils;
+import edu.sjsu.library.utils.LoginRateLimiter;
+import edu.sjsu.library.utils.PasswordHasher;
+import edu.sjsu.library.utils.ReadThroughCache;
+import edu.sjsu.library.utils.RequestPrincipal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheStatsController {
+
+    private final TitleDAO titleDAO;
+    private final CopyDAO copyDAO;
+    private final AuthorizationUtils authUtils;
+    private final RequestPrincipal requestPrincipal;
+    private final PasswordHasher passwordHasher;
+    private final LoginRateLimiter loginRateLimiter;
+
+    public CacheStatsController(TitleDAO titleDAO, CopyDAO copyDAO, AuthorizationUtils authUtils,
+                                RequestPrincipal requestPrincipal, PasswordHasher passwordHasher,
+                                LoginRateLimiter loginRateLimiter) {
+        this.titleDAO = titleDAO;
+        this.copyDAO = copyDAO;
+        this.authUtils = authUtils;
+        this.requestPrincipal = requestPrincipal;
+        this.passwordHasher = passwordHasher;
+        this.loginRateLimiter = loginRateLimiter;
+    }
+
+    // GET /api/cache/stats - Hit/miss counters for the title and copy lookup caches,
+    // plus users-table queries per request ("principal"), the BCrypt pool ("passwordHasher")
+    // and login throttling ("loginLimiter") (STAFF only)
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats(HttpServletRequest request) {
+        int requestorID = getRequestorId(request);
+        authUtils.validateStaffAccess(requestorID);
+
+        List<ReadThroughCache<?, ?>> caches = new ArrayList<>();
+        caches.add(titleDAO.getCache());
+        caches.addAll(copyDAO.getCaches());
+
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (ReadThroughCache<?, ?> cache : caches) {
+            stats.put(cache.getName(), cache.stats());
+        }
+        stats.put("principal", requestPrincipal.stats());
+        stats.put("passwordHasher", passwordHasher.stats());
+        stats.put("loginLimiter", loginRateLimiter.stats());
+        return ResponseEntity.ok(stats);
+    }
+
+    private int getRequestorId(HttpServletRequest req) {
+        HttpSession session = req.getSession(false);
+        if (session == null) {
+            throw new RuntimeException("Unauthenticated - no session.");
+        }
+        Integer id = (Integer) session.getAttribute("USER_ID");
+        if (id == null) {
+            throw new RuntimeException("Unauthenticated - USER_ID is missing from session.");
+        }
+        return id;
+    }
+}
@@ -3,58 +3,110 @@ package edu.sjsu.library.controllers;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import edu.sjsu.library.models.Copy;
+import edu.sjsu.library.models.CopyBatchRequest;
+import edu.sjsu.library.models.ResourceVersion;
+import edu.sjsu.library.services.BookService;
 import edu.sjsu.library.services.CopyService;
 import edu.sjsu.library.utils.AuthorizationUtils;
+import edu.sjsu.library.utils.Pagination;
 
 @Controller
 @RequestMapping("/api/copies")
 public class CopyController {
 
     private final CopyService copyService;
+    private final BookService bookService;
     private final AuthorizationUtils authUtils;
 
-    public CopyController(CopyService copyService, AuthorizationUtils authUtils) {
+    public CopyController(CopyService copyService, BookService bookService, AuthorizationUtils authUtils) {
         this.copyService = copyService;
+        this.bookService = bookService;
         this.authUtils = authUtils;
     }
 
-    // GET /api/copies
-    // Get all copies (STAFF ONLY).
+    // GET /api/copies?after=&limit=
+    // Get all copies, one page at a time (STAFF ONLY). Next cursor is in the X-Next-Cursor header.
+    // Answers 304 if nothing in the catalogue has changed since the client's ETag for this page.
     @GetMapping
     @ResponseBody
-    public ResponseEntity<List<Copy>> getAllCopies(HttpServletRequest request) {
+    public ResponseEntity<List<Copy>> getAllCopies(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request,
+            WebRequest webRequest) {
         int requestorID = getRequestorId(request);
         authUtils.validateStaffAccess(requestorID); // Staff only
-        List<Copy> copies = copyService.getAllCopies(requestorID);
-        return ResponseEntity.ok(copies);
+        ResourceVersion version = bookService.getCatalogVersion(requestorID);
+        if (webRequest.checkNotModified(version.eTag("copies-page:" + after + ":" + limit), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified
+        }
+        int pageSize = Pagination.clampLimit(limit);
+        List<Copy> copies = copyService.getAllCopies(requestorID, Pagination.afterKey(after), pageSize);
+        return Pagination.ok(copies, pageSize, Copy::getCopyID);
+    }
+
+    // GET /api/copies/availability?titleIds=1,2,3
+    // Available-copy count for each requested title in one query (MEMBERS can access, only visible copies are counted).
+    @GetMapping("/availability")
+    @ResponseBody
+    public ResponseEntity<?> getAvailableCopyCounts(
+            @RequestParam List<Integer> titleIds,
+            HttpServletRequest request) {
+        int requestorID = getRequestorId(request);
+        if (titleIds.size() > Pagination.MAX_LIMIT) {
+            return ResponseEntity.badRequest().body("At most " + Pagination.MAX_LIMIT + " title IDs per request.");
+        }
+        Map<Integer, Integer> found = bookService.getAvailableCopyCounts(titleIds, requestorID);
+
+        // Report every requested title, including the ones with nothing available.
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        for (Integer titleID : titleIds) {
+            counts.put(titleID, found.getOrDefault(titleID, 0));
+        }
+        return ResponseEntity.ok(counts);
     }
 
     // GET /api/copies/{copyID}
-    // Get copy by ID (STAFF ONLY).
+    // Get copy by ID (STAFF ONLY). Answers 304 if the client's ETag is still current.
     @GetMapping("/{copyID}")
     @ResponseBody
     public ResponseEntity<Copy> getCopyById(
             @PathVariable int copyID,
-            HttpServletRequest request) {
+            HttpServletRequest request,
+            WebRequest webRequest) {
         int requestorID = getRequestorId(request);
         authUtils.validateStaffAccess(requestorID); // Staff only.
+        ResourceVersion version = copyService.getCopyVersion(copyID, requestorID);
+        if (version != null && webRequest.checkNotModified(version.eTag("copy"), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified
+        }
         Copy copy = copyService.getCopyById(copyID, requestorID);
         return copy != null ? ResponseEntity.ok(copy) : ResponseEntity.notFound().build();
     }
 
     // GET /api/copies/title/{titleID}
     // Get copies for a title (MEMBERS can access, service filters visibility).
+    // Answers 304 if the client's ETag is still current; staff and members see different lists, so get different ETags.
     @GetMapping("/title/{titleID}")
     @ResponseBody
     public ResponseEntity<List<Copy>> getCopiesForTitle(
             @PathVariable int titleID,
-            HttpServletRequest request) {
+            HttpServletRequest request,
+            WebRequest webRequest) {
         int requestorID = getRequestorId(request);
+        ResourceVersion version = copyService.getCopiesForTitleVersion(titleID, requestorID);
+        String variant = authUtils.getRequestor(requestorID).isStaff() ? "copies:staff" : "copies:member";
+        if (version != null && webRequest.checkNotModified(version.eTag(variant), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified
+        }
         List<Copy> copies = copyService.getCopiesForTitle(titleID, requestorID);
         return ResponseEntity.ok(copies);
     }
@@ -72,6 +124,24 @@ public class CopyController {
         return ResponseEntity.status(201).body(created);
     }
 
+    // POST /api/copies/batch
+    // Add many copies in one request (STAFF ONLY). Body: [{"titleID": 1, "count": 20, "location": "Shelf A1"}, ...]
+    // Barcodes are generated by the server; the created copies (with barcodes) are returned.
+    @PostMapping("/batch")
+    @ResponseBody
+    public ResponseEntity<?> addCopiesBatch(
+            @RequestBody List<CopyBatchRequest> items,
+            HttpServletRequest request) {
+        int requestorID = getRequestorId(request);
+        authUtils.validateStaffAccess(requestorID); // Staff only.
+        try {
+            List<Copy> created = copyService.addCopiesBatch(items, requestorID);
+            return ResponseEntity.status(201).body(created);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // PUT /api/copies/{copyID}
     // Update copy (STAFF ONLY).
     @PutMapping("/{copyID}")
@@ -3,37 +3,86 @@ package edu.sjsu.library.controllers;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
 import edu.sjsu.library.services.FineService;
 import edu.sjsu.library.models.Fine;
 import edu.sjsu.library.utils.AuthorizationUtils;
+import edu.sjsu.library.utils.ExportWriter;
+import edu.sjsu.library.utils.Pagination;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/fines")
 public class FineRestController {
     
+    // CSV columns for /export.
+    private static final Map<String, Function<Fine, Object>> CSV_COLUMNS = ExportWriter.columns();
+    static {
+        CSV_COLUMNS.put("fineId", Fine::getFineID);
+        CSV_COLUMNS.put("userId", Fine::getUserID);
+        CSV_COLUMNS.put("loanId", Fine::getLoanID);
+        CSV_COLUMNS.put("amount", Fine::getAmount);
+        CSV_COLUMNS.put("fineDate", Fine::getFineDate);
+        CSV_COLUMNS.put("reason", Fine::getReason);
+        CSV_COLUMNS.put("status", Fine::getStatus);
+    }
+
     private final FineService fineService;
     private final AuthorizationUtils authUtils;
+    private final ObjectMapper objectMapper;
 
-    public FineRestController(FineService fineService, AuthorizationUtils authUtils) {
+    public FineRestController(FineService fineService, AuthorizationUtils authUtils, ObjectMapper objectMapper) {
         this.fineService = fineService;
         this.authUtils = authUtils;
+        this.objectMapper = objectMapper;
     }
 
-    // GET /api/fines - Get all fines (STAFF only)
+    // GET /api/fines?after=&limit= - Get all fines, one page at a time (STAFF only)
+    // Next cursor is in the X-Next-Cursor header.
     @GetMapping
-    public ResponseEntity<List<Fine>> getAllFines(HttpServletRequest request) {
+    public ResponseEntity<List<Fine>> getAllFines(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request) {
         int requestorID = getRequestorId(request);
         authUtils.validateStaffAccess(requestorID);
         
-        List<Fine> fines = fineService.getAllFines(requestorID);
-        return ResponseEntity.ok(fines);
+        int pageSize = Pagination.clampLimit(limit);
+        List<Fine> fines = fineService.getAllFines(requestorID, Pagination.afterKey(after), pageSize);
+        return Pagination.ok(fines, pageSize, Fine::getFineID);
+    }
+
+    // GET /api/fines/export?format=ndjson|csv - Stream every fine (STAFF only)
+    // Rows are written as they are read, so memory stays flat however large the table is.
+    @GetMapping("/export")
+    public void exportFines(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        int requestorID = getRequestorId(request);
+        authUtils.validateStaffAccess(requestorID);
+
+        ExportWriter.Format exportFormat;
+        try {
+            exportFormat = ExportWriter.parseFormat(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        try (ExportWriter<Fine> out = ExportWriter.open(response, exportFormat, "fines", objectMapper, CSV_COLUMNS)) {
+            fineService.exportAllFines(requestorID, out);
+        }
     }
 
     // GET /api/fines/{id} - Get single fine
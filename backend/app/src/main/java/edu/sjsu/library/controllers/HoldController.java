@@ -4,35 +4,86 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import edu.sjsu.library.models.Hold;
 import edu.sjsu.library.services.HoldService;
 import edu.sjsu.library.utils.AuthorizationUtils;
+import edu.sjsu.library.utils.ExportWriter;
+import edu.sjsu.library.utils.Pagination;
 
 @Controller
 @RequestMapping("/api/holds")
 public class HoldController {
 
+    // CSV columns for /export.
+    private static final Map<String, Function<Hold, Object>> CSV_COLUMNS = ExportWriter.columns();
+    static {
+        CSV_COLUMNS.put("holdId", Hold::getHoldID);
+        CSV_COLUMNS.put("userId", Hold::getUserID);
+        CSV_COLUMNS.put("titleId", Hold::getTitleID);
+        CSV_COLUMNS.put("copyId", Hold::getCopyID);
+        CSV_COLUMNS.put("status", Hold::getStatus);
+        CSV_COLUMNS.put("placedAt", Hold::getPlacedAt);
+        CSV_COLUMNS.put("readyAt", Hold::getReadyAt);
+        CSV_COLUMNS.put("pickupExpire", Hold::getPickupExpire);
+        CSV_COLUMNS.put("position", Hold::getPosition);
+    }
+
     private final HoldService holdService;
     private final AuthorizationUtils authUtils;
+    private final ObjectMapper objectMapper;
 
-    public HoldController(HoldService holdService, AuthorizationUtils authUtils) {
+    public HoldController(HoldService holdService, AuthorizationUtils authUtils, ObjectMapper objectMapper) {
         this.holdService = holdService;
         this.authUtils = authUtils;
+        this.objectMapper = objectMapper;
     }
 
-    // GET /api/holds
-    // Get all holds (STAFF ONLY).
+    // GET /api/holds?after=&limit=
+    // Get all holds, one page at a time (STAFF ONLY). Next cursor is in the X-Next-Cursor header.
     @GetMapping
     @ResponseBody
-    public ResponseEntity<List<Hold>> getAllHolds(HttpServletRequest request) {
+    public ResponseEntity<List<Hold>> getAllHolds(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request) {
         int requestorID = getRequestorId(request);
         authUtils.validateStaffAccess(requestorID);
         
-        List<Hold> holds = holdService.getAllHolds(requestorID);
-        return ResponseEntity.ok(holds);
+        int pageSize = Pagination.clampLimit(limit);
+        List<Hold> holds = holdService.getAllHolds(requestorID, Pagination.afterKey(after), pageSize);
+        return Pagination.ok(holds, pageSize, Hold::getHoldID);
+    }
+
+    // GET /api/holds/export?format=ndjson|csv - Stream every hold (STAFF only)
+    // Rows are written as they are read, so memory stays flat however large the table is.
+    @GetMapping("/export")
+    public void exportHolds(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        int requestorID = getRequestorId(request);
+        authUtils.validateStaffAccess(requestorID);
+
+        ExportWriter.Format exportFormat;
+        try {
+            exportFormat = ExportWriter.parseFormat(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        try (ExportWriter<Hold> out = ExportWriter.open(response, exportFormat, "holds", objectMapper, CSV_COLUMNS)) {
+            holdService.exportAllHolds(requestorID, out);
+        }
     }
 
     // POST /api/holds/{titleID}
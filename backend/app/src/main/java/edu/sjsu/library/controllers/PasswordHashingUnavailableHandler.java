@@ -0,0 +1,18 @@
+package edu.sjsu.library.controllers;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import edu.sjsu.library.exceptions.PasswordHashingUnavailableException;
+
+// 503 + Retry-After whenever the password hashing pool is saturated, for every endpoint that hashes or
+// checks a password (login, account creation, password change), instead of a generic 500.
+@RestControllerAdvice
+public class PasswordHashingUnavailableHandler {
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<Void> hashingUnavailable(PasswordHashingUnavailableException e) {
+        return ResponseEntity.status(503).header("Retry-After", "1").build();
+    }
+}
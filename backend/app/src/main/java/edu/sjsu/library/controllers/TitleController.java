@@ -1,20 +1,28 @@
 package edu.sjsu.library.controllers;
 
 import org.springframework.stereotype.Controller;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import edu.sjsu.library.models.Title;
+import edu.sjsu.library.models.TitleQuery;
 import edu.sjsu.library.models.Copy;
 import edu.sjsu.library.models.User;
-import edu.sjsu.library.models.BookRecord;
+import edu.sjsu.library.models.LoanView;
 import edu.sjsu.library.models.AvailabilitySummary;
+import edu.sjsu.library.models.CatalogPage;
+import edu.sjsu.library.models.ResourceVersion;
 import edu.sjsu.library.services.BookService;
 import edu.sjsu.library.services.LoanService;
 import edu.sjsu.library.services.UserService;
 import edu.sjsu.library.utils.AuthorizationUtils;
+import edu.sjsu.library.utils.Pagination;
 
+import org.springframework.web.context.request.WebRequest;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
 import java.time.Year;
 import java.util.List;
 
@@ -42,7 +50,7 @@ public class TitleController {
     // ==================== CATALOG BROWSING ====================
     
     // GET /titles
-    // List all titles with optional filters.
+    // List titles with optional filters, one keyset page at a time (after = last title ID seen).
     @GetMapping
     public String listTitles(
             @RequestParam(required = false) String title,
@@ -51,39 +59,34 @@ public class TitleController {
             @RequestParam(required = false) Integer startYear,
             @RequestParam(required = false) Integer endYear,
             @RequestParam(required = false, defaultValue = "false") boolean availableOnly,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
             HttpServletRequest request,
+            HttpServletResponse response,
+            WebRequest webRequest,
             Model model) {
         
         int requestorID = getRequestorId(request);
-        User requestor = userService.findById(requestorID);
-        
-        // Start with all titles, then apply filters sequentially
-        List<Title> titles = bookService.getAllTitles(requestorID);
-        
-        // Apply title filter if provided
-        if (title != null && !title.isBlank()) {
-            final String searchTitle = title.trim().toLowerCase();
-            titles = titles.stream()
-                .filter(t -> t.getTitle().toLowerCase().contains(searchTitle))
-                .collect(java.util.stream.Collectors.toList());
+        User requestor = userService.findRequestor(requestorID);
+
+        // Conditional GET: if no title or copy has changed since the browser's copy of this search, skip it.
+        // The page is personalised, so the ETag is per user, role and query string and must not be shared by proxies.
+        response.setHeader("Cache-Control", "private, no-cache");
+        ResourceVersion version = bookService.getCatalogVersion(requestorID);
+        String variant = "catalog:" + requestorID + ":" + requestor.getRole() + "?" + request.getQueryString();
+        if (webRequest.checkNotModified(version.eTag(variant), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified
         }
         
-        // Apply author filter if provided
-        if (author != null && !author.isBlank()) {
-            final String searchAuthor = author.trim().toLowerCase();
-            titles = titles.stream()
-                .filter(t -> t.getAuthor().toLowerCase().contains(searchAuthor))
-                .collect(java.util.stream.Collectors.toList());
-        }
+        // Build a single catalog query from whichever filters were provided.
+        TitleQuery query = new TitleQuery();
+        query.setTitle(title);
+        query.setAuthor(author);
         
         // Apply genre filter if provided
         if (genre != null && !genre.isBlank()) {
             try {
-                Title.Genre genreEnum = Title.Genre.valueOf(genre.trim().toUpperCase().replace(" ", "_"));
-                final Title.Genre targetGenre = genreEnum;
-                titles = titles.stream()
-                    .filter(t -> t.getGenre() == targetGenre)
-                    .collect(java.util.stream.Collectors.toList());
+                query.setGenre(Title.Genre.valueOf(genre.trim().toUpperCase().replace(" ", "_")));
             } catch (IllegalArgumentException e) {
                 model.addAttribute("error", "Invalid genre: " + genre);
             }
@@ -91,20 +94,19 @@ public class TitleController {
         
         // Apply year range filter if provided
         if (startYear != null || endYear != null) {
-            final int start = startYear != null ? startYear : 1000;
-            final int end = endYear != null ? endYear : Year.now().getValue();
-            titles = titles.stream()
-                .filter(t -> {
-                    int year = t.getYearPublished().getValue();
-                    return year >= start && year <= end;
-                })
-                .collect(java.util.stream.Collectors.toList());
+            query.setStartYear(startYear != null ? startYear : 1000);
+            query.setEndYear(endYear != null ? endYear : Year.now().getValue());
         }
         
-        // Filter by availability if requested
-        if (availableOnly) {
-            titles = bookService.filterTitlesByAvailability(titles, true, requestorID);
-        }
+        int pageSize = Pagination.clampLimit(limit);
+        query.setAvailableOnly(availableOnly);
+        query.setAfterId(after);
+        query.setLimit(pageSize);
+        
+        // One query returns the page and the facet counts for the whole result set.
+        CatalogPage page = bookService.searchCatalogWithFacets(query, requestorID);
+        List<Title> titles = page.getTitles();
+        Integer nextCursor = Pagination.nextCursor(titles, pageSize, Title::getTitleID);
 
         // Preserve search parameters in model for form repopulation
         model.addAttribute("searchTitle", title);
@@ -113,8 +115,11 @@ public class TitleController {
         model.addAttribute("startYear", startYear);
         model.addAttribute("endYear", endYear);
         model.addAttribute("availableOnly", availableOnly);
+        model.addAttribute("after", after);
+        model.addAttribute("nextCursor", nextCursor);
         
         model.addAttribute("titles", titles);
+        model.addAttribute("facets", page);
         model.addAttribute("isStaff", requestor.isStaff());
         model.addAttribute("currentUser", requestor);
         model.addAttribute("genres", Title.Genre.values());
@@ -125,9 +130,19 @@ public class TitleController {
     // GET /titles/{id}
     // View single title details with copies and availability.
     @GetMapping("/{id}")
-    public String viewTitle(@PathVariable int id, HttpServletRequest request, Model model) {
+    public String viewTitle(@PathVariable int id, HttpServletRequest request, HttpServletResponse response,
+                            WebRequest webRequest, Model model) {
         int requestorID = getRequestorId(request);
-        User requestor = userService.findById(requestorID);
+        User requestor = userService.findRequestor(requestorID);
+        
+        // Conditional GET: if the title and its copies haven't changed since the browser's copy, skip rendering.
+        // The page is personalised, so the ETag is per user and role and must not be shared by proxies.
+        response.setHeader("Cache-Control", "private, no-cache");
+        ResourceVersion version = bookService.getTitleVersion(id, requestorID);
+        String variant = "page:" + requestorID + ":" + requestor.getRole();
+        if (version != null && webRequest.checkNotModified(version.eTag(variant), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified
+        }
         
         Title title = bookService.getTitleById(id, requestorID);
         if (title == null) {
@@ -157,7 +172,7 @@ public class TitleController {
         
         try {
             authUtils.validateStaffAccess(requestorID);
-            User requestor = userService.findById(requestorID);
+            User requestor = userService.findRequestor(requestorID);
             
             model.addAttribute("genres", Title.Genre.values());
             model.addAttribute("isStaff", true);
@@ -207,7 +222,7 @@ public class TitleController {
 
         model.addAttribute("genres", Title.Genre.values());
         model.addAttribute("isStaff", true);
-        model.addAttribute("currentUser", userService.findById(requestorID));
+        model.addAttribute("currentUser", userService.findRequestor(requestorID));
         return "title-add";
     }
 
@@ -219,7 +234,7 @@ public class TitleController {
         
         try {
             authUtils.validateStaffAccess(requestorID);
-            User requestor = userService.findById(requestorID);
+            User requestor = userService.findRequestor(requestorID);
             
             Title title = bookService.getTitleById(id, requestorID);
             if (title == null) {
@@ -296,13 +311,17 @@ public class TitleController {
             @RequestParam(required = false) Integer userId,
             @RequestParam(required = false) Integer titleId,
             @RequestParam(required = false, defaultValue = "false") boolean activeOnly,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(required = false, defaultValue = "false") boolean includeArchived,
             HttpServletRequest request,
             Model model) {
         
         int requestorID = getRequestorId(request);
-        User requestor = userService.findById(requestorID);
+        User requestor = userService.findRequestor(requestorID);
         
-        List<BookRecord> loans;
+        List<LoanView> loans;
         
         try {
             if (userId != null) {
@@ -310,12 +329,16 @@ public class TitleController {
                 if (activeOnly) {
                     loans = loanService.getCurrentLoansByUser(requestorID, userId);
                 } else {
-                    loans = loanService.getLoanHistoryByUser(requestorID, userId);
+                    loans = loanService.getLoanHistoryByUser(requestorID, userId, includeArchived);
                 }
             } else if (titleId != null) {
                 // View loans for specific title (staff only)
+                // One joined page per request; the next page's cursor goes to the view as "nextBefore".
                 authUtils.validateStaffAccess(requestorID);
-                loans = loanService.getLoanHistoryByTitle(requestorID, titleId);
+                List<LoanView> page = loanService.getLoanHistoryByTitle(
+                    requestorID, titleId, from, to, Pagination.beforeKey(before), Pagination.DEFAULT_LIMIT, includeArchived);
+                model.addAttribute("nextBefore", Pagination.nextCursor(page, Pagination.DEFAULT_LIMIT, LoanView::getLoanID));
+                loans = page;
             } else {
                 // Default: members see their own loans, staff need to specify filters
                 if (requestor.isStaff()) {
@@ -324,7 +347,7 @@ public class TitleController {
                 } else {
                     loans = activeOnly ? 
                         loanService.getCurrentLoansByUser(requestorID, requestorID) :
-                        loanService.getLoanHistoryByUser(requestorID, requestorID);
+                        loanService.getLoanHistoryByUser(requestorID, requestorID, includeArchived);
                 }
             }
             
@@ -348,23 +371,18 @@ public class TitleController {
     @GetMapping("/loans/{loanId}")
     public String viewLoanDetail(@PathVariable int loanId, HttpServletRequest request, Model model) {
         int requestorID = getRequestorId(request);
-        User requestor = userService.findById(requestorID);
+        User requestor = userService.findRequestor(requestorID);
         
         try {
-            BookRecord loan = loanService.getLoanById(requestorID, loanId);
+            // Copy, title, borrower name and fine totals come with the loan (one joined query).
+            LoanView loan = loanService.getLoanById(requestorID, loanId);
             
             if (loan == null) {
                 model.addAttribute("error", "Loan record not found.");
                 return "redirect:/titles/loans";
             }
             
-            // Get additional information for display
-            User borrower = userService.findById(loan.getUserID());
-            // Note: To get title info, we need to get copy first, then title from copy
-            // This could be improved by adding methods to get Title/Copy directly from loan
-            
             model.addAttribute("loan", loan);
-            model.addAttribute("borrower", borrower);
             model.addAttribute("isStaff", requestor.isStaff());
             model.addAttribute("currentUser", requestor);
             
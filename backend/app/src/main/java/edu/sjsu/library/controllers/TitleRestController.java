@@ -0,0 +1,100 @@
+package edu.sjsu.library.controllers;
+
+import org.springframework.web.bind.annotation.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+import edu.sjsu.library.dao.TitleSuggestIndex;
+import edu.sjsu.library.models.ImportResult;
+import edu.sjsu.library.models.ResourceVersion;
+import edu.sjsu.library.models.Title;
+import edu.sjsu.library.models.TitleSuggestion;
+import edu.sjsu.library.services.BookService;
+import edu.sjsu.library.services.TitleImportService;
+import edu.sjsu.library.utils.TitleImportReader;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/titles")
+public class TitleRestController {
+
+    private final TitleSuggestIndex titleSuggestIndex;
+    private final BookService bookService;
+    private final TitleImportService titleImportService;
+
+    public TitleRestController(TitleSuggestIndex titleSuggestIndex, BookService bookService,
+                               TitleImportService titleImportService) {
+        this.titleSuggestIndex = titleSuggestIndex;
+        this.bookService = bookService;
+        this.titleImportService = titleImportService;
+    }
+
+    // GET /api/titles/{id} - Title details as JSON (MEMBERS see visible titles only)
+    // Answers 304 if the client's ETag is still current.
+    @GetMapping("/{id}")
+    public ResponseEntity<Title> getTitle(
+            @PathVariable int id,
+            HttpServletRequest request,
+            WebRequest webRequest) {
+        int requestorID = getRequestorId(request);
+        ResourceVersion version = bookService.getTitleVersion(id, requestorID);
+        if (version != null && webRequest.checkNotModified(version.eTag("title"), version.lastModifiedMillis())) {
+            return null; // 304 Not Modified
+        }
+        try {
+            Title title = bookService.getTitleById(id, requestorID);
+            return title != null ? ResponseEntity.ok(title) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // GET /api/titles/suggest?q= - Typeahead over visible titles and authors, most borrowed first (MEMBERS & STAFF)
+    // Answered entirely from memory; the only check is that the caller has a session.
+    @GetMapping("/suggest")
+    public ResponseEntity<List<TitleSuggestion>> suggest(
+            @RequestParam(defaultValue = "") String q,
+            HttpServletRequest request) {
+        getRequestorId(request);
+        return ResponseEntity.ok(titleSuggestIndex.suggest(q));
+    }
+
+    // POST /api/titles/import?format=csv|marc - Bulk load a vendor feed sent as the request body (STAFF only)
+    // Titles are matched by ISBN: new ones are inserted, changed ones updated, the rest skipped.
+    // The body is read as a stream (UTF-8 unless the Content-Type says otherwise), never buffered whole.
+    @PostMapping("/import")
+    public ResponseEntity<?> importTitles(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request) throws IOException {
+        int requestorID = getRequestorId(request);
+        try {
+            TitleImportReader.Format importFormat = TitleImportReader.parseFormat(format);
+            Reader body = request.getCharacterEncoding() != null
+                    ? request.getReader()
+                    : new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8);
+            ImportResult result = titleImportService.importTitles(body, importFormat, requestorID);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private int getRequestorId(HttpServletRequest req) {
+        HttpSession session = req.getSession(false);
+        if (session == null) {
+            throw new RuntimeException("Unauthenticated - no session.");
+        }
+        Integer id = (Integer) session.getAttribute("USER_ID");
+        if (id == null) {
+            throw new RuntimeException("Unauthenticated - USER_ID is missing from session.");
+        }
+        return id;
+    }
+}
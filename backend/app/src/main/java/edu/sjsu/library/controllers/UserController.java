@@ -5,12 +5,11 @@ import org.springframework.http.ResponseEntity;
 import jakarta.servlet.http.HttpServletRequest;
 
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 import edu.sjsu.library.services.UserService;
 import edu.sjsu.library.models.User;
 import edu.sjsu.library.utils.AuthorizationUtils;
+import edu.sjsu.library.utils.Pagination;
 
 // Use REST API!
 @RestController
@@ -25,22 +24,40 @@ public class UserController {
         this.authUtils = authUtils;
     }
 
-    // 1. GET /api/users?email=&role=&status=
-    // STAFF: View ALL accounts with optional filters (email, role, status).
+    // 1. GET /api/users?email=&role=&status=&after=&limit=
+    // STAFF: View ALL accounts with optional filters (email, role, status), one page at a time.
+    // The cursor for the next page is returned in the X-Next-Cursor header.
     // MEMBERS: Not allowed (validateStaffAccess will throw).
     @GetMapping
     public ResponseEntity<List<User>> listUsers(
             @RequestParam(required = false) String email,
             @RequestParam(required = false) String role,
             @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit,
             HttpServletRequest request) {
 
         int requestorID = getRequestorId(request);
         authUtils.validateStaffAccess(requestorID); // STAFF only
 
-        List<User> users = userService.getAllUsers(requestorID);
-        users = applyFilters(users, email, role, status);
-        return ResponseEntity.ok(users);
+        // Unknown role/status values simply match nothing.
+        User.UserRole roleFilter = null;
+        User.UserStatus statusFilter = null;
+        try {
+            if (role != null && !role.isEmpty()) {
+                roleFilter = User.UserRole.valueOf(role.trim().toUpperCase());
+            }
+            if (status != null && !status.isEmpty()) {
+                statusFilter = User.UserStatus.valueOf(status.trim().toUpperCase());
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(List.of());
+        }
+
+        int pageSize = Pagination.clampLimit(limit);
+        List<User> users = userService.getUsersPage(email, roleFilter, statusFilter,
+                                                    Pagination.afterKey(after), pageSize, requestorID);
+        return Pagination.ok(users, pageSize, User::getUserID);
     }
 
     // 2. GET /api/users/me
@@ -49,7 +66,7 @@ public class UserController {
     @GetMapping("/me")
     public ResponseEntity<User> getCurrentUser(HttpServletRequest request) {
         int requestorID = getRequestorId(request);
-        User u = userService.findById(requestorID);
+        User u = userService.findRequestor(requestorID);
         if (u == null) return ResponseEntity.notFound().build();
         return ResponseEntity.ok(u);
     }
@@ -89,6 +106,7 @@ public class UserController {
 
     // 6. POST /api/users
     // Create new user account (STAFF only or public registration - adjust as needed).
+    // 503 + Retry-After when the password hashing pool is saturated (PasswordHashingUnavailableHandler).
     @PostMapping
     public ResponseEntity<User> createUser(@RequestBody CreateUserRequest body, HttpServletRequest request) {
         int requestorID = getRequestorId(request);
@@ -170,38 +188,6 @@ public class UserController {
         return success ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
     }
 
-    // Helper: Apply filters to user list (email, role, status).
-    private List<User> applyFilters(List<User> users, String email, String role, String status) {
-        // Filter by email (exact or partial match).
-        if (email != null && !email.isEmpty()) {
-            String emailLower = email.toLowerCase();
-            users = users.stream()
-                    .filter(u -> Optional.ofNullable(u.getEmail())
-                            .orElse("")
-                            .toLowerCase()
-                            .contains(emailLower))
-                    .collect(Collectors.toList());
-        }
-
-        // Filter by role.
-        if (role != null && !role.isEmpty()) {
-            String roleLower = role.toLowerCase();
-            users = users.stream()
-                    .filter(u -> u.getRole() != null && u.getRole().name().toLowerCase().equals(roleLower))
-                    .collect(Collectors.toList());
-        }
-
-        // Filter by status.
-        if (status != null && !status.isEmpty()) {
-            String statusLower = status.toLowerCase();
-            users = users.stream()
-                    .filter(u -> u.getStatus() != null && u.getStatus().name().toLowerCase().equals(statusLower))
-                    .collect(Collectors.toList());
-        }
-
-        return users;
-    }
-
     // Extract requestor ID from session.
     private int getRequestorId(HttpServletRequest req) {
         jakarta.servlet.http.HttpSession session = req.getSession(false);
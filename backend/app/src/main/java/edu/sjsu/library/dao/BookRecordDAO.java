@@ -1,11 +1,24 @@
 package edu.sjsu.library.dao;
 
 import edu.sjsu.library.models.BookRecord;
+import edu.sjsu.library.models.LoanView;
+import edu.sjsu.library.models.User.UserRole;
+import edu.sjsu.library.models.User.UserStatus;
+import edu.sjsu.library.utils.ExportWriter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Repository
 public class BookRecordDAO {
@@ -16,60 +29,232 @@ public class BookRecordDAO {
         this.jdbc = jdbc;
     }
 
-    // Create table (PostgreSQL)
+    // Create tables (PostgreSQL): book_records partitioned by checkout year, and its archive.
+    // Yearly partitions are added by LoanArchiveDAO.ensureYearPartition.
     public void createTable() {
         String sql = """
             CREATE TABLE IF NOT EXISTS book_records (
-                loanid SERIAL PRIMARY KEY,
+                loanid SERIAL,
                 copyid INTEGER NOT NULL,
                 userid INTEGER NOT NULL,
                 checkoutdate TIMESTAMP NOT NULL,
                 duedate TIMESTAMP NOT NULL,
                 returndate TIMESTAMP,
-                renewcount INTEGER NOT NULL
-            )
+                renewcount INTEGER NOT NULL,
+                PRIMARY KEY (loanid, checkoutdate)
+            ) PARTITION BY RANGE (checkoutdate)
             """;
         jdbc.execute(sql);
+        // A database from before migration 010 still has a plain book_records table; leave it alone.
+        Boolean partitioned = jdbc.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'book_records'::regclass)",
+            Boolean.class
+        );
+        if (Boolean.TRUE.equals(partitioned)) {
+            jdbc.execute("CREATE TABLE IF NOT EXISTS book_records_default PARTITION OF book_records DEFAULT");
+        }
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_book_records_active_by_user ON book_records (userid) WHERE returndate IS NULL");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_book_records_copy ON book_records (copyid, loanid)");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_book_records_overdue ON book_records (loanid, duedate) WHERE returndate IS NULL");
+
+        jdbc.execute("""
+            CREATE TABLE IF NOT EXISTS book_records_archive (
+                loanid INTEGER NOT NULL,
+                copyid INTEGER NOT NULL,
+                userid INTEGER NOT NULL,
+                checkoutdate TIMESTAMP NOT NULL,
+                duedate TIMESTAMP NOT NULL,
+                returndate TIMESTAMP,
+                renewcount INTEGER NOT NULL,
+                PRIMARY KEY (loanid, checkoutdate)
+            ) PARTITION BY RANGE (checkoutdate)
+            """);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS book_records_archive_default PARTITION OF book_records_archive DEFAULT");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_book_records_archive_user ON book_records_archive (userid, checkoutdate)");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_book_records_archive_copy ON book_records_archive (copyid, loanid)");
+
+        // All-time loans per title, bumped by CopyDAO.checkOut (migration 014).
+        jdbc.execute("""
+            CREATE TABLE IF NOT EXISTS title_loan_counts (
+                titleid INTEGER PRIMARY KEY,
+                loans INTEGER NOT NULL DEFAULT 0
+            )
+            """);
     }
 
-    // Row mapper for BookRecord
-    private BookRecord mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {
-        Timestamp returnTs = rs.getTimestamp("returndate");
+    // The relation history queries read from: live loans only, or live plus archived
+    // (both tables have the same columns in the same order). Callers give it an alias.
+    private static String loans(boolean includeArchived) {
+        return includeArchived
+            ? "(SELECT * FROM book_records UNION ALL SELECT * FROM book_records_archive)"
+            : "book_records";
+    }
 
-        return new BookRecord(
-            rs.getInt("loanid"),
-            rs.getInt("copyid"),
-            rs.getInt("userid"),
-            rs.getTimestamp("checkoutdate").toLocalDateTime(),
-            rs.getTimestamp("duedate").toLocalDateTime(),
-            returnTs == null ? null : returnTs.toLocalDateTime(),
-            rs.getInt("renewcount")
-        );
+    // Enriched loan rows (LoanView): the loan joined to its copy, title and borrower, plus its fine
+    // totals, in one query. Fines are summed per loan over idx_fines_loan (migration 012). Everything
+    // is LEFT JOINed because archived loans may outlive their copy or the borrower's account.
+    // %s is the loans relation (see loans()); callers append the WHERE clause on alias br.
+    private static final String LOAN_VIEW = """
+        SELECT br.*, c.barcode, c.location, t.id AS titleid, t.title, t.author, u.fname, u.lname,
+               COALESCE(f.total, 0) AS fine_total, COALESCE(f.unpaid, 0) AS unpaid_fines
+        FROM %s br
+        LEFT JOIN copies c ON c.copyid = br.copyid
+        LEFT JOIN titles t ON t.id = c.titleid
+        LEFT JOIN users u ON u.id = br.userid
+        LEFT JOIN LATERAL (
+            SELECT SUM(fi.amount) AS total, SUM(fi.amount) FILTER (WHERE fi.status = 'UNPAID') AS unpaid
+            FROM fines fi
+            WHERE fi.loanid = br.loanid
+        ) f ON TRUE
+        """;
+
+    private static RowMapper<LoanView> loanView() {
+        RowMapper<BookRecord> loans = RowMappers.bookRecord();
+        return (rs, n) -> {
+            int titleId = rs.getInt("titleid");
+            boolean noTitle = rs.wasNull();
+            return new LoanView(
+                loans.mapRow(rs, n),
+                rs.getString("barcode"),
+                rs.getString("location"),
+                noTitle ? null : titleId,
+                rs.getString("title"),
+                rs.getString("author"),
+                rs.getString("fname"),
+                rs.getString("lname"),
+                rs.getBigDecimal("fine_total"),
+                rs.getBigDecimal("unpaid_fines")
+            );
+        };
     }
 
-    // Find all records
-    public List<BookRecord> findAll() {
-        return jdbc.query("SELECT * FROM book_records ORDER BY loanid", this::mapRow);
+    // One user's standing for the loan policy checks: status, role, open loan count and unpaid fine
+    // total in one row, the aggregates computed in SQL (over the partial indexes from migration 008)
+    // instead of loading the rows. CopyDAO.checkOut runs it as a CTE and takes every checkout check
+    // from it; renewLoan reads it through findEligibility. Takes the user ID as its only parameter.
+    static final String ELIGIBILITY = """
+        SELECT u.id AS userid, u.status, u.role,
+               (SELECT COUNT(*) FROM book_records b WHERE b.userid = u.id AND b.returndate IS NULL)::int AS active_loans,
+               (SELECT COALESCE(SUM(f.amount), 0) FROM fines f WHERE f.userid = u.id AND f.status = 'UNPAID') AS unpaid_fines
+        FROM users u
+        WHERE u.id = ?
+        """;
+
+    public record Eligibility(int userId, UserStatus status, UserRole role, int activeLoans, BigDecimal unpaidFines) {
     }
 
-    // Find by loanID
-    public BookRecord findById(int id) {
+    // Find eligibility by user (returns null if there is no such user)
+    public Eligibility findEligibility(int userId) {
         try {
             return jdbc.queryForObject(
-                "SELECT * FROM book_records WHERE loanid = ?",
-                this::mapRow,
-                id
+                ELIGIBILITY,
+                (rs, n) -> new Eligibility(
+                    rs.getInt("userid"),
+                    UserStatus.valueOf(rs.getString("status").trim().toUpperCase()),
+                    UserRole.valueOf(rs.getString("role").trim().toUpperCase()),
+                    rs.getInt("active_loans"),
+                    rs.getBigDecimal("unpaid_fines")
+                ),
+                userId
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
             return null;
         }
     }
 
+    // Find all records
+    public List<BookRecord> findAll() {
+        return jdbc.query("SELECT * FROM book_records ORDER BY loanid", RowMappers.bookRecord());
+    }
+
+    // Stream every loan record to the sink in loanid order through a server-side cursor (BookRecord export).
+    // Only one fetch batch is held in memory; the caller must be inside a transaction for the cursor to be used.
+    public void streamAll(Consumer<BookRecord> sink) {
+        RowMapper<BookRecord> mapper = RowMappers.bookRecord();
+        jdbc.query(
+            con -> {
+                PreparedStatement ps = con.prepareStatement("SELECT * FROM book_records ORDER BY loanid");
+                ps.setFetchSize(ExportWriter.FETCH_SIZE);
+                return ps;
+            },
+            (RowCallbackHandler) rs -> sink.accept(mapper.mapRow(rs, 0))
+        );
+    }
+
+    // Find one page of records after a keyset cursor (loanid)
+    public List<BookRecord> findPage(int afterLoanId, int limit) {
+        return jdbc.query(
+            "SELECT * FROM book_records WHERE loanid > ? ORDER BY loanid LIMIT ?",
+            RowMappers.bookRecord(),
+            afterLoanId, limit
+        );
+    }
+
+    // One page of enriched loans after a keyset cursor (loanid)
+    public List<LoanView> findViewPage(int afterLoanId, int limit) {
+        return jdbc.query(
+            LOAN_VIEW.formatted(loans(false)) + " WHERE br.loanid > ? ORDER BY br.loanid LIMIT ?",
+            loanView(),
+            afterLoanId, limit
+        );
+    }
+
+    // Find one enriched loan by loanID, live or archived (returns null if not found)
+    public LoanView findViewById(int id) {
+        List<LoanView> found = jdbc.query(
+            LOAN_VIEW.formatted(loans(true)) + " WHERE br.loanid = ?",
+            loanView(),
+            id
+        );
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    // Enriched loans by a user, newest first (activeOnly: not yet returned, which are never archived)
+    public List<LoanView> findViewsByUser(int userId, boolean activeOnly, boolean includeArchived) {
+        return jdbc.query(
+            LOAN_VIEW.formatted(loans(includeArchived && !activeOnly)) + " WHERE br.userid = ?"
+                + (activeOnly ? " AND br.returndate IS NULL" : "") + " ORDER BY br.checkoutdate DESC",
+            loanView(),
+            userId
+        );
+    }
+
+    // Enriched loans of a copy, newest first (activeOnly: the current loan, if any)
+    public List<LoanView> findViewsByCopy(int copyId, boolean activeOnly, boolean includeArchived) {
+        return jdbc.query(
+            LOAN_VIEW.formatted(loans(includeArchived && !activeOnly)) + " WHERE br.copyid = ?"
+                + (activeOnly ? " AND br.returndate IS NULL" : "") + " ORDER BY br.checkoutdate DESC",
+            loanView(),
+            copyId
+        );
+    }
+
+    // Find by loanID (falls back to the archive, so an archived loan can still be opened)
+    public BookRecord findById(int id) {
+        List<BookRecord> found = jdbc.query(
+            "SELECT * FROM book_records WHERE loanid = ?",
+            RowMappers.bookRecord(),
+            id
+        );
+        if (found.isEmpty()) {
+            found = jdbc.query(
+                "SELECT * FROM book_records_archive WHERE loanid = ?",
+                RowMappers.bookRecord(),
+                id
+            );
+        }
+        return found.isEmpty() ? null : found.get(0);
+    }
+
     // Find all loans by a user
     public List<BookRecord> findByUser(int userId) {
+        return findByUser(userId, false);
+    }
+
+    public List<BookRecord> findByUser(int userId, boolean includeArchived) {
         return jdbc.query(
-            "SELECT * FROM book_records WHERE userid = ? ORDER BY checkoutdate DESC",
-            this::mapRow,
+            "SELECT * FROM " + loans(includeArchived) + " br WHERE br.userid = ? ORDER BY br.checkoutdate DESC",
+            RowMappers.bookRecord(),
             userId
         );
     }
@@ -78,16 +263,20 @@ public class BookRecordDAO {
     public List<BookRecord> findActiveByUser(int userId) {
         return jdbc.query(
             "SELECT * FROM book_records WHERE userid = ? AND returndate IS NULL ORDER BY checkoutdate DESC",
-            this::mapRow,
+            RowMappers.bookRecord(),
             userId
         );
     }
 
     // Find records for a particular copy
     public List<BookRecord> findByCopy(int copyId) {
+        return findByCopy(copyId, false);
+    }
+
+    public List<BookRecord> findByCopy(int copyId, boolean includeArchived) {
         return jdbc.query(
-            "SELECT * FROM book_records WHERE copyid = ? ORDER BY checkoutdate DESC",
-            this::mapRow,
+            "SELECT * FROM " + loans(includeArchived) + " br WHERE br.copyid = ? ORDER BY br.checkoutdate DESC",
+            RowMappers.bookRecord(),
             copyId
         );
     }
@@ -96,7 +285,7 @@ public class BookRecordDAO {
     public BookRecord findActiveByCopy(int copyId) {
         List<BookRecord> activeLoans = jdbc.query(
             "SELECT * FROM book_records WHERE copyid = ? AND returndate IS NULL",
-            this::mapRow,
+            RowMappers.bookRecord(),
             copyId
         );
         
@@ -104,25 +293,47 @@ public class BookRecordDAO {
         return activeLoans.isEmpty() ? null : activeLoans.get(0);
     }
 
-    // Find loans by title (join with copies table)
-    public List<BookRecord> findByTitle(int titleId) {
-        return jdbc.query(
-            """
-            SELECT br.* FROM book_records br 
-            JOIN copies c ON br.copyid = c.copyid 
-            WHERE c.titleid = ? 
-            ORDER BY br.checkoutdate DESC
-            """,
-            this::mapRow,
-            titleId
+    // One page of a title's loan history, newest first (keyset on loanid, so deep pages stay cheap).
+    // Copies, borrowers and fines are joined in, so the page is one query however many copies the title has.
+    // from/to bound checkoutdate (from inclusive, to exclusive); either may be null.
+    public List<LoanView> findHistoryByTitle(int titleId, LocalDateTime from, LocalDateTime to, int beforeLoanId, int limit,
+                                             boolean includeArchived) {
+        StringBuilder sql = new StringBuilder(LOAN_VIEW.formatted(loans(includeArchived)));
+        sql.append(" WHERE c.titleid = ? AND br.loanid < ?");
+        List<Object> params = new ArrayList<>();
+        params.add(titleId);
+        params.add(beforeLoanId);
+
+        if (from != null) {
+            sql.append(" AND br.checkoutdate >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND br.checkoutdate < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY br.loanid DESC LIMIT ?");
+        params.add(limit);
+
+        return jdbc.query(sql.toString(), loanView(), params.toArray());
+    }
+
+    // Circulation count (all-time loans, archived ones included) per title, for popularity ranking.
+    // Read from the title_loan_counts counters, one row per borrowed title; titles never borrowed are absent.
+    public Map<Integer, Integer> countLoansByTitle() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        jdbc.query(
+            "SELECT titleid, loans FROM title_loan_counts",
+            (RowCallbackHandler) rs -> counts.put(rs.getInt("titleid"), rs.getInt("loans"))
         );
+        return counts;
     }
 
     // Find overdue loans (active loans past due date)
     public List<BookRecord> findOverdue(java.time.LocalDateTime currentDate) {
         return jdbc.query(
             "SELECT * FROM book_records WHERE returndate IS NULL AND duedate < ? ORDER BY duedate",
-            this::mapRow,
+            RowMappers.bookRecord(),
             java.sql.Timestamp.valueOf(currentDate)
         );
     }
@@ -0,0 +1,89 @@
+/*
+    Reads what changed in titles and copies since a poll cursor, for CatalogSync: rows whose
+    change_xid is at or past it (inserts and updates) and tombstones left in deleted_rows by
+    deletes (migration 015). The cursor is the xmin of the previous poll's snapshot: the oldest
+    transaction still running then. Anything that commits later has an ID at least that large,
+    however long ago it wrote its rows, so nothing committed after a poll is missed.
+*/
+package edu.sjsu.library.dao;
+
+import edu.sjsu.library.models.Title;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class CatalogChangeDAO {
+
+    private final JdbcTemplate jdbc;
+
+    public CatalogChangeDAO(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // titleVersions / copyVersions map each changed row's ID to its version. nextCursor is the
+    // value to pass to the next call.
+    public record CatalogChanges(String nextCursor,
+                                 Map<Integer, Title> titles,
+                                 Map<Integer, Long> titleVersions,
+                                 Map<Integer, Long> copyVersions,
+                                 List<Integer> deletedTitles,
+                                 List<Integer> deletedCopies) {
+    }
+
+    /**
+     * Everything written by transactions at or after cursor (null: nothing, just a cursor to start from).
+     * The next cursor is read first, so a later call with it can only see more, never less. Rows from
+     * transactions that were still running are returned again by later calls until those finish.
+     */
+    public CatalogChanges findChangedSince(String cursor) {
+        String nextCursor = jdbc.queryForObject("SELECT pg_snapshot_xmin(pg_current_snapshot())::text", String.class);
+        Map<Integer, Title> titles = new HashMap<>();
+        Map<Integer, Long> titleVersions = new HashMap<>();
+        Map<Integer, Long> copyVersions = new HashMap<>();
+        List<Integer> deletedTitles = new ArrayList<>();
+        List<Integer> deletedCopies = new ArrayList<>();
+        if (cursor == null) {
+            return new CatalogChanges(nextCursor, titles, titleVersions, copyVersions, deletedTitles, deletedCopies);
+        }
+
+        RowMapper<Title> title = RowMappers.title();
+        jdbc.query(
+            "SELECT id, isbn, title, author, yearpublished, genre, isvisible, version FROM titles WHERE change_xid >= ?::xid8",
+            (RowCallbackHandler) rs -> {
+                Title t = title.mapRow(rs, 0);
+                titles.put(t.getTitleID(), t);
+                titleVersions.put(t.getTitleID(), rs.getLong("version"));
+            },
+            cursor
+        );
+        jdbc.query(
+            "SELECT copyid, version FROM copies WHERE change_xid >= ?::xid8",
+            (RowCallbackHandler) rs -> copyVersions.put(rs.getInt("copyid"), rs.getLong("version")),
+            cursor
+        );
+        jdbc.query(
+            "SELECT tablename, id FROM deleted_rows WHERE change_xid >= ?::xid8",
+            (RowCallbackHandler) rs -> ("titles".equals(rs.getString("tablename")) ? deletedTitles : deletedCopies)
+                .add(rs.getInt("id")),
+            cursor
+        );
+        return new CatalogChanges(nextCursor, titles, titleVersions, copyVersions, deletedTitles, deletedCopies);
+    }
+
+    // Tombstones only need to outlive the longest gap between two polls of a running node.
+    public int purgeTombstones(Duration retention) {
+        return jdbc.update(
+            "DELETE FROM deleted_rows WHERE deleted_at < now() - make_interval(secs => ?)",
+            retention.toSeconds()
+        );
+    }
+}
@@ -0,0 +1,402 @@
+/*
+    CatalogIndex keeps an embedded, memory-mapped Lucene index of the title catalogue so that
+    catalog searches can be answered without scanning Postgres. The index only ever returns title
+    IDs; callers hydrate the rows they actually need by primary key.
+
+    - The index is rebuilt from the titles table every time the application starts.
+    - BookService pushes add/edit/remove changes after their transaction commits; CatalogSync
+      pushes the ones made on other nodes.
+    - Until the first rebuild finishes (or if the index is disabled) isReady() is false and
+      callers should fall back to SQL.
+    - While a later rebuild runs (e.g. after a bulk import) searches keep reading the last
+      committed snapshot: nothing refreshes the searcher until the rebuilt index is committed.
+      Edits that arrive in the meantime are replayed on top of the rebuilt rows.
+*/
+package edu.sjsu.library.dao;
+
+import edu.sjsu.library.models.Title;
+import edu.sjsu.library.models.TitleQuery;
+import edu.sjsu.library.utils.AfterCommit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.MMapDirectory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Repository
+public class CatalogIndex {
+
+    // Field names.
+    private static final String ID_KEY = "id_key";     // Exact-match term used for update/delete.
+    private static final String ID = "id";             // Stored, returned to callers.
+    private static final String ID_POINT = "id_point"; // Range queries for keyset pagination.
+    private static final String ID_SORT = "id_sort";   // Doc values for ORDER BY id.
+    private static final String TITLE = "title";
+    private static final String AUTHOR = "author";
+    private static final String ISBN = "isbn";
+    private static final String GENRE = "genre";
+    private static final String YEAR = "year";
+    private static final String VISIBLE = "visible";
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    // Most IDs matchText hands to SQL; a broader text filter is cheaper as a LIKE scan than as a huge array.
+    public static final int MAX_TEXT_MATCHES = 5000;
+
+    private final TitleDAO titleDAO;
+    private final boolean enabled;
+    private final Path indexPath;
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private MMapDirectory directory;
+    // Opened by the first rebuild (on its own thread) and read by searches and after-commit updates.
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+    private volatile boolean ready = false;
+    private volatile boolean rebuilding = false;
+    private final Queue<IndexChange> changesDuringRebuild = new ConcurrentLinkedQueue<>();
+
+    // One add/edit/remove, kept so it can be applied again after a rebuild.
+    private interface IndexChange {
+        void apply() throws IOException;
+    }
+
+    public CatalogIndex(TitleDAO titleDAO,
+                        @Value("${library.catalog-index.enabled:true}") boolean enabled,
+                        @Value("${library.catalog-index.path:${java.io.tmpdir}/library-catalog-index}") String indexPath) {
+        this.titleDAO = titleDAO;
+        this.enabled = enabled;
+        this.indexPath = Path.of(indexPath);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Rebuild the whole index from Postgres once the app is up (in the background, so startup isn't blocked).
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        rebuildInBackground();
+    }
+
+    // Full background rebuild once the surrounding transaction commits (bulk imports touch too many titles to upsert).
+    public void rebuildAfterCommit() {
+        afterCommit(this::rebuildInBackground);
+    }
+
+    private void rebuildInBackground() {
+        Thread rebuild = new Thread(this::rebuild, "catalog-index-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    public synchronized void rebuild() {
+        try {
+            if (writer == null) {
+                directory = new MMapDirectory(indexPath);
+                IndexWriterConfig config = new IndexWriterConfig(analyzer);
+                config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+                IndexWriter opened = new IndexWriter(directory, config);
+                searcherManager = new SearcherManager(opened, null);
+                writer = opened; // Last: upsert/remove take a non-null writer to mean both are ready.
+            }
+
+            long start = System.nanoTime();
+            rebuilding = true;
+            changesDuringRebuild.clear();
+            writer.deleteAll();
+
+            // Walk the titles table in keyset pages so the whole catalogue is never in memory at once.
+            int indexed = 0;
+            TitleQuery page = new TitleQuery();
+            page.setLimit(REBUILD_BATCH_SIZE);
+            page.setAfterId(0);
+            List<Title> batch;
+            do {
+                batch = titleDAO.search(page);
+                for (Title t : batch) {
+                    writer.updateDocument(new Term(ID_KEY, String.valueOf(t.getTitleID())), toDocument(t));
+                }
+                indexed += batch.size();
+                if (!batch.isEmpty()) {
+                    page.setAfterId(batch.get(batch.size() - 1).getTitleID());
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            // A page read before an edit committed may have just overwritten it; apply the edit again.
+            replayChangesDuringRebuild();
+            writer.commit();
+            rebuilding = false;
+            replayChangesDuringRebuild(); // Any that slipped in between the replay and the flag.
+            searcherManager.maybeRefreshBlocking();
+            ready = true;
+
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Catalog index rebuilt: " + indexed + " titles in " + millis + " ms.");
+        } catch (IOException | RuntimeException e) {
+            ready = false;
+            rebuilding = false;
+            System.err.println("Catalog index rebuild failed, falling back to SQL search: " + e.getMessage());
+        }
+    }
+
+    private void replayChangesDuringRebuild() throws IOException {
+        IndexChange change;
+        while ((change = changesDuringRebuild.poll()) != null) {
+            change.apply();
+        }
+    }
+
+    // Index (or re-index) a title once the surrounding transaction commits.
+    public void indexAfterCommit(Title title) {
+        afterCommit(() -> upsert(title));
+    }
+
+    // Remove a title from the index once the surrounding transaction commits.
+    public void removeAfterCommit(int titleID) {
+        afterCommit(() -> remove(titleID));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (enabled) {
+            AfterCommit.run(action);
+        }
+    }
+
+    private void upsert(Title title) {
+        if (writer == null) {
+            return; // The startup rebuild will pick the row up.
+        }
+        try {
+            apply(() -> writer.updateDocument(new Term(ID_KEY, String.valueOf(title.getTitleID())), toDocument(title)));
+        } catch (IOException e) {
+            System.err.println("Catalog index update failed for title " + title.getTitleID() + ": " + e.getMessage());
+        }
+    }
+
+    private void remove(int titleID) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            apply(() -> writer.deleteDocuments(new Term(ID_KEY, String.valueOf(titleID))));
+        } catch (IOException e) {
+            System.err.println("Catalog index delete failed for title " + titleID + ": " + e.getMessage());
+        }
+    }
+
+    // Write a change and make it searchable, unless a rebuild is running: refreshing then would
+    // expose the half-built index, so the change is kept for the rebuild to replay instead.
+    private void apply(IndexChange change) throws IOException {
+        change.apply();
+        if (rebuilding) {
+            changesDuringRebuild.add(change);
+        } else {
+            searcherManager.maybeRefresh();
+        }
+    }
+
+    /**
+     * Catalog browse: same filters and keyset paging (ORDER BY id) as TitleDAO.search.
+     * @return Matching title IDs in id order
+     */
+    public List<Integer> search(TitleQuery q) {
+        if (q.getAfterId() != null && q.getAfterId() == Integer.MAX_VALUE) {
+            return new ArrayList<>(); // Nothing comes after the largest possible id.
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+
+        if (q.isVisibleOnly()) {
+            query.add(new TermQuery(new Term(VISIBLE, "true")), BooleanClause.Occur.FILTER);
+        }
+        if (q.getTitle() != null && !q.getTitle().isBlank()) {
+            addTextFilter(query, TITLE, q.getTitle());
+        }
+        if (q.getAuthor() != null && !q.getAuthor().isBlank()) {
+            addTextFilter(query, AUTHOR, q.getAuthor());
+        }
+        if (q.getGenre() != null) {
+            query.add(new TermQuery(new Term(GENRE, q.getGenre().name())), BooleanClause.Occur.FILTER);
+        }
+        if (q.getStartYear() != null || q.getEndYear() != null) {
+            int from = q.getStartYear() != null ? q.getStartYear() : Integer.MIN_VALUE;
+            int to = q.getEndYear() != null ? q.getEndYear() : Integer.MAX_VALUE;
+            query.add(IntPoint.newRangeQuery(YEAR, from, to), BooleanClause.Occur.FILTER);
+        }
+        if (q.getAfterId() != null) {
+            query.add(IntPoint.newRangeQuery(ID_POINT, q.getAfterId() + 1, Integer.MAX_VALUE),
+                      BooleanClause.Occur.FILTER);
+        }
+
+        return run(query.build(), q.getLimit(), new Sort(new SortField(ID_SORT, SortField.Type.INT)));
+    }
+
+    /**
+     * Titles whose title/author text matches q's text filters (and visibility), for TitleDAO to apply
+     * the other filters, page and count facets over. Genre, years and paging are left to SQL.
+     * @return Matching title IDs in no particular order, or null if there are more than MAX_TEXT_MATCHES
+     *         (the caller should then let SQL do the whole search rather than ship that many IDs)
+     */
+    public List<Integer> matchText(TitleQuery q) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        if (q.isVisibleOnly()) {
+            query.add(new TermQuery(new Term(VISIBLE, "true")), BooleanClause.Occur.FILTER);
+        }
+        if (q.getTitle() != null && !q.getTitle().isBlank()) {
+            addTextFilter(query, TITLE, q.getTitle());
+        }
+        if (q.getAuthor() != null && !q.getAuthor().isBlank()) {
+            addTextFilter(query, AUTHOR, q.getAuthor());
+        }
+        List<Integer> ids = run(query.build(), MAX_TEXT_MATCHES + 1, null);
+        return ids.size() > MAX_TEXT_MATCHES ? null : ids;
+    }
+
+    /**
+     * Relevance-ranked search over one text field ("title" or "author").
+     * @return Matching title IDs, best match first
+     */
+    public List<Integer> rankedSearch(String field, String terms, boolean visibleOnly) {
+        if (terms == null || analyze(field, terms).isEmpty()) {
+            return new ArrayList<>(); // Nothing searchable (e.g. only punctuation).
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        addTextFilter(query, field, terms);
+        if (visibleOnly) {
+            query.add(new TermQuery(new Term(VISIBLE, "true")), BooleanClause.Occur.FILTER);
+        }
+        return run(query.build(), null, null);
+    }
+
+    public List<Integer> rankedSearchByTitle(String terms, boolean visibleOnly) {
+        return rankedSearch(TITLE, terms, visibleOnly);
+    }
+
+    public List<Integer> rankedSearchByAuthor(String terms, boolean visibleOnly) {
+        return rankedSearch(AUTHOR, terms, visibleOnly);
+    }
+
+    // Every analyzed token must match, either as a word prefix or (for longer words) with one typo.
+    private void addTextFilter(BooleanQuery.Builder query, String field, String text) {
+        for (String token : analyze(field, text)) {
+            BooleanQuery.Builder tokenQuery = new BooleanQuery.Builder();
+            tokenQuery.add(new PrefixQuery(new Term(field, token)), BooleanClause.Occur.SHOULD);
+            if (token.length() > 4) {
+                tokenQuery.add(new FuzzyQuery(new Term(field, token), 1), BooleanClause.Occur.SHOULD);
+            }
+            query.add(tokenQuery.build(), BooleanClause.Occur.MUST);
+        }
+    }
+
+    private List<String> analyze(String field, String text) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    private List<Integer> run(Query query, Integer limit, Sort sort) {
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            int n = limit != null ? limit : Math.max(1, searcher.getIndexReader().maxDoc());
+            TopDocs hits = sort != null ? searcher.search(query, n, sort) : searcher.search(query, n);
+
+            List<Integer> ids = new ArrayList<>(hits.scoreDocs.length);
+            for (ScoreDoc hit : hits.scoreDocs) {
+                ids.add(searcher.storedFields().document(hit.doc, Set.of(ID)).getField(ID).numericValue().intValue());
+            }
+            return ids;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException ignored) {
+                    // Nothing useful to do if releasing a reader fails.
+                }
+            }
+        }
+    }
+
+    private Document toDocument(Title t) {
+        Document doc = new Document();
+        doc.add(new StringField(ID_KEY, String.valueOf(t.getTitleID()), Field.Store.NO));
+        doc.add(new StoredField(ID, t.getTitleID()));
+        doc.add(new IntPoint(ID_POINT, t.getTitleID()));
+        doc.add(new NumericDocValuesField(ID_SORT, t.getTitleID()));
+        doc.add(new TextField(TITLE, t.getTitle(), Field.Store.NO));
+        doc.add(new TextField(AUTHOR, t.getAuthor(), Field.Store.NO));
+        doc.add(new StringField(ISBN, t.getISBN(), Field.Store.NO));
+        doc.add(new StringField(GENRE, t.getGenre().name(), Field.Store.NO));
+        doc.add(new IntPoint(YEAR, t.getYearPublished().getValue()));
+        doc.add(new StringField(VISIBLE, Boolean.toString(t.isVisible()), Field.Store.NO));
+        return doc;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        ready = false;
+        try {
+            if (searcherManager != null) searcherManager.close();
+            if (writer != null) writer.close();
+            if (directory != null) directory.close();
+        } catch (IOException e) {
+            System.err.println("Catalog index did not close cleanly: " + e.getMessage());
+        }
+    }
+}
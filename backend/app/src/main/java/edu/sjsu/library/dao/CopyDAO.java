@@ -1,18 +1,38 @@
 package edu.sjsu.library.dao;
 
+import edu.sjsu.library.models.BookRecord;
 import edu.sjsu.library.models.Copy;
+import edu.sjsu.library.models.CopyBatchRequest;
+import edu.sjsu.library.models.ResourceVersion;
+import edu.sjsu.library.models.User.UserRole;
+import edu.sjsu.library.models.User.UserStatus;
+import edu.sjsu.library.utils.ReadThroughCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class CopyDAO {
 
     private final JdbcTemplate jdbc;
+    private final ReadThroughCache<Integer, Copy> byId;
+    private final ReadThroughCache<String, Integer> idByBarcode;
 
-    public CopyDAO(JdbcTemplate jdbc) {
+    public CopyDAO(JdbcTemplate jdbc,
+                   @Value("${library.cache.enabled:true}") boolean cacheEnabled,
+                   @Value("${library.cache.max-size:10000}") long cacheMaxSize) {
         this.jdbc = jdbc;
+        this.byId = new ReadThroughCache<>("copiesById", cacheEnabled, cacheMaxSize, CopyDAO::copyOf);
+        this.idByBarcode = new ReadThroughCache<>("copyIdsByBarcode", cacheEnabled, cacheMaxSize, id -> id);
     }
 
     // Create table
@@ -24,35 +44,79 @@ public class CopyDAO {
                 barcode VARCHAR(100) UNIQUE NOT NULL,
                 status VARCHAR(20) NOT NULL,
                 location VARCHAR(100),
-                isvisible BOOLEAN NOT NULL
+                isvisible BOOLEAN NOT NULL,
+                version BIGINT NOT NULL DEFAULT 0,
+                updated_at TIMESTAMP NOT NULL DEFAULT now()
             )
             """;
         jdbc.execute(sql);
-    }
-
-    // Row mapper
-    private Copy mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {
-        return new Copy(
-            rs.getInt("copyid"),
-            rs.getInt("titleid"),
-            rs.getString("barcode"),
-            Copy.CopyStatus.valueOf(rs.getString("status").trim().toUpperCase()),
-            rs.getString("location"),
-            rs.getBoolean("isvisible")
-        );
+        jdbc.execute("CREATE SEQUENCE IF NOT EXISTS copy_barcode_seq START WITH 100000 CACHE 100");
+        // Change tracking for CatalogSync (migration 015).
+        jdbc.execute("ALTER TABLE copies ADD COLUMN IF NOT EXISTS change_xid xid8 NOT NULL DEFAULT pg_current_xact_id()");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_copies_change_xid ON copies (change_xid)");
     }
 
     // Get all copies
     public List<Copy> findAll() {
-        return jdbc.query("SELECT * FROM copies ORDER BY copyid", this::mapRow);
+        return jdbc.query("SELECT * FROM copies ORDER BY copyid", RowMappers.copy());
+    }
+
+    // Get one page of copies after a keyset cursor (copyid)
+    public List<Copy> findPage(int afterCopyId, int limit) {
+        return jdbc.query(
+            "SELECT * FROM copies WHERE copyid > ? ORDER BY copyid LIMIT ?",
+            RowMappers.copy(),
+            afterCopyId, limit
+        );
     }
 
     // Find by ID
+    // Cached: see ReadThroughCache.
     public Copy findById(int id) {
+        return byId.get(id, this::loadById);
+    }
+
+    private Copy loadById(int id) {
         try {
             return jdbc.queryForObject(
                 "SELECT * FROM copies WHERE copyid = ?",
-                this::mapRow,
+                RowMappers.copy(),
+                id
+            );
+        } catch (org.springframework.dao.EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    // Read-modify-write paths read through here instead of findById: never cached (the cache may lag a
+    // write made on another node) and the row stays locked until the transaction ends.
+    public Copy findByIdForUpdate(int id) {
+        try {
+            return jdbc.queryForObject(
+                "SELECT * FROM copies WHERE copyid = ? FOR UPDATE",
+                RowMappers.copy(),
+                id
+            );
+        } catch (org.springframework.dao.EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    // Drop a cached copy that another node changed or deleted (CatalogSync). Barcode mappings check
+    // themselves against the copy, so they need no eviction.
+    public void evictCached(int id) {
+        byId.invalidate(id);
+    }
+
+    // Version of a single copy, for ETags (null if no such copy).
+    public ResourceVersion findVersion(int id) {
+        try {
+            return jdbc.queryForObject(
+                "SELECT version, updated_at FROM copies WHERE copyid = ?",
+                (rs, n) -> new ResourceVersion(
+                    "copy:" + id + ":v" + rs.getLong("version"),
+                    rs.getTimestamp("updated_at").toLocalDateTime()
+                ),
                 id
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
@@ -64,17 +128,66 @@ public class CopyDAO {
     public List<Copy> findByTitle(int titleId) {
         return jdbc.query(
             "SELECT * FROM copies WHERE titleid = ? ORDER BY copyid",
-            this::mapRow,
+            RowMappers.copy(),
             titleId
         );
     }
 
+    // Count AVAILABLE copies for a whole list of titles in one query (titles with none are absent from the map).
+    // visibleOnly counts only visible copies of visible titles, so hidden titles look the same as missing ones.
+    public Map<Integer, Integer> countAvailableByTitles(List<Integer> titleIds, boolean visibleOnly) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        if (titleIds.isEmpty()) {
+            return counts;
+        }
+        String sql = """
+            SELECT c.titleid, COUNT(*) AS available
+            FROM copies c
+            JOIN titles t ON t.id = c.titleid
+            WHERE c.titleid = ANY(?)
+              AND c.status = 'AVAILABLE'
+              AND (? = FALSE OR (c.isvisible = TRUE AND t.isvisible = TRUE))
+            GROUP BY c.titleid
+            """;
+        jdbc.query(con -> {
+            var ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("integer", titleIds.toArray()));
+            ps.setBoolean(2, visibleOnly);
+            return ps;
+        }, (RowCallbackHandler) rs ->
+            counts.put(rs.getInt("titleid"), rs.getInt("available")));
+        return counts;
+    }
+
     // Find by barcode
+    // Cached as barcode -> copy ID, then served from the findById cache.
     public Copy findByBarcode(String barcode) {
+        Integer id = idByBarcode.get(barcode, this::loadIdByBarcode);
+        if (id == null) {
+            return null;
+        }
+        Copy copy = findById(id);
+        if (copy == null || !barcode.equals(copy.getBarcode())) {
+            // The copy was deleted or relabelled since the mapping was cached.
+            idByBarcode.invalidate(barcode);
+            return loadByBarcode(barcode);
+        }
+        return copy;
+    }
+
+    private Integer loadIdByBarcode(String barcode) {
+        try {
+            return jdbc.queryForObject("SELECT copyid FROM copies WHERE barcode = ?", Integer.class, barcode);
+        } catch (org.springframework.dao.EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    private Copy loadByBarcode(String barcode) {
         try {
             return jdbc.queryForObject(
                 "SELECT * FROM copies WHERE barcode = ?",
-                this::mapRow,
+                RowMappers.copy(),
                 barcode
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
@@ -82,14 +195,53 @@ public class CopyDAO {
         }
     }
 
-    // Insert a new copy
+    // Hit/miss counters for the findById / findByBarcode caches.
+    public List<ReadThroughCache<?, ?>> getCaches() {
+        return List.of(byId, idByBarcode);
+    }
+
+    private static Copy copyOf(Copy c) {
+        return new Copy(c.getCopyID(), c.getTitleID(), c.getBarcode(), c.getStatus(), c.getLocation(), c.isVisible());
+    }
+
+    // Shared tail for insert/update/delete: folds the rows of a "delta (titleid, status, n)" CTE
+    // into title_availability, so the counters change in the same statement as the copy itself.
+    private static final String APPLY_AVAILABILITY_DELTA = """
+        counters AS (
+            INSERT INTO title_availability AS ta (titleid, total, available, checked_out, reserved, other)
+            SELECT titleid,
+                   SUM(n),
+                   COALESCE(SUM(n) FILTER (WHERE status = 'AVAILABLE'), 0),
+                   COALESCE(SUM(n) FILTER (WHERE status = 'CHECKED_OUT'), 0),
+                   COALESCE(SUM(n) FILTER (WHERE status = 'RESERVED'), 0),
+                   COALESCE(SUM(n) FILTER (WHERE status NOT IN ('AVAILABLE', 'CHECKED_OUT', 'RESERVED')), 0)
+            FROM delta
+            GROUP BY titleid
+            ON CONFLICT (titleid) DO UPDATE SET
+                total = ta.total + EXCLUDED.total,
+                available = ta.available + EXCLUDED.available,
+                checked_out = ta.checked_out + EXCLUDED.checked_out,
+                reserved = ta.reserved + EXCLUDED.reserved,
+                other = ta.other + EXCLUDED.other
+        )
+        """;
+
+    // Insert a new copy (and count it in title_availability)
     public int insert(Copy c) {
+        String sql = """
+            WITH ins AS (
+                INSERT INTO copies (titleid, barcode, status, location, isvisible)
+                VALUES (?, ?, ?, ?, ?)
+                RETURNING copyid, titleid, status
+            ),
+            delta AS (
+                SELECT titleid, UPPER(TRIM(status)) AS status, 1 AS n FROM ins
+            ),
+            """ + APPLY_AVAILABILITY_DELTA + """
+            SELECT copyid FROM ins
+            """;
         Integer newId = jdbc.queryForObject(
-            """
-            INSERT INTO copies (titleid, barcode, status, location, isvisible)
-            VALUES (?, ?, ?, ?, ?)
-            RETURNING copyid
-            """,
+            sql,
             Integer.class,
             c.getTitleID(),
             c.getBarcode(),
@@ -100,25 +252,214 @@ public class CopyDAO {
         return newId;
     }
 
-    // Update an existing copy
+    // Insert many new AVAILABLE copies in one statement (and count them in title_availability).
+    // Each request line expands to "count" rows; barcodes come from copy_barcode_seq as LIB + 9 digits,
+    // so they are unique without a lookup per copy. Returns the new copies in copyid order.
+    public List<Copy> insertBatch(List<CopyBatchRequest> items) {
+        String sql = """
+            WITH req AS (
+                SELECT r.ord, r.titleid, r.n, r.location
+                FROM unnest(?::int[], ?::int[], ?::text[]) WITH ORDINALITY AS r(titleid, n, location, ord)
+            ),
+            ins AS (
+                INSERT INTO copies (titleid, barcode, status, location, isvisible)
+                SELECT req.titleid, 'LIB' || lpad(nextval('copy_barcode_seq')::text, 9, '0'), 'AVAILABLE', req.location, TRUE
+                FROM req
+                CROSS JOIN LATERAL generate_series(1, req.n) AS g(i)
+                ORDER BY req.ord, g.i
+                RETURNING copyid, titleid, barcode, status, location, isvisible
+            ),
+            delta AS (
+                SELECT titleid, status, COUNT(*)::int AS n FROM ins GROUP BY titleid, status
+            ),
+            """ + APPLY_AVAILABILITY_DELTA + """
+            SELECT * FROM ins ORDER BY copyid
+            """;
+        Integer[] titleIds = new Integer[items.size()];
+        Integer[] counts = new Integer[items.size()];
+        String[] locations = new String[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            titleIds[i] = items.get(i).getTitleID();
+            counts[i] = items.get(i).getCount();
+            locations[i] = items.get(i).getLocation();
+        }
+        return jdbc.query(
+            con -> {
+                var ps = con.prepareStatement(sql);
+                ps.setArray(1, con.createArrayOf("integer", titleIds));
+                ps.setArray(2, con.createArrayOf("integer", counts));
+                ps.setArray(3, con.createArrayOf("text", locations));
+                return ps;
+            },
+            RowMappers.copy()
+        );
+    }
+
+    // Update an existing copy (moving it between title_availability buckets if its title or status changed)
     public int update(Copy c) {
-        return jdbc.update(
-            """
-            UPDATE copies
-            SET titleid = ?, barcode = ?, status = ?, location = ?, isvisible = ?
-            WHERE copyid = ?
-            """,
+        String sql = """
+            WITH prev AS (
+                SELECT copyid, titleid, UPPER(TRIM(status)) AS status
+                FROM copies
+                WHERE copyid = ?
+                FOR UPDATE
+            ),
+            upd AS (
+                UPDATE copies cp
+                SET titleid = ?, barcode = ?, status = ?, location = ?, isvisible = ?,
+                    version = cp.version + 1, updated_at = now(),
+                    change_xid = pg_current_xact_id()
+                FROM prev
+                WHERE cp.copyid = prev.copyid
+                RETURNING cp.titleid, UPPER(TRIM(cp.status)) AS status,
+                          prev.titleid AS old_titleid, prev.status AS old_status
+            ),
+            delta AS (
+                SELECT old_titleid AS titleid, old_status AS status, -1 AS n FROM upd
+                WHERE (old_titleid, old_status) IS DISTINCT FROM (titleid, status)
+                UNION ALL
+                SELECT titleid, status, 1 AS n FROM upd
+                WHERE (old_titleid, old_status) IS DISTINCT FROM (titleid, status)
+            ),
+            """ + APPLY_AVAILABILITY_DELTA + """
+            SELECT COUNT(*) FROM upd
+            """;
+        Integer rows = jdbc.queryForObject(
+            sql,
+            Integer.class,
+            c.getCopyID(),
             c.getTitleID(),
             c.getBarcode(),
             c.getStatus().name(),
             c.getLocation(),
-            c.isVisible(),
-            c.getCopyID()
+            c.isVisible()
         );
+        byId.invalidate(c.getCopyID());
+        idByBarcode.invalidate(c.getBarcode());
+        return rows;
+    }
+
+    // Outcome of checkOut: the new loan, or (when loan is null) what the statement saw, to explain why.
+    // copyId is null when no copy has the barcode. checkOut itself returns null when the user doesn't exist.
+    public record CheckoutAttempt(BookRecord loan, Integer copyId, String copyStatus, UserStatus userStatus,
+                                  UserRole userRole, int activeLoans, BigDecimal unpaidFines) {
     }
 
-    // Delete copy by ID
+    /**
+     * Checks a copy out in one statement: the copy flips AVAILABLE -> CHECKED_OUT only if it is still
+     * AVAILABLE, the user is an ACTIVE MEMBER and under both limits (all read from the users row here,
+     * never from a session snapshot), the loan row is inserted from that same UPDATE's
+     * RETURNING, title_availability moves one copy between buckets and title_loan_counts goes up by
+     * one. Two members scanning the same copy at once can't both get it: the second UPDATE waits on
+     * the row lock, re-checks the status and matches nothing, so no loan is inserted for it.
+     * One member scanning several copies at once is serialized on their users row instead (see below),
+     * so the loan limit holds. Must run inside the caller's transaction, which keeps that lock.
+     */
+    public CheckoutAttempt checkOut(String barcode, int userId, LocalDateTime checkoutDate, LocalDateTime dueDate,
+                                    int maxActiveLoans, BigDecimal maxUnpaidFines) {
+        // Lock the member first, in its own statement: a FOR UPDATE inside the member CTE would wait for
+        // a concurrent checkout but then count active loans from this statement's older snapshot and
+        // miss the loan that checkout just added. The statement below starts after the lock is held,
+        // so under READ COMMITTED it sees every loan committed before it.
+        jdbc.queryForList("SELECT id FROM users WHERE id = ? FOR UPDATE", Integer.class, userId);
+
+        String sql = """
+            WITH member AS (
+            """ + BookRecordDAO.ELIGIBILITY + """
+            ),
+            target AS (
+                SELECT copyid, UPPER(TRIM(status)) AS status FROM copies WHERE barcode = ?
+            ),
+            upd AS (
+                UPDATE copies cp
+                SET status = 'CHECKED_OUT', version = cp.version + 1, updated_at = now(),
+                    change_xid = pg_current_xact_id()
+                FROM member m
+                WHERE cp.barcode = ?
+                  AND UPPER(TRIM(cp.status)) = 'AVAILABLE'
+                  AND UPPER(TRIM(m.status)) = 'ACTIVE'
+                  AND UPPER(TRIM(m.role)) = 'MEMBER'
+                  AND m.active_loans < ?
+                  AND m.unpaid_fines <= ?
+                RETURNING cp.copyid, cp.titleid
+            ),
+            loan AS (
+                INSERT INTO book_records (copyid, userid, checkoutdate, duedate, returndate, renewcount)
+                SELECT copyid, ?, ?, ?, NULL, 0 FROM upd
+                RETURNING loanid, copyid, userid, checkoutdate, duedate, returndate, renewcount
+            ),
+            loan_count AS (
+                INSERT INTO title_loan_counts AS lc (titleid, loans)
+                SELECT titleid, 1 FROM upd
+                ON CONFLICT (titleid) DO UPDATE SET loans = lc.loans + 1
+            ),
+            delta AS (
+                SELECT titleid, 'AVAILABLE' AS status, -1 AS n FROM upd
+                UNION ALL
+                SELECT titleid, 'CHECKED_OUT' AS status, 1 AS n FROM upd
+            ),
+            """ + APPLY_AVAILABILITY_DELTA + """
+            SELECT t.copyid AS target_copyid, t.status AS target_status,
+                   m.status AS user_status, m.role AS user_role, m.active_loans, m.unpaid_fines, l.*
+            FROM member m
+            LEFT JOIN target t ON TRUE
+            LEFT JOIN loan l ON TRUE
+            """;
+        RowMapper<BookRecord> loans = RowMappers.bookRecord();
+        List<CheckoutAttempt> found = jdbc.query(
+            sql,
+            (rs, n) -> {
+                rs.getInt("loanid");
+                BookRecord loan = rs.wasNull() ? null : loans.mapRow(rs, n);
+                Integer copyId = rs.getObject("target_copyid", Integer.class);
+                return new CheckoutAttempt(
+                    loan,
+                    copyId,
+                    rs.getString("target_status"),
+                    UserStatus.valueOf(rs.getString("user_status").trim().toUpperCase()),
+                    UserRole.valueOf(rs.getString("user_role").trim().toUpperCase()),
+                    rs.getInt("active_loans"),
+                    rs.getBigDecimal("unpaid_fines")
+                );
+            },
+            userId,
+            barcode,
+            barcode,
+            maxActiveLoans,
+            maxUnpaidFines,
+            userId,
+            Timestamp.valueOf(checkoutDate),
+            Timestamp.valueOf(dueDate)
+        );
+        if (found.isEmpty()) {
+            return null;
+        }
+        CheckoutAttempt attempt = found.get(0);
+        if (attempt.loan() != null) {
+            byId.invalidate(attempt.loan().getCopyID());
+        }
+        return attempt;
+    }
+
+    // Delete copy by ID (and stop counting it in title_availability). The tombstone in deleted_rows
+    // tells other nodes to drop their cached copy (CatalogSync).
     public int delete(int id) {
-        return jdbc.update("DELETE FROM copies WHERE copyid = ?", id);
+        String sql = """
+            WITH del AS (
+                DELETE FROM copies WHERE copyid = ?
+                RETURNING copyid, titleid, status
+            ),
+            tombstone AS (
+                INSERT INTO deleted_rows (tablename, id) SELECT 'copies', copyid FROM del
+            ),
+            delta AS (
+                SELECT titleid, UPPER(TRIM(status)) AS status, -1 AS n FROM del
+            ),
+            """ + APPLY_AVAILABILITY_DELTA + """
+            SELECT COUNT(*) FROM del
+            """;
+        Integer rows = jdbc.queryForObject(sql, Integer.class, id);
+        byId.invalidate(id);
+        return rows;
     }
 }
@@ -0,0 +1,130 @@
+/*
+    Daily overdue fines, computed in SQL (see migrations/011_fine_accrual.sql).
+
+    Every overdue day of a loan is one row in fine_accruals, keyed by (loanid, accrualdate), so
+    accruing the same day twice is a no-op. The amounts of newly accrued days are added to the
+    loan's open accrual fine: one UNPAID fines row per loan (fines.accrual = TRUE) that grows each
+    night. Once a member pays it, the next accrued day starts a new one.
+
+    A loan accrues library.fines.daily-rate for each calendar day after its due date, up to
+    library.fines.max-accrual-days days.
+*/
+package edu.sjsu.library.dao;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+
+@Repository
+public class FineAccrualDAO {
+
+    private final JdbcTemplate jdbc;
+    private final BigDecimal dailyRate;
+    private final int maxAccrualDays;
+
+    public FineAccrualDAO(JdbcTemplate jdbc,
+                          @Value("${library.fines.daily-rate:0.25}") BigDecimal dailyRate,
+                          @Value("${library.fines.max-accrual-days:120}") int maxAccrualDays) {
+        this.jdbc = jdbc;
+        this.dailyRate = dailyRate;
+        this.maxAccrualDays = maxAccrualDays;
+    }
+
+    public void createTable() {
+        jdbc.execute("""
+            CREATE TABLE IF NOT EXISTS fine_accruals (
+                loanid INTEGER NOT NULL,
+                accrualdate DATE NOT NULL,
+                userid INTEGER NOT NULL,
+                amount NUMERIC(10,2) NOT NULL,
+                PRIMARY KEY (loanid, accrualdate)
+            )
+            """);
+    }
+
+    // What one accrual statement did. lastLoanId is the keyset cursor for the next chunk (null when done).
+    public record Chunk(Integer lastLoanId, int loans, int accruedDays, int finesTouched) {
+    }
+
+    // Shared tail: given a "chunk (loanid, userid, duedate, lastday)" CTE, records each overdue day
+    // from the day after duedate through lastday, and adds the new days to each loan's open fine.
+    private static final String ACCRUE = """
+        days AS (
+            SELECT c.loanid, c.userid, d::date AS accrualdate
+            FROM chunk c
+            CROSS JOIN LATERAL generate_series(c.duedate::date + 1, LEAST(c.lastday, c.duedate::date + ?), INTERVAL '1 day') AS d
+        ),
+        accrued AS (
+            INSERT INTO fine_accruals (loanid, accrualdate, userid, amount)
+            SELECT loanid, accrualdate, userid, ? FROM days
+            ON CONFLICT (loanid, accrualdate) DO NOTHING
+            RETURNING loanid, userid, amount
+        ),
+        per_loan AS (
+            SELECT loanid, userid, SUM(amount) AS amount FROM accrued GROUP BY loanid, userid
+        ),
+        fined AS (
+            INSERT INTO fines AS f (userid, loanid, amount, finedate, reason, status, accrual)
+            SELECT userid, loanid, amount, now(), 'System generated fine: Overdue - accrued daily.', 'UNPAID', TRUE
+            FROM per_loan
+            ON CONFLICT (loanid) WHERE accrual AND status = 'UNPAID'
+            DO UPDATE SET amount = f.amount + EXCLUDED.amount, finedate = EXCLUDED.finedate
+            RETURNING f.id
+        )
+        SELECT (SELECT MAX(loanid) FROM chunk) AS last_loanid,
+               (SELECT COUNT(*) FROM chunk)::int AS loans,
+               (SELECT COUNT(*) FROM accrued)::int AS accrued_days,
+               (SELECT COUNT(*) FROM fined)::int AS fines
+        """;
+
+    // Accrue every day up to asOf for the next limit unreturned overdue loans after afterLoanId.
+    // One statement, so each chunk commits on its own.
+    public Chunk accrueOverdue(LocalDate asOf, int afterLoanId, int limit) {
+        String sql = """
+            WITH chunk AS (
+                SELECT loanid, userid, duedate, ?::date AS lastday
+                FROM book_records
+                WHERE returndate IS NULL AND duedate < ? AND loanid > ?
+                ORDER BY loanid
+                LIMIT ?
+            ),
+            """ + ACCRUE;
+        return jdbc.queryForObject(
+            sql,
+            (rs, n) -> {
+                int last = rs.getInt("last_loanid");
+                return new Chunk(rs.wasNull() ? null : last, rs.getInt("loans"), rs.getInt("accrued_days"), rs.getInt("fines"));
+            },
+            Date.valueOf(asOf),
+            Date.valueOf(asOf),
+            afterLoanId,
+            limit,
+            maxAccrualDays,
+            dailyRate
+        );
+    }
+
+    // Accrue the remaining days of one loan through its return date (called when a late book comes back).
+    // Returns the number of days newly accrued.
+    public int accrueReturnedLoan(int loanId, LocalDate returnDate) {
+        String sql = """
+            WITH chunk AS (
+                SELECT loanid, userid, duedate, ?::date AS lastday
+                FROM book_records
+                WHERE loanid = ?
+            ),
+            """ + ACCRUE;
+        return jdbc.queryForObject(
+            sql,
+            (rs, n) -> rs.getInt("accrued_days"),
+            Date.valueOf(returnDate),
+            loanId,
+            maxAccrualDays,
+            dailyRate
+        );
+    }
+}
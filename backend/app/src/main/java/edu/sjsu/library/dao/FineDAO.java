@@ -2,11 +2,16 @@ package edu.sjsu.library.dao;
 
 import edu.sjsu.library.models.Fine;
 import edu.sjsu.library.models.Fine.FineStatus;
+import edu.sjsu.library.utils.ExportWriter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 public class FineDAO {
@@ -26,33 +31,47 @@ public class FineDAO {
                 amount NUMERIC(10,2) NOT NULL,
                 finedate TIMESTAMP NOT NULL,
                 reason VARCHAR(255) NOT NULL,
-                status VARCHAR(20) NOT NULL
+                status VARCHAR(20) NOT NULL,
+                accrual BOOLEAN NOT NULL DEFAULT FALSE
             )
             """;
         jdbc.execute(sql);
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_fines_unpaid_by_user ON fines (userid) INCLUDE (amount) WHERE status = 'UNPAID'");
+        jdbc.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_fines_open_accrual ON fines (loanid) WHERE accrual AND status = 'UNPAID'");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_fines_loan ON fines (loanid) INCLUDE (amount, status)");
     }
 
-    private Fine mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {
-        return new Fine(
-            rs.getInt("id"),
-            rs.getInt("userid"),
-            rs.getInt("loanid"),
-            rs.getBigDecimal("amount"),
-            rs.getTimestamp("finedate").toLocalDateTime(),
-            rs.getString("reason"),
-            FineStatus.valueOf(rs.getString("status").trim().toUpperCase())
+    public List<Fine> findAll() {
+        return jdbc.query("SELECT * FROM fines ORDER BY id", RowMappers.fine());
+    }
+
+    // Stream every fine to the sink in id order through a server-side cursor (Fine export).
+    // Only one fetch batch is held in memory; the caller must be inside a transaction for the cursor to be used.
+    public void streamAll(Consumer<Fine> sink) {
+        RowMapper<Fine> mapper = RowMappers.fine();
+        jdbc.query(
+            con -> {
+                PreparedStatement ps = con.prepareStatement("SELECT * FROM fines ORDER BY id");
+                ps.setFetchSize(ExportWriter.FETCH_SIZE);
+                return ps;
+            },
+            (RowCallbackHandler) rs -> sink.accept(mapper.mapRow(rs, 0))
         );
     }
 
-    public List<Fine> findAll() {
-        return jdbc.query("SELECT * FROM fines ORDER BY id", this::mapRow);
+    public List<Fine> findPage(int afterId, int limit) {
+        return jdbc.query(
+            "SELECT * FROM fines WHERE id > ? ORDER BY id LIMIT ?",
+            RowMappers.fine(),
+            afterId, limit
+        );
     }
 
     public Fine findById(int id) {
         try {
             return jdbc.queryForObject(
                 "SELECT * FROM fines WHERE id = ?",
-                this::mapRow,
+                RowMappers.fine(),
                 id
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
@@ -63,7 +82,7 @@ public class FineDAO {
     public List<Fine> findByUser(int userId) {
         return jdbc.query(
             "SELECT * FROM fines WHERE userid = ? ORDER BY finedate DESC",
-            this::mapRow,
+            RowMappers.fine(),
             userId
         );
     }
@@ -71,7 +90,7 @@ public class FineDAO {
     public List<Fine> findByUserAndStatus(int userId, FineStatus status) {
         return jdbc.query(
             "SELECT * FROM fines WHERE userid = ? AND status = ? ORDER BY finedate DESC",
-            this::mapRow,
+            RowMappers.fine(),
             userId,
             status.name()
         );
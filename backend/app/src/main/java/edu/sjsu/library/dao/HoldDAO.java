@@ -1,11 +1,26 @@
+/*
+    Hold queues (see migrations/013_hold_queue_keys.sql).
+
+    The holds.position column stores a queue key, not a queue position: each new hold takes the
+    next value of hold_queue_seq, and the key never changes afterwards. A hold's position (1 = next
+    to be served) is its row_number() among the title's active (QUEUED/READY) holds in key order,
+    computed when the hold is read. Cancelling, picking up or expiring a hold is one row write;
+    the holds behind it move up without being touched. Holds that are no longer active read as
+    position 0.
+*/
 package edu.sjsu.library.dao;
 
 import edu.sjsu.library.models.Hold;
+import edu.sjsu.library.utils.ExportWriter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 public class HoldDAO {
@@ -27,42 +42,73 @@ public class HoldDAO {
                 placedat TIMESTAMP NOT NULL,
                 readyat TIMESTAMP NULL,
                 pickupexpire TIMESTAMP NULL,
-                position INTEGER NOT NULL
+                position INTEGER NOT NULL DEFAULT nextval('hold_queue_seq')
             )
             """;
+        jdbc.execute("CREATE SEQUENCE IF NOT EXISTS hold_queue_seq");
         jdbc.execute(sql);
+        jdbc.execute("ALTER TABLE holds ALTER COLUMN position SET DEFAULT nextval('hold_queue_seq')");
+        jdbc.execute("ALTER SEQUENCE hold_queue_seq OWNED BY holds.position");
+        // New keys must sort after every key already stored (positions from before migration 013).
+        jdbc.queryForObject(
+            "SELECT setval('hold_queue_seq', GREATEST(MAX(position), (SELECT last_value FROM hold_queue_seq))) FROM holds",
+            Long.class
+        );
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_holds_queue ON holds (titleid, position, id) WHERE status IN ('QUEUED', 'READY')");
     }
 
-    private Hold mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {
-        // Handle nullable copyid
-        Integer copyId = rs.getObject("copyid") != null ? rs.getInt("copyid") : null;
-        
-        return new Hold(
-            rs.getInt("id"),
-            rs.getInt("userid"),
-            rs.getInt("titleid"),
-            copyId,
-            Hold.HoldStatus.valueOf(rs.getString("status").trim().toUpperCase()),
-            rs.getTimestamp("placedat").toLocalDateTime(),
-            rs.getTimestamp("readyat") != null ? rs.getTimestamp("readyat").toLocalDateTime() : null,
-            rs.getTimestamp("pickupexpire") != null ? rs.getTimestamp("pickupexpire").toLocalDateTime() : null,
-            rs.getInt("position")
-        );
+    // Holds with their computed queue position. %s is a subquery (or parameter) naming the titles
+    // to rank, so only the queues a query actually touches are read.
+    private static final String RANKED = """
+        SELECT h.id, h.userid, h.titleid, h.copyid, h.status, h.placedat, h.readyat, h.pickupexpire,
+               COALESCE(q.position, 0) AS position
+        FROM holds h
+        LEFT JOIN (
+            SELECT id, row_number() OVER (PARTITION BY titleid ORDER BY position, id)::int AS position
+            FROM holds
+            WHERE status IN ('QUEUED', 'READY') AND titleid IN (%s)
+        ) q ON q.id = h.id
+        """;
+
+    private static String ranked(String titles) {
+        return RANKED.formatted(titles);
     }
 
     public List<Hold> findAll() {
         return jdbc.query(
-            "SELECT * FROM holds ORDER BY id",
-            this::mapRow
+            ranked("SELECT titleid FROM holds") + " ORDER BY h.id",
+            RowMappers.hold()
+        );
+    }
+
+    // Stream every hold to the sink in id order through a server-side cursor (Hold export).
+    // Only one fetch batch is held in memory; the caller must be inside a transaction for the cursor to be used.
+    public void streamAll(Consumer<Hold> sink) {
+        RowMapper<Hold> mapper = RowMappers.hold();
+        jdbc.query(
+            con -> {
+                PreparedStatement ps = con.prepareStatement(ranked("SELECT titleid FROM holds") + " ORDER BY h.id");
+                ps.setFetchSize(ExportWriter.FETCH_SIZE);
+                return ps;
+            },
+            (RowCallbackHandler) rs -> sink.accept(mapper.mapRow(rs, 0))
+        );
+    }
+
+    public List<Hold> findPage(int afterId, int limit) {
+        return jdbc.query(
+            ranked("SELECT titleid FROM holds WHERE id > ? ORDER BY id LIMIT ?") + " WHERE h.id > ? ORDER BY h.id LIMIT ?",
+            RowMappers.hold(),
+            afterId, limit, afterId, limit
         );
     }
 
     public Hold findById(int id) {
         try {
             return jdbc.queryForObject(
-                "SELECT * FROM holds WHERE id = ?",
-                this::mapRow,
-                id
+                ranked("SELECT titleid FROM holds WHERE id = ?") + " WHERE h.id = ?",
+                RowMappers.hold(),
+                id, id
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
             return null;
@@ -71,17 +117,19 @@ public class HoldDAO {
 
     public List<Hold> findByUser(int userId) {
         return jdbc.query(
-            "SELECT * FROM holds WHERE userid = ? ORDER BY position",
-            this::mapRow,
-            userId
+            ranked("SELECT titleid FROM holds WHERE userid = ?") + " WHERE h.userid = ? ORDER BY position, h.id",
+            RowMappers.hold(),
+            userId, userId
         );
     }
 
+    // The hold goes to the back of its title's queue: position is filled from hold_queue_seq,
+    // whatever h.getPosition() says.
     public int insert(Hold h) {
         Integer newId = jdbc.queryForObject(
             """
-            INSERT INTO holds (userid, titleid, copyid, status, placedat, readyat, pickupexpire, position)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            INSERT INTO holds (userid, titleid, copyid, status, placedat, readyat, pickupexpire)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
             RETURNING id
             """,
             Integer.class,
@@ -91,18 +139,18 @@ public class HoldDAO {
             h.getStatus().name(),
             Timestamp.valueOf(h.getPlacedAt()),
             h.getReadyAt() != null ? Timestamp.valueOf(h.getReadyAt()) : null,
-            h.getPickupExpire() != null ? Timestamp.valueOf(h.getPickupExpire()) : null,
-            h.getPosition()
+            h.getPickupExpire() != null ? Timestamp.valueOf(h.getPickupExpire()) : null
         );
         return newId;
     }
 
+    // Leaves the queue key alone, so a status change never moves any other hold.
     public int update(Hold h) {
         return jdbc.update(
             """
             UPDATE holds
             SET userid = ?, titleid = ?, copyid = ?, status = ?,
-                placedat = ?, readyat = ?, pickupexpire = ?, position = ?
+                placedat = ?, readyat = ?, pickupexpire = ?
             WHERE id = ?
             """,
             h.getUserID(),
@@ -112,7 +160,6 @@ public class HoldDAO {
             Timestamp.valueOf(h.getPlacedAt()),
             h.getReadyAt() != null ? Timestamp.valueOf(h.getReadyAt()) : null,
             h.getPickupExpire() != null ? Timestamp.valueOf(h.getPickupExpire()) : null,
-            h.getPosition(),
             h.getHoldID()
         );
     }
@@ -121,27 +168,23 @@ public class HoldDAO {
         return jdbc.update("DELETE FROM holds WHERE id = ?", id);
     }
 
-    // Get the next position in queue for a title.
+    // Get the position a new hold for a title would have (one behind the active holds).
     public int getNextPosition(int titleID) {
-        try {
-            Integer maxPosition = jdbc.queryForObject(
-                "SELECT MAX(position) FROM holds WHERE titleid = ? AND status IN ('QUEUED', 'READY')",
-                Integer.class,
-                titleID
-            );
-            return maxPosition != null ? maxPosition + 1 : 1;
-        } catch (Exception e) {
-            return 1; // First hold for this title
-        }
+        Integer active = jdbc.queryForObject(
+            "SELECT COUNT(*)::int FROM holds WHERE titleid = ? AND status IN ('QUEUED', 'READY')",
+            Integer.class,
+            titleID
+        );
+        return active + 1;
     }
 
     // Find active hold by user and title.
     public Hold findActiveHoldByUserAndTitle(int userID, int titleID) {
         try {
             return jdbc.queryForObject(
-                "SELECT * FROM holds WHERE userid = ? AND titleid = ? AND status IN ('QUEUED', 'READY')",
-                this::mapRow,
-                userID, titleID
+                ranked("?") + " WHERE h.userid = ? AND h.titleid = ? AND h.status IN ('QUEUED', 'READY')",
+                RowMappers.hold(),
+                titleID, userID, titleID
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
             return null;
@@ -152,47 +195,48 @@ public class HoldDAO {
     public Hold findNextHoldForTitle(int titleID) {
         try {
             return jdbc.queryForObject(
-                "SELECT * FROM holds WHERE titleid = ? AND status = 'QUEUED' ORDER BY position LIMIT 1",
-                this::mapRow,
-                titleID
+                ranked("?") + " WHERE h.titleid = ? AND h.status = 'QUEUED' ORDER BY h.position, h.id LIMIT 1",
+                RowMappers.hold(),
+                titleID, titleID
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
             return null;
         }
     }
 
-    // Find holds by title.
+    // Find holds by title: the queue in order, then inactive holds.
     public List<Hold> findByTitle(int titleID) {
         return jdbc.query(
-            "SELECT * FROM holds WHERE titleid = ? ORDER BY position",
-            this::mapRow,
-            titleID
+            ranked("?") + " WHERE h.titleid = ? ORDER BY q.position NULLS LAST, h.id",
+            RowMappers.hold(),
+            titleID, titleID
         );
     }
 
     // Find holds by title ordered by position (only looks at active holds).
     public List<Hold> findByTitleOrderedByPosition(int titleID) {
         return jdbc.query(
-            "SELECT * FROM holds WHERE titleid = ? AND status IN ('QUEUED', 'READY') ORDER BY position",
-            this::mapRow,
-            titleID
+            ranked("?") + " WHERE h.titleid = ? AND h.status IN ('QUEUED', 'READY') ORDER BY position",
+            RowMappers.hold(),
+            titleID, titleID
         );
     }
 
     // Find expired holds.
     public List<Hold> findExpiredHolds() {
         return jdbc.query(
-            "SELECT * FROM holds WHERE status = 'READY' AND pickupexpire < NOW()",
-            this::mapRow
+            ranked("SELECT titleid FROM holds WHERE status = 'READY' AND pickupexpire < NOW()")
+                + " WHERE h.status = 'READY' AND h.pickupexpire < NOW()",
+            RowMappers.hold()
         );
     }
 
     // Find holds by copy (to check if copy is referenced by any hold).
     public List<Hold> findByCopy(int copyID) {
         return jdbc.query(
-            "SELECT * FROM holds WHERE copyid = ?",
-            this::mapRow,
-            copyID
+            ranked("SELECT titleid FROM holds WHERE copyid = ?") + " WHERE h.copyid = ?",
+            RowMappers.hold(),
+            copyID, copyID
         );
     }
 
@@ -200,9 +244,10 @@ public class HoldDAO {
     public Hold findActiveHoldByCopy(int copyID) {
         try {
             return jdbc.queryForObject(
-                "SELECT * FROM holds WHERE copyid = ? AND status IN ('QUEUED', 'READY') LIMIT 1",
-                this::mapRow,
-                copyID
+                ranked("SELECT titleid FROM holds WHERE copyid = ?")
+                    + " WHERE h.copyid = ? AND h.status IN ('QUEUED', 'READY') LIMIT 1",
+                RowMappers.hold(),
+                copyID, copyID
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
             return null;
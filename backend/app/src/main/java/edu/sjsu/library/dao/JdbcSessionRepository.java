@@ -0,0 +1,312 @@
+/*
+    HTTP sessions stored in Postgres (UNLOGGED table http_sessions), so every node behind the load
+    balancer sees the same logins without sticky sessions. Active when library.session.store=jdbc
+    (see utils/SessionStoreConfig); otherwise the servlet container's in-memory sessions are used.
+
+    Writes:
+    - A session whose attributes, timeout or ID changed is written in full when the request ends.
+    - A session that was only read (the common case) just has its last access time advanced. Those
+      touches are queued in memory and written in one JDBC batch every library.session.touch-flush-ms,
+      so there is no write per request. Expiry is therefore only as precise as the flush interval.
+    - Expired rows are deleted every library.session.cleanup-ms (after flushing this node's touches).
+
+    Attributes are stored as one Java-serialized blob; only JDK value types and this application's
+    own classes (USER_ID, UserPrincipal) are accepted when reading it back.
+*/
+package edu.sjsu.library.dao;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.stereotype.Repository;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+@ConditionalOnProperty(name = "library.session.store", havingValue = "jdbc")
+public class JdbcSessionRepository implements SessionRepository<JdbcSessionRepository.JdbcSession> {
+
+    private static final ObjectInputFilter ATTRIBUTE_FILTER = ObjectInputFilter.Config.createFilter(
+            "java.lang.*;java.util.*;java.time.*;java.math.*;edu.sjsu.library.**;!*");
+
+    private final JdbcTemplate jdbc;
+    private final Duration defaultMaxInactive;
+
+    // Session ID -> newest last-access time (epoch ms) not yet written.
+    private final Map<String, Long> pendingTouches = new ConcurrentHashMap<>();
+
+    public JdbcSessionRepository(JdbcTemplate jdbc,
+                                 @Value("${server.servlet.session.timeout:30m}") Duration defaultMaxInactive) {
+        this.jdbc = jdbc;
+        this.defaultMaxInactive = defaultMaxInactive;
+    }
+
+    public void createTable() {
+        jdbc.execute("""
+            CREATE UNLOGGED TABLE IF NOT EXISTS http_sessions (
+                session_id TEXT PRIMARY KEY,
+                creation_time BIGINT NOT NULL,
+                last_access_time BIGINT NOT NULL,
+                max_inactive_seconds INT NOT NULL,
+                expiry_time BIGINT NOT NULL,
+                attributes BYTEA NOT NULL
+            )
+            """);
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_http_sessions_expiry ON http_sessions (expiry_time)");
+    }
+
+    @Override
+    public JdbcSession createSession() {
+        MapSession session = new MapSession();
+        session.setMaxInactiveInterval(defaultMaxInactive);
+        return new JdbcSession(session, null);
+    }
+
+    @Override
+    public void save(JdbcSession session) {
+        if (session.storedId != null && !session.changed) {
+            // Only touched: queue the new last access time for the next batch.
+            pendingTouches.merge(session.getId(), session.getLastAccessedTime().toEpochMilli(), Math::max);
+            return;
+        }
+
+        if (session.storedId != null && !session.storedId.equals(session.getId())) {
+            jdbc.update("UPDATE http_sessions SET session_id = ? WHERE session_id = ?", session.getId(), session.storedId);
+            Long touch = pendingTouches.remove(session.storedId);
+            if (touch != null) {
+                pendingTouches.merge(session.getId(), touch, Math::max);
+            }
+        }
+
+        long lastAccess = session.getLastAccessedTime().toEpochMilli();
+        jdbc.update(
+            """
+            INSERT INTO http_sessions (session_id, creation_time, last_access_time, max_inactive_seconds, expiry_time, attributes)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (session_id) DO UPDATE
+               SET last_access_time = GREATEST(http_sessions.last_access_time, EXCLUDED.last_access_time),
+                   max_inactive_seconds = EXCLUDED.max_inactive_seconds,
+                   expiry_time = GREATEST(http_sessions.expiry_time, EXCLUDED.expiry_time),
+                   attributes = EXCLUDED.attributes
+            """,
+            session.getId(),
+            session.getCreationTime().toEpochMilli(),
+            lastAccess,
+            (int) session.getMaxInactiveInterval().toSeconds(),
+            expiryTime(lastAccess, session.getMaxInactiveInterval()),
+            serialize(session)
+        );
+        session.storedId = session.getId();
+        session.changed = false;
+    }
+
+    @Override
+    public JdbcSession findById(String id) {
+        List<JdbcSession> found = jdbc.query(
+            "SELECT creation_time, last_access_time, max_inactive_seconds, attributes FROM http_sessions WHERE session_id = ?",
+            (rs, n) -> {
+                MapSession session = new MapSession(id);
+                session.setCreationTime(Instant.ofEpochMilli(rs.getLong("creation_time")));
+                session.setMaxInactiveInterval(Duration.ofSeconds(rs.getInt("max_inactive_seconds")));
+                deserialize(rs.getBytes("attributes")).forEach(session::setAttribute);
+                // This node may have seen a later access than the table has so far.
+                long lastAccess = Math.max(rs.getLong("last_access_time"), pendingTouches.getOrDefault(id, 0L));
+                session.setLastAccessedTime(Instant.ofEpochMilli(lastAccess));
+                return new JdbcSession(session, id);
+            },
+            id
+        );
+        if (found.isEmpty()) {
+            return null;
+        }
+        JdbcSession session = found.get(0);
+        if (session.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return session;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        pendingTouches.remove(id);
+        jdbc.update("DELETE FROM http_sessions WHERE session_id = ?", id);
+    }
+
+    // Writes all queued touches in one batch. A touch only ever moves a session's times forward.
+    @Scheduled(fixedDelayString = "${library.session.touch-flush-ms:10000}")
+    public void flushTouches() {
+        if (pendingTouches.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(pendingTouches.size());
+        for (Map.Entry<String, Long> e : pendingTouches.entrySet()) {
+            if (pendingTouches.remove(e.getKey(), e.getValue())) {
+                batch.add(new Object[] { e.getValue(), e.getValue(), e.getKey() });
+            }
+        }
+        try {
+            jdbc.batchUpdate(
+                """
+                UPDATE http_sessions
+                   SET last_access_time = GREATEST(last_access_time, ?),
+                       expiry_time = CASE WHEN max_inactive_seconds < 0 THEN expiry_time
+                                          ELSE GREATEST(expiry_time, ? + max_inactive_seconds * 1000::bigint) END
+                 WHERE session_id = ?
+                """,
+                batch
+            );
+        } catch (RuntimeException e) {
+            // Put them back for the next flush (a newer touch for the same session wins).
+            for (Object[] row : batch) {
+                pendingTouches.merge((String) row[2], (Long) row[0], Math::max);
+            }
+            System.err.println("Session touch flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${library.session.cleanup-ms:60000}")
+    public void deleteExpired() {
+        flushTouches();
+        try {
+            int deleted = jdbc.update("DELETE FROM http_sessions WHERE expiry_time < ?", System.currentTimeMillis());
+            if (deleted > 0) {
+                System.out.println("Deleted " + deleted + " expired session(s).");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Expired session cleanup failed: " + e.getMessage());
+        }
+    }
+
+    // Don't lose this node's touches on a graceful shutdown.
+    @PreDestroy
+    public void shutdown() {
+        flushTouches();
+    }
+
+    private static long expiryTime(long lastAccess, Duration maxInactive) {
+        return maxInactive.isNegative() ? Long.MAX_VALUE : lastAccess + maxInactive.toMillis();
+    }
+
+    private static byte[] serialize(JdbcSession session) {
+        HashMap<String, Object> attributes = new HashMap<>();
+        for (String name : session.getAttributeNames()) {
+            attributes.put(name, session.getAttribute(name));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(attributes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Session attributes are not serializable: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> deserialize(byte[] data) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            in.setObjectInputFilter(ATTRIBUTE_FILTER);
+            return (Map<String, Object>) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            // Unreadable (e.g. written by an incompatible version): treat as logged out.
+            System.err.println("Discarding unreadable session attributes: " + e.getMessage());
+            return Map.of();
+        }
+    }
+
+    // A MapSession that remembers whether anything but its last access time changed since it was loaded.
+    public static final class JdbcSession implements Session {
+        private final MapSession delegate;
+        private String storedId;    // ID of the row in the table; null until first saved.
+        private boolean changed;
+
+        JdbcSession(MapSession delegate, String storedId) {
+            this.delegate = delegate;
+            this.storedId = storedId;
+            this.changed = storedId == null;
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            changed = true;
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String name) {
+            return delegate.getAttribute(name);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            changed = true;
+            delegate.setAttribute(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            changed = true;
+            delegate.removeAttribute(name);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            delegate.setLastAccessedTime(lastAccessedTime);
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            changed = true;
+            delegate.setMaxInactiveInterval(interval);
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return delegate.isExpired();
+        }
+    }
+}
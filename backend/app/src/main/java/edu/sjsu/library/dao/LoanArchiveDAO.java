@@ -0,0 +1,115 @@
+/*
+    Partition upkeep and archival for loan records (see migrations/010_partition_book_records.sql).
+
+    book_records and book_records_archive are both range-partitioned by checkoutdate, one partition
+    per year plus a DEFAULT partition that catches anything without one. ensureYearPartition adds a
+    year: any rows for that year already sitting in the DEFAULT partition are moved into the new
+    table first, then it is attached. Archive partitions are ordinary heap tables like the live
+    ones: archiving keeps book_records small, it does not compress the rows it moves.
+
+    If book_records is still an unpartitioned table (migration 010 not applied yet) partitions are
+    skipped, but archiving still works.
+*/
+package edu.sjsu.library.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Repository
+public class LoanArchiveDAO {
+
+    public static final String LIVE = "book_records";
+    public static final String ARCHIVE = "book_records_archive";
+    private static final Set<String> PARENTS = Set.of(LIVE, ARCHIVE);
+
+    private final JdbcTemplate jdbc;
+
+    public LoanArchiveDAO(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // Make sure parent (LIVE or ARCHIVE) has a partition for the given checkout year.
+    // Returns true if one was created. Safe to call from several nodes at once.
+    @Transactional
+    public boolean ensureYearPartition(String parent, int year) {
+        if (!PARENTS.contains(parent)) {
+            throw new IllegalArgumentException("Not a loan table: " + parent);
+        }
+        jdbc.queryForObject("SELECT pg_advisory_xact_lock(hashtext(?))", Object.class, parent + " partitions");
+
+        Boolean partitioned = jdbc.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+            Boolean.class,
+            parent
+        );
+        String partition = parent + "_y" + year;
+        Boolean exists = jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+        if (!Boolean.TRUE.equals(partitioned) || Boolean.TRUE.equals(exists)) {
+            return false;
+        }
+
+        LocalDate from = LocalDate.of(year, 1, 1);
+        LocalDate to = from.plusYears(1);
+        jdbc.execute("CREATE TABLE " + partition + " (LIKE " + parent + " INCLUDING DEFAULTS)");
+        jdbc.update(
+            """
+            WITH moved AS (
+                DELETE FROM %s_default WHERE checkoutdate >= ? AND checkoutdate < ?
+                RETURNING *
+            )
+            INSERT INTO %s SELECT * FROM moved
+            """.formatted(parent, partition),
+            Timestamp.valueOf(from.atStartOfDay()),
+            Timestamp.valueOf(to.atStartOfDay())
+        );
+        jdbc.execute("ALTER TABLE " + parent + " ATTACH PARTITION " + partition
+            + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        return true;
+    }
+
+    // Checkout year of the oldest loan archiveReturnedBefore(cutoff, ...) would move (null if none).
+    public Integer findOldestArchivableYear(LocalDateTime cutoff) {
+        return jdbc.queryForObject(
+            """
+            SELECT EXTRACT(YEAR FROM MIN(checkoutdate))::int
+            FROM book_records
+            WHERE returndate < ? AND checkoutdate < ?
+            """,
+            Integer.class,
+            Timestamp.valueOf(cutoff),
+            Timestamp.valueOf(cutoff)
+        );
+    }
+
+    // Move up to limit loans returned before cutoff from book_records into book_records_archive.
+    // One statement, so each batch is its own short transaction. Returns the number of loans moved.
+    public int archiveReturnedBefore(LocalDateTime cutoff, int limit) {
+        return jdbc.update(
+            """
+            WITH batch AS (
+                SELECT loanid, checkoutdate
+                FROM book_records
+                WHERE returndate < ? AND checkoutdate < ?
+                ORDER BY checkoutdate
+                LIMIT ?
+            ),
+            moved AS (
+                DELETE FROM book_records br
+                USING batch b
+                WHERE br.loanid = b.loanid AND br.checkoutdate = b.checkoutdate
+                RETURNING br.*
+            )
+            INSERT INTO book_records_archive SELECT * FROM moved
+            """,
+            Timestamp.valueOf(cutoff),
+            Timestamp.valueOf(cutoff),
+            limit
+        );
+    }
+}
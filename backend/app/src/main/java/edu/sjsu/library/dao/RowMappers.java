@@ -0,0 +1,183 @@
+/*
+    Shared row mappers for the catalogue and circulation tables.
+
+    - Column positions are looked up by name once per result set and then read by index,
+      instead of a name lookup for every column of every row.
+    - Status/genre strings go through a precomputed name -> enum table; the trim/upper-case
+      fallback only runs for values that aren't already stored in canonical form.
+    - Timestamps are read as LocalDateTime directly (no java.sql.Timestamp round trip).
+
+    Each factory call returns a new mapper, because a mapper remembers the column positions of
+    the result set it is reading: create one per query, never share one between threads.
+    Measured in the benchmarks subproject (RowMapperBenchmark).
+*/
+package edu.sjsu.library.dao;
+
+import edu.sjsu.library.models.BookRecord;
+import edu.sjsu.library.models.Copy;
+import edu.sjsu.library.models.Fine;
+import edu.sjsu.library.models.Hold;
+import edu.sjsu.library.models.Title;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public final class RowMappers {
+
+    public static final EnumLookup<Title.Genre> GENRES = new EnumLookup<>(Title.Genre.class);
+    public static final EnumLookup<Copy.CopyStatus> COPY_STATUSES = new EnumLookup<>(Copy.CopyStatus.class);
+    public static final EnumLookup<Hold.HoldStatus> HOLD_STATUSES = new EnumLookup<>(Hold.HoldStatus.class);
+    public static final EnumLookup<Fine.FineStatus> FINE_STATUSES = new EnumLookup<>(Fine.FineStatus.class);
+
+    private RowMappers() {
+    }
+
+    // Columns: id, isbn, title, author, yearpublished, genre, isvisible
+    public static RowMapper<Title> title() {
+        return new IndexedMapper<>("id", "isbn", "title", "author", "yearpublished", "genre", "isvisible") {
+            @Override
+            Title map(ResultSet rs, int[] c) throws SQLException {
+                return new Title(
+                    rs.getInt(c[0]),
+                    rs.getString(c[1]),
+                    rs.getString(c[2]),
+                    rs.getString(c[3]),
+                    Year.of(rs.getInt(c[4])),
+                    GENRES.get(rs.getString(c[5])),
+                    rs.getBoolean(c[6])
+                );
+            }
+        };
+    }
+
+    // Columns: copyid, titleid, barcode, status, location, isvisible
+    public static RowMapper<Copy> copy() {
+        return new IndexedMapper<>("copyid", "titleid", "barcode", "status", "location", "isvisible") {
+            @Override
+            Copy map(ResultSet rs, int[] c) throws SQLException {
+                return new Copy(
+                    rs.getInt(c[0]),
+                    rs.getInt(c[1]),
+                    rs.getString(c[2]),
+                    COPY_STATUSES.get(rs.getString(c[3])),
+                    rs.getString(c[4]),
+                    rs.getBoolean(c[5])
+                );
+            }
+        };
+    }
+
+    // Columns: id, userid, titleid, copyid (nullable), status, placedat, readyat, pickupexpire, position
+    public static RowMapper<Hold> hold() {
+        return new IndexedMapper<>("id", "userid", "titleid", "copyid", "status",
+                                   "placedat", "readyat", "pickupexpire", "position") {
+            @Override
+            Hold map(ResultSet rs, int[] c) throws SQLException {
+                Integer copyId = rs.getObject(c[3], Integer.class);
+                return new Hold(
+                    rs.getInt(c[0]),
+                    rs.getInt(c[1]),
+                    rs.getInt(c[2]),
+                    copyId,
+                    HOLD_STATUSES.get(rs.getString(c[4])),
+                    rs.getObject(c[5], LocalDateTime.class),
+                    rs.getObject(c[6], LocalDateTime.class),
+                    rs.getObject(c[7], LocalDateTime.class),
+                    rs.getInt(c[8])
+                );
+            }
+        };
+    }
+
+    // Columns: id, userid, loanid, amount, finedate, reason, status
+    public static RowMapper<Fine> fine() {
+        return new IndexedMapper<>("id", "userid", "loanid", "amount", "finedate", "reason", "status") {
+            @Override
+            Fine map(ResultSet rs, int[] c) throws SQLException {
+                return new Fine(
+                    rs.getInt(c[0]),
+                    rs.getInt(c[1]),
+                    rs.getInt(c[2]),
+                    rs.getBigDecimal(c[3]),
+                    rs.getObject(c[4], LocalDateTime.class),
+                    rs.getString(c[5]),
+                    FINE_STATUSES.get(rs.getString(c[6]))
+                );
+            }
+        };
+    }
+
+    // Columns: loanid, copyid, userid, checkoutdate, duedate, returndate (nullable), renewcount
+    public static RowMapper<BookRecord> bookRecord() {
+        return new IndexedMapper<>("loanid", "copyid", "userid", "checkoutdate", "duedate", "returndate", "renewcount") {
+            @Override
+            BookRecord map(ResultSet rs, int[] c) throws SQLException {
+                return new BookRecord(
+                    rs.getInt(c[0]),
+                    rs.getInt(c[1]),
+                    rs.getInt(c[2]),
+                    rs.getObject(c[3], LocalDateTime.class),
+                    rs.getObject(c[4], LocalDateTime.class),
+                    rs.getObject(c[5], LocalDateTime.class),
+                    rs.getInt(c[6])
+                );
+            }
+        };
+    }
+
+    // Resolves the named columns to positions on the first row of each result set, then maps by position.
+    abstract static class IndexedMapper<T> implements RowMapper<T> {
+        private final String[] columns;
+        private final int[] positions;
+        private ResultSet resolvedFor;
+
+        IndexedMapper(String... columns) {
+            this.columns = columns;
+            this.positions = new int[columns.length];
+        }
+
+        @Override
+        public final T mapRow(ResultSet rs, int rowNum) throws SQLException {
+            if (rs != resolvedFor) {
+                for (int i = 0; i < columns.length; i++) {
+                    positions[i] = rs.findColumn(columns[i]);
+                }
+                resolvedFor = rs;
+            }
+            return map(rs, positions);
+        }
+
+        abstract T map(ResultSet rs, int[] c) throws SQLException;
+    }
+
+    // String -> enum via a table of canonical names, falling back to trim + upper-case for legacy values.
+    public static final class EnumLookup<E extends Enum<E>> {
+        private final Class<E> type;
+        private final Map<String, E> byName = new HashMap<>();
+
+        EnumLookup(Class<E> type) {
+            this.type = type;
+            for (E e : type.getEnumConstants()) {
+                byName.put(e.name(), e);
+            }
+        }
+
+        public E get(String raw) {
+            E e = byName.get(raw);
+            if (e == null && raw != null) {
+                e = byName.get(raw.trim().toUpperCase(Locale.ROOT));
+            }
+            if (e == null) {
+                throw new IllegalArgumentException("No " + type.getSimpleName() + " constant for '" + raw + "'");
+            }
+            return e;
+        }
+    }
+}
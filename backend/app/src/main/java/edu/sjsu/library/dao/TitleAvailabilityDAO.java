@@ -0,0 +1,102 @@
+package edu.sjsu.library.dao;
+
+import edu.sjsu.library.models.AvailabilitySummary;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/*
+    Per-title copy status counters. The rows are written by CopyDAO.insert/update/delete in the
+    same statement as the copy change; this DAO only reads them and repairs drift.
+*/
+@Repository
+public class TitleAvailabilityDAO {
+
+    private final JdbcTemplate jdbc;
+
+    public TitleAvailabilityDAO(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void createTable() {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS title_availability (
+                titleid INTEGER PRIMARY KEY,
+                total INTEGER NOT NULL DEFAULT 0,
+                available INTEGER NOT NULL DEFAULT 0,
+                checked_out INTEGER NOT NULL DEFAULT 0,
+                reserved INTEGER NOT NULL DEFAULT 0,
+                other INTEGER NOT NULL DEFAULT 0
+            )
+            """;
+        jdbc.execute(sql);
+    }
+
+    private AvailabilitySummary mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {
+        return new AvailabilitySummary(
+            rs.getInt("total"),
+            rs.getInt("available"),
+            rs.getInt("checked_out"),
+            rs.getInt("reserved"),
+            rs.getInt("other")
+        );
+    }
+
+    // Counters for one title (all zeros if the title has never had a copy).
+    public AvailabilitySummary findByTitleId(int titleId) {
+        try {
+            return jdbc.queryForObject(
+                "SELECT total, available, checked_out, reserved, other FROM title_availability WHERE titleid = ?",
+                this::mapRow,
+                titleId
+            );
+        } catch (EmptyResultDataAccessException e) {
+            return new AvailabilitySummary(0, 0, 0, 0, 0);
+        }
+    }
+
+    // Counts over the title's visible copies only, for members (the counters above include hidden copies).
+    // Read from copies directly; one title's copies are a single range of idx_copies_titleid_status.
+    public AvailabilitySummary countVisibleByTitleId(int titleId) {
+        return jdbc.queryForObject(
+            """
+            SELECT COUNT(*) AS total,
+                   COUNT(*) FILTER (WHERE UPPER(TRIM(status)) = 'AVAILABLE') AS available,
+                   COUNT(*) FILTER (WHERE UPPER(TRIM(status)) = 'CHECKED_OUT') AS checked_out,
+                   COUNT(*) FILTER (WHERE UPPER(TRIM(status)) = 'RESERVED') AS reserved,
+                   COUNT(*) FILTER (WHERE UPPER(TRIM(status)) NOT IN ('AVAILABLE', 'CHECKED_OUT', 'RESERVED')) AS other
+            FROM copies
+            WHERE titleid = ? AND isvisible = TRUE
+            """,
+            this::mapRow,
+            titleId
+        );
+    }
+
+    // Recount every title from the copies table and fix rows that drifted.
+    // Blocks copy writes for the duration so nothing changes between the count and the write.
+    // Returns the number of rows that were inserted or corrected.
+    public int repair() {
+        jdbc.execute("LOCK TABLE copies IN SHARE MODE");
+        return jdbc.update("""
+            INSERT INTO title_availability AS ta (titleid, total, available, checked_out, reserved, other)
+            SELECT t.id,
+                   COUNT(c.copyid),
+                   COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) = 'AVAILABLE'),
+                   COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) = 'CHECKED_OUT'),
+                   COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) = 'RESERVED'),
+                   COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) NOT IN ('AVAILABLE', 'CHECKED_OUT', 'RESERVED'))
+            FROM titles t
+            LEFT JOIN copies c ON c.titleid = t.id
+            GROUP BY t.id
+            ON CONFLICT (titleid) DO UPDATE SET
+                total = EXCLUDED.total,
+                available = EXCLUDED.available,
+                checked_out = EXCLUDED.checked_out,
+                reserved = EXCLUDED.reserved,
+                other = EXCLUDED.other
+            WHERE (ta.total, ta.available, ta.checked_out, ta.reserved, ta.other)
+                  IS DISTINCT FROM (EXCLUDED.total, EXCLUDED.available, EXCLUDED.checked_out, EXCLUDED.reserved, EXCLUDED.other)
+            """);
+    }
+}
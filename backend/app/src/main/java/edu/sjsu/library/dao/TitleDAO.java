@@ -1,13 +1,23 @@
 package edu.sjsu.library.dao;
 
+import edu.sjsu.library.models.CatalogPage;
+import edu.sjsu.library.models.ResourceVersion;
 import edu.sjsu.library.models.Title;
 import edu.sjsu.library.models.Title.Genre;
+import edu.sjsu.library.models.TitleQuery;
+import edu.sjsu.library.utils.ReadThroughCache;
 
 import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 
@@ -15,9 +25,13 @@ import org.springframework.stereotype.Repository;
 public class TitleDAO {
 
     private final JdbcTemplate jdbc;
+    private final ReadThroughCache<Integer, Title> byId;
 
-    public TitleDAO(JdbcTemplate jdbc) {
+    public TitleDAO(JdbcTemplate jdbc,
+                    @Value("${library.cache.enabled:true}") boolean cacheEnabled,
+                    @Value("${library.cache.max-size:10000}") long cacheMaxSize) {
         this.jdbc = jdbc;
+        this.byId = new ReadThroughCache<>("titlesById", cacheEnabled, cacheMaxSize, TitleDAO::copyOf);
     }
 
     public void createTable() {
@@ -29,40 +43,62 @@ public class TitleDAO {
                 author VARCHAR(255) NOT NULL,
                 yearPublished INT NOT NULL,
                 genre VARCHAR(100),
-                isVisible BOOLEAN DEFAULT TRUE
+                isVisible BOOLEAN DEFAULT TRUE,
+                version BIGINT NOT NULL DEFAULT 0,
+                updated_at TIMESTAMP NOT NULL DEFAULT now(),
+                search_vector tsvector GENERATED ALWAYS AS (
+                    setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+                    setweight(to_tsvector('english', coalesce(author, '')), 'B')
+                ) STORED
             )
             """;
         jdbc.execute(sql);
+        // Change tracking for CatalogSync (migration 015): writing transaction IDs, plus tombstones for deletes.
+        jdbc.execute("ALTER TABLE titles ADD COLUMN IF NOT EXISTS change_xid xid8 NOT NULL DEFAULT pg_current_xact_id()");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_titles_change_xid ON titles (change_xid)");
+        jdbc.execute("""
+            CREATE TABLE IF NOT EXISTS deleted_rows (
+                tablename VARCHAR(20) NOT NULL,
+                id INTEGER NOT NULL,
+                deleted_at TIMESTAMP NOT NULL DEFAULT now(),
+                change_xid xid8 NOT NULL DEFAULT pg_current_xact_id()
+            )
+            """);
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_deleted_rows_deleted_at ON deleted_rows (deleted_at)");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_deleted_rows_change_xid ON deleted_rows (change_xid)");
     }
 
     public List<Title> findAll() {
         return jdbc.query(
             "SELECT id, isbn, title, author, yearpublished, genre, isvisible FROM titles ORDER BY id",
-            (rs, n) -> new Title(
-                rs.getInt("id"),
-                rs.getString("isbn"),
-                rs.getString("title"),
-                rs.getString("author"),
-                Year.of(rs.getInt("yearpublished")),
-                Genre.valueOf(rs.getString("genre").trim().toUpperCase()),
-                rs.getBoolean("isvisible")
-            )
+            RowMappers.title()
         );
     }
 
+    // Cached: see ReadThroughCache.
     public Title findById(int id) {
+        return byId.get(id, this::loadById);
+    }
+
+    private Title loadById(int id) {
         try {
             return jdbc.queryForObject(
                 "SELECT id, isbn, title, author, yearpublished, genre, isvisible FROM titles WHERE id = ?",
-                (rs, n) -> new Title(
-                    rs.getInt("id"),
-                    rs.getString("isbn"),
-                    rs.getString("title"),
-                    rs.getString("author"),
-                    Year.of(rs.getInt("yearpublished")),
-                    Genre.valueOf(rs.getString("genre").trim().toUpperCase()),
-                    rs.getBoolean("isvisible")
-                ),
+                RowMappers.title(),
+                id
+            );
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    // Read-modify-write paths read through here instead of findById: never cached (the cache may lag a
+    // write made on another node) and the row stays locked until the transaction ends.
+    public Title findByIdForUpdate(int id) {
+        try {
+            return jdbc.queryForObject(
+                "SELECT id, isbn, title, author, yearpublished, genre, isvisible FROM titles WHERE id = ? FOR UPDATE",
+                RowMappers.title(),
                 id
             );
         } catch (EmptyResultDataAccessException e) {
@@ -74,15 +110,7 @@ public class TitleDAO {
         try {
             return jdbc.queryForObject(
                 "SELECT id, isbn, title, author, yearpublished, genre, isvisible FROM titles WHERE isbn = ?",
-                (rs, n) -> new Title(
-                    rs.getInt("id"),
-                    rs.getString("isbn"),
-                    rs.getString("title"),
-                    rs.getString("author"),
-                    Year.of(rs.getInt("yearpublished")),
-                    Genre.valueOf(rs.getString("genre").trim().toUpperCase()),
-                    rs.getBoolean("isvisible")
-                ),
+                RowMappers.title(),
                 isbn
             );
         } catch (EmptyResultDataAccessException e) {
@@ -93,15 +121,7 @@ public class TitleDAO {
     public List<Title> findByYearRange(Year startYear, Year endYear) {
         return jdbc.query(
             "SELECT id, isbn, title, author, yearpublished, genre, isvisible FROM titles WHERE yearpublished BETWEEN ? AND ? ORDER BY yearpublished DESC, title",
-            (rs, n) -> new Title(
-                rs.getInt("id"),
-                rs.getString("isbn"),
-                rs.getString("title"),
-                rs.getString("author"),
-                Year.of(rs.getInt("yearpublished")),
-                Genre.valueOf(rs.getString("genre").trim().toUpperCase()),
-                rs.getBoolean("isvisible")
-            ),
+            RowMappers.title(),
             startYear.getValue(), endYear.getValue()
         );
     }
@@ -109,15 +129,7 @@ public class TitleDAO {
     public List<Title> findByAuthor(String author) {
         return jdbc.query(
             "SELECT id, isbn, title, author, yearpublished, genre, isvisible FROM titles WHERE LOWER(author) LIKE LOWER(?) ORDER BY title",
-            (rs, n) -> new Title(
-                rs.getInt("id"),
-                rs.getString("isbn"),
-                rs.getString("title"),
-                rs.getString("author"),
-                Year.of(rs.getInt("yearpublished")),
-                Genre.valueOf(rs.getString("genre").trim().toUpperCase()),
-                rs.getBoolean("isvisible")
-            ),
+            RowMappers.title(),
             "%" + author + "%"
         );
     }
@@ -125,15 +137,7 @@ public class TitleDAO {
     public List<Title> findByGenre(Genre genre) {
         return jdbc.query(
             "SELECT id, isbn, title, author, yearpublished, genre, isvisible FROM titles WHERE UPPER(genre) = UPPER(?) ORDER BY title",
-            (rs, n) -> new Title(
-                rs.getInt("id"),
-                rs.getString("isbn"),
-                rs.getString("title"),
-                rs.getString("author"),
-                Year.of(rs.getInt("yearpublished")),
-                Genre.valueOf(rs.getString("genre").trim().toUpperCase()),
-                rs.getBoolean("isvisible")
-            ),
+            RowMappers.title(),
             genre.toString()
         );
     }
@@ -141,19 +145,47 @@ public class TitleDAO {
     public List<Title> findByTitle(String title) {
         return jdbc.query(
             "SELECT id, isbn, title, author, yearpublished, genre, isvisible FROM titles WHERE LOWER(title) LIKE LOWER(?) ORDER BY title",
-            (rs, n) -> new Title(
-                rs.getInt("id"),
-                rs.getString("isbn"),
-                rs.getString("title"),
-                rs.getString("author"),
-                Year.of(rs.getInt("yearpublished")),
-                Genre.valueOf(rs.getString("genre").trim().toUpperCase()),
-                rs.getBoolean("isvisible")
-            ),
+            RowMappers.title(),
             "%" + title + "%"
         );
     }
 
+    // Relevance-ranked title search: stemmed full-text match on the weighted search_vector,
+    // plus trigram substring/typo matching on LOWER(title). Every path is GIN indexed.
+    public List<Title> rankedSearchByTitle(String terms, boolean visibleOnly) {
+        return rankedSearch("title", TITLE_WEIGHTS, terms, visibleOnly);
+    }
+
+    // Relevance-ranked author search (see rankedSearchByTitle).
+    public List<Title> rankedSearchByAuthor(String terms, boolean visibleOnly) {
+        return rankedSearch("author", AUTHOR_WEIGHTS, terms, visibleOnly);
+    }
+
+    // ts_rank weight arrays are ordered {D, C, B, A}. Zeroing the other column's weight scopes
+    // a full-text hit to one column and ranks by that column only.
+    private static final String TITLE_WEIGHTS = "{0, 0, 0, 1}";
+    private static final String AUTHOR_WEIGHTS = "{0, 0, 1, 0}";
+
+    private List<Title> rankedSearch(String column, String weights, String terms, boolean visibleOnly) {
+        String term = terms.trim();
+        String sql = """
+            SELECT t.id, t.isbn, t.title, t.author, t.yearpublished, t.genre, t.isvisible
+              FROM titles t, websearch_to_tsquery('english', ?) q
+             WHERE ((t.search_vector @@ q AND ts_rank(CAST(? AS float4[]), t.search_vector, q) > 0)
+                    OR LOWER(t.%1$s) LIKE LOWER(?) ESCAPE '\\'
+                    OR LOWER(t.%1$s) %% LOWER(?))
+               AND (? = FALSE OR t.isvisible = TRUE)
+             ORDER BY ts_rank(CAST(? AS float4[]), t.search_vector, q)
+                      + similarity(LOWER(t.%1$s), LOWER(?)) DESC,
+                      t.title
+            """.formatted(column);
+        return jdbc.query(
+            sql,
+            RowMappers.title(),
+            term, weights, containsPattern(term), term, visibleOnly, weights, term
+        );
+    }
+
     /** Insert and return generated id */
     public int insert(Title t) {
         String sql = """
@@ -195,10 +227,11 @@ public class TitleDAO {
     public int update(Title t) {
         String sql = """
             UPDATE titles
-               SET isbn = ?, title = ?, author = ?, yearpublished = ?, genre = ?, isvisible = ?
+               SET isbn = ?, title = ?, author = ?, yearpublished = ?, genre = ?, isvisible = ?,
+                   version = version + 1, updated_at = now(), change_xid = pg_current_xact_id()
              WHERE id = ?
             """;
-        return jdbc.update(
+        int rows = jdbc.update(
             sql,
             t.getISBN(),
             t.getTitle(),
@@ -208,24 +241,294 @@ public class TitleDAO {
             t.isVisible(),
             t.getTitleID()              
         );
+        byId.invalidate(t.getTitleID());
+        return rows;
     }
 
     public List<Title> findAllVisible() {
         return jdbc.query(
             "SELECT id, isbn, title, author, yearpublished, genre, isvisible FROM titles WHERE isvisible = TRUE ORDER BY id",
-            (rs, n) -> new Title(
-                rs.getInt("id"),
-                rs.getString("isbn"),
-                rs.getString("title"),
-                rs.getString("author"),
-                Year.of(rs.getInt("yearpublished")),
-                Genre.valueOf(rs.getString("genre").trim().toUpperCase()),
-                rs.getBoolean("isvisible")
-            )
+            RowMappers.title()
         );
     }
 
+    // Also leaves a tombstone in deleted_rows, so other nodes drop the title too (CatalogSync).
     public int delete(int id) {
-        return jdbc.update("DELETE FROM titles WHERE id = ?", id);
+        int rows = jdbc.update("""
+            WITH del AS (
+                DELETE FROM titles WHERE id = ? RETURNING id
+            )
+            INSERT INTO deleted_rows (tablename, id) SELECT 'titles', id FROM del
+            """, id);
+        byId.invalidate(id);
+        return rows;
+    }
+
+    // Drop a cached title that another node changed or deleted (CatalogSync).
+    public void evictCached(int id) {
+        byId.invalidate(id);
+    }
+
+    // Catalog search: every filter set on the query becomes one parameterized predicate.
+    public List<Title> search(TitleQuery q) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+            "SELECT t.id, t.isbn, t.title, t.author, t.yearpublished, t.genre, t.isvisible FROM titles t WHERE 1 = 1");
+        sql.append(filterClause(q, params));
+
+        if (q.getAfterId() != null) {
+            sql.append(" AND t.id > ?");
+            params.add(q.getAfterId());
+        }
+        sql.append(" ORDER BY t.id");
+        if (q.getLimit() != null) {
+            sql.append(" LIMIT ?");
+            params.add(q.getLimit());
+        }
+
+        return jdbc.query(sql.toString(), RowMappers.title(), params.toArray());
+    }
+
+    // Catalog search plus genre / decade / availability counts for the whole filter set, in one statement.
+    // Facet rows and page rows come back in a single result set, told apart by the "facet" column.
+    public CatalogPage searchWithFacets(TitleQuery q) {
+        List<Object> params = new ArrayList<>();
+        String filters = filterClause(q, params);
+        return facetedPage(filters, params, q);
+    }
+
+    // Same page and facets, for titles CatalogIndex matched on q's title/author text (at most a few
+    // thousand IDs). Every other filter on q, availability included, and the paging still apply here.
+    public CatalogPage searchWithFacets(TitleQuery q, List<Integer> textMatches) {
+        List<Object> params = new ArrayList<>();
+        params.add(textMatches.toArray(new Integer[0]));
+        String filters = " AND t.id = ANY(?)" + filterClause(q, params, false);
+        return facetedPage(filters, params, q);
+    }
+
+    // filters are WHERE predicates on alias t (with their parameters already in params).
+    private CatalogPage facetedPage(String filters, List<Object> params, TitleQuery q) {
+        StringBuilder page = new StringBuilder("SELECT * FROM matched");
+        if (q.getAfterId() != null) {
+            page.append(" WHERE id > ?");
+            params.add(q.getAfterId());
+        }
+        page.append(" ORDER BY id");
+        if (q.getLimit() != null) {
+            page.append(" LIMIT ?");
+            params.add(q.getLimit());
+        }
+
+        String sql = """
+            WITH matched AS (
+                SELECT t.id, t.isbn, t.title, t.author, t.yearpublished, t.genre, t.isvisible,
+                       %s AS available
+                FROM titles t
+                WHERE 1 = 1 %s
+            ),
+            facets AS (
+                SELECT CASE WHEN GROUPING(genre_key) = 0 THEN 'genre'
+                            WHEN GROUPING(decade) = 0 THEN 'decade'
+                            ELSE 'availability' END AS facet,
+                       CASE WHEN GROUPING(genre_key) = 0 THEN genre_key
+                            WHEN GROUPING(decade) = 0 THEN decade::text
+                            WHEN available THEN 'AVAILABLE'
+                            ELSE 'UNAVAILABLE' END AS bucket,
+                       COUNT(*) AS hits
+                FROM (
+                    SELECT UPPER(TRIM(genre)) AS genre_key, (yearpublished / 10) * 10 AS decade, available
+                    FROM matched
+                ) m
+                GROUP BY GROUPING SETS ((genre_key), (decade), (available))
+            )
+            SELECT facet, bucket, hits,
+                   NULL::int AS id, NULL AS isbn, NULL AS title, NULL AS author,
+                   NULL::int AS yearpublished, NULL AS genre, NULL::boolean AS isvisible
+            FROM facets
+            UNION ALL
+            SELECT NULL, NULL, NULL, id, isbn, title, author, yearpublished, genre, isvisible
+            FROM (%s) p
+            """.formatted(availableClause(q), filters, page);
+
+        CatalogPage result = new CatalogPage();
+        RowMapper<Title> titles = RowMappers.title();
+        RowCallbackHandler rows = rs -> {
+            String facet = rs.getString("facet");
+            if (facet == null) {
+                result.getTitles().add(titles.mapRow(rs, 0));
+            } else if (rs.getString("bucket") == null) {
+                return; // Titles with no genre recorded.
+            } else if (facet.equals("genre")) {
+                result.getGenreCounts().put(Genre.valueOf(rs.getString("bucket")), rs.getInt("hits"));
+            } else if (facet.equals("decade")) {
+                result.getDecadeCounts().put(Integer.parseInt(rs.getString("bucket")), rs.getInt("hits"));
+            } else if (rs.getString("bucket").equals("AVAILABLE")) {
+                result.setAvailableCount(rs.getInt("hits"));
+            } else {
+                result.setUnavailableCount(rs.getInt("hits"));
+            }
+        };
+        jdbc.query(con -> {
+            var ps = con.prepareStatement(sql);
+            for (int i = 0; i < params.size(); i++) {
+                if (params.get(i) instanceof Integer[] ids) {
+                    ps.setArray(i + 1, con.createArrayOf("integer", ids));
+                } else {
+                    ps.setObject(i + 1, params.get(i));
+                }
+            }
+            return ps;
+        }, rows);
+        return result;
+    }
+
+    // The shared WHERE predicates (against alias t) for search and searchWithFacets.
+    private String filterClause(TitleQuery q, List<Object> params) {
+        return filterClause(q, params, true);
+    }
+
+    // withText = false leaves out the title/author filters (CatalogIndex already matched them).
+    private String filterClause(TitleQuery q, List<Object> params, boolean withText) {
+        StringBuilder sql = new StringBuilder();
+        if (q.isVisibleOnly()) {
+            sql.append(" AND t.isvisible = TRUE");
+        }
+        if (withText && q.getTitle() != null && !q.getTitle().isBlank()) {
+            sql.append(" AND LOWER(t.title) LIKE LOWER(?) ESCAPE '\\'");
+            params.add(containsPattern(q.getTitle().trim()));
+        }
+        if (withText && q.getAuthor() != null && !q.getAuthor().isBlank()) {
+            sql.append(" AND LOWER(t.author) LIKE LOWER(?) ESCAPE '\\'");
+            params.add(containsPattern(q.getAuthor().trim()));
+        }
+        if (q.getGenre() != null) {
+            sql.append(" AND UPPER(t.genre) = ?");
+            params.add(q.getGenre().name());
+        }
+        if (q.getStartYear() != null) {
+            sql.append(" AND t.yearpublished >= ?");
+            params.add(q.getStartYear());
+        }
+        if (q.getEndYear() != null) {
+            sql.append(" AND t.yearpublished <= ?");
+            params.add(q.getEndYear());
+        }
+        if (q.isAvailableOnly()) {
+            sql.append(" AND ").append(availableClause(q));
+        }
+        return sql.toString();
+    }
+
+    // "Title t has an AVAILABLE copy". Member (visibleOnly) queries only count visible copies, which
+    // the title_availability counters can't tell apart, so they check copies directly (one index probe).
+    private static String availableClause(TitleQuery q) {
+        if (q.isVisibleOnly()) {
+            return "EXISTS (SELECT 1 FROM copies c WHERE c.titleid = t.id AND c.status = 'AVAILABLE' AND c.isvisible = TRUE)";
+        }
+        return "EXISTS (SELECT 1 FROM title_availability a WHERE a.titleid = t.id AND a.available > 0)";
+    }
+
+    // Hydrate a list of title IDs (e.g. from CatalogIndex) in one primary-key lookup, keeping the given order.
+    public List<Title> findByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = """
+            SELECT id, isbn, title, author, yearpublished, genre, isvisible
+            FROM titles
+            WHERE id = ANY(?)
+            """;
+        List<Title> rows = jdbc.query(con -> {
+            var ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("integer", ids.toArray()));
+            return ps;
+        }, RowMappers.title());
+
+        Map<Integer, Title> byId = new HashMap<>();
+        for (Title t : rows) {
+            byId.put(t.getTitleID(), t);
+        }
+        List<Title> ordered = new ArrayList<>(rows.size());
+        for (Integer id : ids) {
+            Title t = byId.get(id);
+            if (t != null) {
+                ordered.add(t);
+            }
+        }
+        return ordered;
+    }
+
+    // Version of a title and all of its copies, for ETags on pages that show both (null if no such title).
+    // Copy count and newest updated_at catch inserts/deletes; the version sum catches updates.
+    public ResourceVersion findVersion(int id) {
+        try {
+            return jdbc.queryForObject(
+                """
+                SELECT t.version, t.updated_at, c.copies, c.version_sum, c.last_updated
+                FROM titles t
+                CROSS JOIN LATERAL (
+                    SELECT COUNT(*) AS copies,
+                           COALESCE(SUM(version), 0) AS version_sum,
+                           MAX(updated_at) AS last_updated
+                    FROM copies
+                    WHERE titleid = t.id
+                ) c
+                WHERE t.id = ?
+                """,
+                (rs, n) -> {
+                    java.time.LocalDateTime titleUpdated = rs.getTimestamp("updated_at").toLocalDateTime();
+                    java.sql.Timestamp copiesUpdated = rs.getTimestamp("last_updated");
+                    java.time.LocalDateTime lastModified = titleUpdated;
+                    if (copiesUpdated != null && copiesUpdated.toLocalDateTime().isAfter(titleUpdated)) {
+                        lastModified = copiesUpdated.toLocalDateTime();
+                    }
+                    String fingerprint = "title:" + id + ":v" + rs.getLong("version")
+                        + "|copies:" + rs.getInt("copies") + ":" + rs.getLong("version_sum")
+                        + ":" + (copiesUpdated == null ? "-" : copiesUpdated.getTime());
+                    return new ResourceVersion(fingerprint, lastModified);
+                },
+                id
+            );
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    // Version of the whole catalogue (every title and copy), for ETags on catalog list and search pages.
+    // Row counts catch inserts and deletes; the newest change_xid (migration 015) catches updates. Both
+    // are index lookups or index-only scans, so this is much cheaper than running the search itself.
+    public ResourceVersion findCatalogVersion() {
+        return jdbc.queryForObject(
+            """
+            SELECT (SELECT COUNT(*) FROM titles) AS titles,
+                   t.change_xid::text AS title_xid,
+                   (SELECT COUNT(*) FROM copies) AS copies,
+                   c.change_xid::text AS copy_xid,
+                   GREATEST(t.updated_at, c.updated_at, 'epoch'::timestamp) AS last_modified
+            FROM (SELECT 1) one
+            LEFT JOIN LATERAL (SELECT change_xid, updated_at FROM titles ORDER BY change_xid DESC LIMIT 1) t ON TRUE
+            LEFT JOIN LATERAL (SELECT change_xid, updated_at FROM copies ORDER BY change_xid DESC LIMIT 1) c ON TRUE
+            """,
+            (rs, n) -> new ResourceVersion(
+                "catalog:titles:" + rs.getLong("titles") + ":" + rs.getString("title_xid")
+                    + "|copies:" + rs.getLong("copies") + ":" + rs.getString("copy_xid"),
+                rs.getTimestamp("last_modified").toLocalDateTime()
+            )
+        );
+    }
+
+    // Hit/miss counters for the findById cache.
+    public ReadThroughCache<Integer, Title> getCache() {
+        return byId;
+    }
+
+    private static Title copyOf(Title t) {
+        return new Title(t.getTitleID(), t.getISBN(), t.getTitle(), t.getAuthor(), t.getYearPublished(), t.getGenre(), t.isVisible());
+    }
+
+    // Wrap user input in % wildcards, escaping any LIKE metacharacters it already contains.
+    private static String containsPattern(String term) {
+        String escaped = term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
     }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+/*
+    TitleImportDAO loads a catalog feed in two set-based steps instead of one INSERT per title:
+
+    1. Stage: rows are streamed into a temporary table with the PostgreSQL COPY protocol.
+    2. Merge: one INSERT ... ON CONFLICT (isbn) de-duplicates the file (last row per ISBN wins),
+       inserts new ISBNs and updates existing titles only where something actually changed.
+
+    Both steps must run in the same transaction (the staging table is dropped on commit).
+*/
+package edu.sjsu.library.dao;
+
+import edu.sjsu.library.utils.TitleImportReader.Row;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+public class TitleImportDAO {
+
+    private static final int COPY_BUFFER_BYTES = 1 << 16;
+
+    private final JdbcTemplate jdbc;
+
+    public TitleImportDAO(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // Result of the merge step.
+    public record MergeCounts(int staged, int distinct, List<Integer> insertedIds, List<Integer> updatedIds) {
+    }
+
+    /**
+     * Opens a COPY into a fresh staging table. Call add() for every row, then finish().
+     * Must be called inside a transaction.
+     */
+    public Stage openStage() {
+        jdbc.execute("""
+            CREATE TEMP TABLE title_import_stage (
+                line INT NOT NULL,
+                isbn TEXT NOT NULL,
+                title TEXT NOT NULL,
+                author TEXT NOT NULL,
+                yearpublished INT NOT NULL,
+                genre TEXT NOT NULL,
+                isvisible BOOLEAN
+            ) ON COMMIT DROP
+            """);
+        try {
+            // Same connection as the surrounding transaction, so the temp table is visible.
+            Connection con = DataSourceUtils.getConnection(jdbc.getDataSource());
+            CopyIn copy = con.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY title_import_stage FROM STDIN WITH (FORMAT csv)");
+            return new Stage(con, copy);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not start COPY into the import staging table: " + e.getMessage(), e);
+        }
+    }
+
+    // An open COPY stream. Rows are encoded as CSV and sent in 64 KB chunks.
+    public final class Stage {
+        private final Connection con;
+        private final CopyIn copy;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_BUFFER_BYTES + 1024);
+        private final StringBuilder line = new StringBuilder(256);
+        private int rows;
+        private boolean released;
+
+        private Stage(Connection con, CopyIn copy) {
+            this.con = con;
+            this.copy = copy;
+        }
+
+        public void add(Row r) {
+            line.setLength(0);
+            line.append(r.line()).append(',');
+            quote(r.isbn()).append(',');
+            quote(r.title()).append(',');
+            quote(r.author()).append(',');
+            line.append(r.year()).append(',');
+            line.append(r.genre().name()).append(',');
+            if (r.visible() != null) {
+                line.append(r.visible());       // Unquoted empty field = NULL.
+            }
+            line.append('\n');
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            buffer.write(bytes, 0, bytes.length);
+            rows++;
+            if (buffer.size() >= COPY_BUFFER_BYTES) {
+                flush();
+            }
+        }
+
+        private StringBuilder quote(String s) {
+            return line.append('"').append(s.replace("\"", "\"\"")).append('"');
+        }
+
+        private void flush() {
+            try {
+                copy.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                buffer.reset();
+            } catch (SQLException e) {
+                throw new IllegalStateException("COPY into the import staging table failed: " + e.getMessage(), e);
+            }
+        }
+
+        /** Ends the COPY and returns the number of rows staged. */
+        public int finish() {
+            try {
+                flush();
+                copy.endCopy();
+                return rows;
+            } catch (SQLException e) {
+                throw new IllegalStateException("COPY into the import staging table failed: " + e.getMessage(), e);
+            } finally {
+                release();
+            }
+        }
+
+        /** Cancels the COPY if it is still open (the transaction is expected to roll back). Safe after finish(). */
+        public void abort() {
+            try {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            } catch (SQLException ignored) {
+                // The transaction is being rolled back anyway.
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (!released) {
+                released = true;
+                DataSourceUtils.releaseConnection(con, jdbc.getDataSource());
+            }
+        }
+    }
+
+    /**
+     * Merges the staged rows into titles. A row with an unknown ISBN is inserted; a known ISBN is
+     * updated (bumping version/updated_at/change_xid) only if some column differs. Rows that leave visibility
+     * blank keep the stored value (new titles default to visible).
+     */
+    public MergeCounts merge(int staged) {
+        jdbc.execute("ANALYZE title_import_stage"); // Temp tables have no statistics until analyzed.
+
+        Integer distinct = jdbc.queryForObject("SELECT COUNT(DISTINCT isbn) FROM title_import_stage", Integer.class);
+
+        List<Integer> insertedIds = new ArrayList<>();
+        List<Integer> updatedIds = new ArrayList<>();
+        jdbc.query(
+            """
+            WITH src AS (
+                SELECT DISTINCT ON (s.isbn)
+                       s.isbn, s.title, s.author, s.yearpublished, s.genre,
+                       COALESCE(s.isvisible, e.isvisible, TRUE) AS isvisible
+                FROM title_import_stage s
+                LEFT JOIN titles e ON e.isbn = s.isbn
+                ORDER BY s.isbn, s.line DESC
+            )
+            INSERT INTO titles AS t (isbn, title, author, yearpublished, genre, isvisible)
+            SELECT isbn, title, author, yearpublished, genre, isvisible FROM src
+            ON CONFLICT (isbn) DO UPDATE
+               SET title = EXCLUDED.title,
+                   author = EXCLUDED.author,
+                   yearpublished = EXCLUDED.yearpublished,
+                   genre = EXCLUDED.genre,
+                   isvisible = EXCLUDED.isvisible,
+                   version = t.version + 1,
+                   updated_at = now(),
+                   change_xid = pg_current_xact_id()
+             WHERE (t.title, t.author, t.yearpublished, t.genre, t.isvisible)
+                   IS DISTINCT FROM
+                   (EXCLUDED.title, EXCLUDED.author, EXCLUDED.yearpublished, EXCLUDED.genre, EXCLUDED.isvisible)
+            RETURNING t.id, (t.xmax = 0) AS inserted
+            """,
+            (RowCallbackHandler) rs -> (rs.getBoolean("inserted") ? insertedIds : updatedIds).add(rs.getInt("id"))
+        );
+
+        return new MergeCounts(staged, distinct == null ? 0 : distinct, insertedIds, updatedIds);
+    }
+}
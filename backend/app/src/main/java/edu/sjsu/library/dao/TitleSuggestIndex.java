@@ -0,0 +1,269 @@
+/*
+    TitleSuggestIndex answers typeahead queries from memory. Every visible title's title and
+    author are split into normalized tokens (lower-case, accents stripped) and stored in a
+    compressed prefix trie; suggestions are ranked by how often the title has been borrowed.
+
+    - Built from TitleDAO.findAllVisible at startup and after bulk imports.
+    - Loan counts are re-read from title_loan_counts on a schedule (library.suggest.refresh-cron);
+      only titles whose count moved are re-ranked, each one a bounded update of the trie's
+      per-node top lists, so queries never fall back to sorting a whole subtree.
+    - BookService pushes title add/edit/remove changes after commit, so edits show up
+      immediately without waiting for the next rebuild. Edits made on other nodes arrive
+      through CatalogSync within one poll.
+*/
+package edu.sjsu.library.dao;
+
+import edu.sjsu.library.models.Title;
+import edu.sjsu.library.models.TitleSuggestion;
+import edu.sjsu.library.utils.AfterCommit;
+import edu.sjsu.library.utils.PrefixTrie;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+@Repository
+public class TitleSuggestIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    // Everything a query needs, swapped as a unit on rebuild.
+    private static final class Snapshot {
+        final PrefixTrie trie;
+        final Map<Integer, TitleSuggestion> entries = new HashMap<>();
+        final Map<Integer, String[]> tokens = new HashMap<>();
+        final Map<Integer, Integer> loans;
+        final Comparator<Integer> rank;
+
+        Snapshot(Map<Integer, Integer> loans) {
+            this.loans = loans;
+            this.rank = Comparator.<Integer>comparingInt(id -> -this.loans.getOrDefault(id, 0))
+                    .thenComparing(id -> entries.get(id).getTitle(), String.CASE_INSENSITIVE_ORDER)
+                    .thenComparingInt(id -> id);
+            this.trie = new PrefixTrie(MAX_SUGGESTIONS, rank);
+        }
+
+        void add(Title t) {
+            String[] words = tokens(t.getTitle() + " " + t.getAuthor());
+            entries.put(t.getTitleID(), new TitleSuggestion(t.getTitleID(), t.getTitle(), t.getAuthor()));
+            tokens.put(t.getTitleID(), words);
+            for (String word : words) {
+                trie.add(word, t.getTitleID());
+            }
+        }
+
+        void remove(int titleID) {
+            String[] words = tokens.remove(titleID);
+            if (words != null) {
+                for (String word : words) {
+                    trie.remove(word, titleID);
+                }
+            }
+            entries.remove(titleID);
+        }
+
+        // The trie ranks by loans, so a title whose count moved leaves it and comes back at its new rank.
+        void setLoans(int titleID, int count) {
+            if (loans.getOrDefault(titleID, 0) == count) {
+                return;
+            }
+            String[] words = tokens.get(titleID);
+            if (words != null) {
+                for (String word : words) {
+                    trie.remove(word, titleID);
+                }
+            }
+            loans.put(titleID, count);
+            if (words != null) {
+                for (String word : words) {
+                    trie.add(word, titleID);
+                }
+            }
+        }
+    }
+
+    private final TitleDAO titleDAO;
+    private final BookRecordDAO bookRecordDAO;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Snapshot current = new Snapshot(new HashMap<>());
+    private List<Consumer<Snapshot>> pendingDuringRebuild; // Non-null while a rebuild is running.
+
+    public TitleSuggestIndex(TitleDAO titleDAO, BookRecordDAO bookRecordDAO) {
+        this.titleDAO = titleDAO;
+        this.bookRecordDAO = bookRecordDAO;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            // Build the new snapshot without blocking queries.
+            Snapshot fresh = new Snapshot(bookRecordDAO.countLoansByTitle());
+            for (Title t : titleDAO.findAllVisible()) {
+                fresh.add(t);
+            }
+
+            // Swap it in, replaying any edits that committed while we were reading.
+            lock.writeLock().lock();
+            try {
+                for (Consumer<Snapshot> edit : pendingDuringRebuild) {
+                    edit.accept(fresh);
+                }
+                current = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Title suggest index rebuild failed, keeping the previous one: " + e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Pick up new circulation counts: one read of title_loan_counts, then re-rank only what changed.
+    @Scheduled(cron = "${library.suggest.refresh-cron:0 */15 * * * *}")
+    public void refreshLoans() {
+        Map<Integer, Integer> counts;
+        try {
+            counts = bookRecordDAO.countLoansByTitle();
+        } catch (RuntimeException e) {
+            System.err.println("Title suggest loan refresh failed, keeping the current ranking: " + e.getMessage());
+            return;
+        }
+        apply(s -> counts.forEach(s::setLoans));
+    }
+
+    // Full background rebuild once the surrounding transaction commits (bulk imports).
+    public void rebuildAfterCommit() {
+        AfterCommit.run(() -> {
+            Thread rebuild = new Thread(this::rebuild, "title-suggest-rebuild");
+            rebuild.setDaemon(true);
+            rebuild.start();
+        });
+    }
+
+    // Re-index a title once the surrounding transaction commits (hidden titles are dropped).
+    public void upsertAfterCommit(Title title) {
+        AfterCommit.run(() -> apply(s -> {
+            s.remove(title.getTitleID());
+            if (title.isVisible()) {
+                s.add(title);
+            }
+        }));
+    }
+
+    // Drop a title once the surrounding transaction commits.
+    public void removeAfterCommit(int titleID) {
+        AfterCommit.run(() -> apply(s -> s.remove(titleID)));
+    }
+
+    private void apply(Consumer<Snapshot> edit) {
+        lock.writeLock().lock();
+        try {
+            edit.accept(current);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(edit);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to MAX_SUGGESTIONS titles where every query word is a prefix of some word in the title or author.
+     * The last word may be partial ("harry pot").
+     */
+    public List<TitleSuggestion> suggest(String query) {
+        String[] terms = tokens(query);
+        if (terms.length == 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            Snapshot s = current;
+            int[] ids;
+            if (terms.length == 1) {
+                // Served from the per-node top-k cache.
+                ids = s.trie.top(terms[0], MAX_SUGGESTIONS);
+            } else {
+                // Start from the most selective word, then check the others against each candidate's tokens.
+                String driver = Arrays.stream(terms).min(Comparator.comparingInt(s.trie::countWithPrefix)).get();
+                ids = s.trie.idsWithPrefix(driver).stream()
+                        .filter(id -> matchesAll(s.tokens.get(id), terms))
+                        .sorted(s.rank)
+                        .limit(MAX_SUGGESTIONS)
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+            }
+
+            List<TitleSuggestion> out = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                out.add(s.entries.get(id));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean matchesAll(String[] words, String[] terms) {
+        for (String term : terms) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Lower-case, strip accents, split on anything that isn't a letter or digit.
+    static String[] tokens(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(SEPARATORS.split(folded.toLowerCase(Locale.ROOT)))
+                .filter(w -> !w.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+}
@@ -2,9 +2,14 @@ package edu.sjsu.library.dao;
 
 import edu.sjsu.library.models.User;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class UserDAO {
@@ -24,40 +29,67 @@ public class UserDAO {
                 email VARCHAR(100) UNIQUE NOT NULL,
                 passwordhash VARCHAR(255) NOT NULL,
                 role VARCHAR(20) NOT NULL, 
-                status VARCHAR(20) NOT NULL
+                status VARCHAR(20) NOT NULL,
+                version BIGINT NOT NULL DEFAULT 0,
+                updated_at TIMESTAMP NOT NULL DEFAULT now()
             )   
             """;
         jdbc.execute(sql);
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users (updated_at)");
     }
 
     public List<User> findAll() {
         return jdbc.query(
-            "SELECT id, fname, lname, email, passwordhash, role, status FROM users ORDER BY id",
-            (rs, rowNum) -> new User(
-                rs.getInt("id"),
-                rs.getString("fname"),
-                rs.getString("lname"),
-                rs.getString("email"),
-                rs.getString("passwordhash"),
-                User.UserRole.valueOf(rs.getString("role").trim().toUpperCase()),
-                User.UserStatus.valueOf(rs.getString("status").trim().toUpperCase())
-            )
+            "SELECT id, fname, lname, email, passwordhash, role, status, version FROM users ORDER BY id",
+            this::mapRow
         );
     }
 
+    // One keyset page of users (ordered by id), with the optional staff-page filters pushed into SQL
+    // so that a filtered page is still a full page.
+    public List<User> findPage(String emailContains, User.UserRole role, User.UserStatus status, int afterId, int limit) {
+        StringBuilder sql = new StringBuilder(
+            "SELECT id, fname, lname, email, passwordhash, role, status, version FROM users WHERE id > ?");
+        List<Object> params = new ArrayList<>();
+        params.add(afterId);
+
+        if (emailContains != null && !emailContains.isEmpty()) {
+            sql.append(" AND POSITION(LOWER(?) IN LOWER(email)) > 0");
+            params.add(emailContains);
+        }
+        if (role != null) {
+            sql.append(" AND role = ?");
+            params.add(role.name());
+        }
+        if (status != null) {
+            sql.append(" AND status = ?");
+            params.add(status.name());
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        params.add(limit);
+
+        return jdbc.query(sql.toString(), this::mapRow, params.toArray());
+    }
+
+    private User mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {
+        User user = new User(
+            rs.getInt("id"),
+            rs.getString("fname"),
+            rs.getString("lname"),
+            rs.getString("email"),
+            rs.getString("passwordhash"),
+            User.UserRole.valueOf(rs.getString("role").trim().toUpperCase()),
+            User.UserStatus.valueOf(rs.getString("status").trim().toUpperCase())
+        );
+        user.setVersion(rs.getLong("version"));
+        return user;
+    }
+
     public User findById(int id) {
         try {
             return jdbc.queryForObject(
-                "SELECT id, fname, lname, email, passwordhash, role, status FROM users WHERE id = ?",
-                (rs, rowNum) -> new User(
-                    rs.getInt("id"),
-                    rs.getString("fname"),
-                    rs.getString("lname"),
-                    rs.getString("email"),
-                    rs.getString("passwordhash"),
-                    User.UserRole.valueOf(rs.getString("role").trim().toUpperCase()),
-                    User.UserStatus.valueOf(rs.getString("status").trim().toUpperCase())
-                ),
+                "SELECT id, fname, lname, email, passwordhash, role, status, version FROM users WHERE id = ?",
+                this::mapRow,
                 id
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
@@ -68,16 +100,8 @@ public class UserDAO {
     public User findByEmail(String email) {
         try {
             return jdbc.queryForObject(
-                "SELECT id, fname, lname, email, passwordhash, role, status FROM users WHERE email = ?",
-                (rs, rowNum) -> new User(
-                    rs.getInt("id"),
-                    rs.getString("fname"),
-                    rs.getString("lname"),
-                    rs.getString("email"),
-                    rs.getString("passwordhash"),
-                    User.UserRole.valueOf(rs.getString("role").trim().toUpperCase()),
-                    User.UserStatus.valueOf(rs.getString("status").trim().toUpperCase())
-                ),
+                "SELECT id, fname, lname, email, passwordhash, role, status, version FROM users WHERE email = ?",
+                this::mapRow,
                 email
             );
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
@@ -99,11 +123,51 @@ public class UserDAO {
          return newId;
      }
 
+    // Bumps version and updated_at; the new version is copied back onto u.
     public int update(User u) {
-        return jdbc.update(
-            "UPDATE users SET fname = ?, lname = ?, email = ?, passwordhash = ?, role = ?, status = ? WHERE id = ?",
+        List<Long> versions = jdbc.queryForList(
+            """
+            UPDATE users
+               SET fname = ?, lname = ?, email = ?, passwordhash = ?, role = ?, status = ?,
+                   version = version + 1, updated_at = now()
+             WHERE id = ?
+            RETURNING version
+            """,
+            Long.class,
             u.getFname(), u.getLname(), u.getEmail(), u.getPasswordHash(), u.getRole().name(), u.getStatus().name(), u.getUserID()
         );
+        if (versions.isEmpty()) {
+            return 0;
+        }
+        u.setVersion(versions.get(0));
+        return 1;
+    }
+
+    // Current version of every user written since the given time (DB clock), or of every user
+    // ever written when since is null. Also returns the DB time of the read, for the next call.
+    public VersionChanges findVersionsChangedSince(LocalDateTime since) {
+        String changed = since == null ? "u.version > 0" : "u.updated_at > ?";
+        Object[] args = since == null ? new Object[0] : new Object[] { since };
+
+        Map<Integer, Long> versions = new HashMap<>();
+        LocalDateTime[] readAt = new LocalDateTime[1];
+        jdbc.query(
+            // The one-row clock keeps read_at coming back when nothing changed.
+            "SELECT clock.read_at, u.id, u.version " +
+            "FROM (SELECT now()::timestamp AS read_at) clock LEFT JOIN users u ON " + changed,
+            (RowCallbackHandler) rs -> {
+                readAt[0] = rs.getObject("read_at", LocalDateTime.class);
+                int id = rs.getInt("id");
+                if (!rs.wasNull()) {
+                    versions.put(id, rs.getLong("version"));
+                }
+            },
+            args
+        );
+        return new VersionChanges(readAt[0], versions);
+    }
+
+    public record VersionChanges(LocalDateTime readAt, Map<Integer, Long> versions) {
     }
 
     public int delete(int id) {
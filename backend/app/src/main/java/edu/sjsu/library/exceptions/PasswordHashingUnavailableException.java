@@ -0,0 +1,6 @@
+package edu.sjsu.library.exceptions;
+
+public class PasswordHashingUnavailableException extends RuntimeException {
+    public PasswordHashingUnavailableException(String message) { super(message); }
+    public PasswordHashingUnavailableException(String message, Throwable cause) { super(message, cause); }
+}
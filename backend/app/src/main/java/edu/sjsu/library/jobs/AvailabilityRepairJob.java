@@ -0,0 +1,31 @@
+/*
+    Nightly consistency check for the title_availability counters.
+    CopyDAO keeps them exact for everything that goes through the app; this recount catches
+    anything that didn't (manual SQL, restored backups, bugs) and logs how many rows it fixed.
+*/
+package edu.sjsu.library.jobs;
+
+import edu.sjsu.library.dao.TitleAvailabilityDAO;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+public class AvailabilityRepairJob {
+
+    private final TitleAvailabilityDAO titleAvailabilityDAO;
+
+    public AvailabilityRepairJob(TitleAvailabilityDAO titleAvailabilityDAO) {
+        this.titleAvailabilityDAO = titleAvailabilityDAO;
+    }
+
+    @Scheduled(cron = "${library.jobs.availability-repair.cron:0 30 3 * * *}")
+    @Transactional
+    public void run() {
+        int repaired = titleAvailabilityDAO.repair();
+        if (repaired > 0) {
+            System.out.println("Availability repair: corrected " + repaired + " title_availability rows.");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+    Keeps book_records small: nightly (and once at startup) it makes sure this year's and next
+    year's partitions exist, then moves loans returned more than library.loans.archive-after-days
+    ago into book_records_archive. The move runs library.loans.archive-batch-size rows per
+    statement, each its own short transaction, so checkouts and returns are never held up for long.
+*/
+package edu.sjsu.library.jobs;
+
+import edu.sjsu.library.dao.LoanArchiveDAO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+public class LoanArchivalJob {
+
+    private final LoanArchiveDAO loanArchiveDAO;
+    private final int archiveAfterDays;
+    private final int batchSize;
+
+    public LoanArchivalJob(LoanArchiveDAO loanArchiveDAO,
+                           @Value("${library.loans.archive-after-days:730}") int archiveAfterDays,
+                           @Value("${library.loans.archive-batch-size:5000}") int batchSize) {
+        this.loanArchiveDAO = loanArchiveDAO;
+        this.archiveAfterDays = archiveAfterDays;
+        this.batchSize = batchSize;
+    }
+
+    // New loans should never land in the DEFAULT partition.
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureLivePartitions() {
+        int year = LocalDateTime.now().getYear();
+        loanArchiveDAO.ensureYearPartition(LoanArchiveDAO.LIVE, year);
+        loanArchiveDAO.ensureYearPartition(LoanArchiveDAO.LIVE, year + 1);
+    }
+
+    // Not @Transactional on purpose: every batch commits on its own.
+    @Scheduled(cron = "${library.jobs.loan-archival.cron:0 0 4 * * *}")
+    public void run() {
+        ensureLivePartitions();
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        Integer oldestYear = loanArchiveDAO.findOldestArchivableYear(cutoff);
+        if (oldestYear == null) {
+            return;
+        }
+        for (int year = oldestYear; year <= cutoff.getYear(); year++) {
+            loanArchiveDAO.ensureYearPartition(LoanArchiveDAO.ARCHIVE, year);
+        }
+
+        long started = System.nanoTime();
+        int total = 0;
+        int moved;
+        do {
+            moved = loanArchiveDAO.archiveReturnedBefore(cutoff, batchSize);
+            total += moved;
+        } while (moved == batchSize);
+
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        System.out.println("Loan archival: moved " + total + " loan records returned before " + cutoff.toLocalDate()
+            + " in " + millis + " ms.");
+    }
+}
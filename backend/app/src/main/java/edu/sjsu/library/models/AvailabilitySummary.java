@@ -7,6 +7,7 @@ public class AvailabilitySummary {
     private int totalCopies;
     private int availableCopies;
     private int checkedOutCopies;
+    private int reservedCopies;
     private int otherStatusCopies; // Lost, damaged, maintenance, reserved.
     
     public AvailabilitySummary(int totalCopies, int availableCopies, int checkedOutCopies, int otherStatusCopies) {
@@ -15,11 +16,18 @@ public class AvailabilitySummary {
         this.checkedOutCopies = checkedOutCopies;
         this.otherStatusCopies = otherStatusCopies;
     }
+
+    // From the title_availability counters, which track reserved copies separately.
+    public AvailabilitySummary(int totalCopies, int availableCopies, int checkedOutCopies, int reservedCopies, int lostOrDamagedCopies) {
+        this(totalCopies, availableCopies, checkedOutCopies, reservedCopies + lostOrDamagedCopies);
+        this.reservedCopies = reservedCopies;
+    }
     
     // Getters.
     public int getTotalCopies() { return totalCopies; }
     public int getAvailableCopies() { return availableCopies; }
     public int getCheckedOutCopies() { return checkedOutCopies; }
+    public int getReservedCopies() { return reservedCopies; }
     public int getOtherStatusCopies() { return otherStatusCopies; }
     public boolean isAvailable() { return availableCopies > 0; }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+/*
+    This is a small model for one page of catalog results plus facet counts.
+    The counts cover every title matching the filters, not just the titles on this page.
+*/
+package edu.sjsu.library.models;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class CatalogPage {
+    private final List<Title> titles = new ArrayList<>();
+    private final Map<Title.Genre, Integer> genreCounts = new EnumMap<>(Title.Genre.class);
+    private final Map<Integer, Integer> decadeCounts = new TreeMap<>(); // 1990 -> titles from 1990-1999.
+    private int availableCount;
+    private int unavailableCount;
+
+    public CatalogPage() {
+    }
+
+    // Getters.
+    public List<Title> getTitles() { return titles; }
+    public Map<Title.Genre, Integer> getGenreCounts() { return genreCounts; }
+    public Map<Integer, Integer> getDecadeCounts() { return decadeCounts; }
+    public int getAvailableCount() { return availableCount; }
+    public int getUnavailableCount() { return unavailableCount; }
+    public int getTotalCount() { return availableCount + unavailableCount; }
+
+    // Setters.
+    public void setAvailableCount(int availableCount) { this.availableCount = availableCount; }
+    public void setUnavailableCount(int unavailableCount) { this.unavailableCount = unavailableCount; }
+}
@@ -0,0 +1,30 @@
+/*
+    This is a small model for one line of a batch copy order: "count new copies of titleID, shelved at location".
+    Barcodes are generated by the database (see CopyDAO.insertBatch).
+*/
+package edu.sjsu.library.models;
+
+public class CopyBatchRequest {
+    private int titleID;
+    private int count;
+    private String location;
+
+    public CopyBatchRequest() {
+    }
+
+    public CopyBatchRequest(int titleID, int count, String location) {
+        this.titleID = titleID;
+        this.count = count;
+        this.location = location;
+    }
+
+    // Getters.
+    public int getTitleID() { return titleID; }
+    public int getCount() { return count; }
+    public String getLocation() { return location; }
+
+    // Setters.
+    public void setTitleID(int titleID) { this.titleID = titleID; }
+    public void setCount(int count) { this.count = count; }
+    public void setLocation(String location) { this.location = location; }
+}
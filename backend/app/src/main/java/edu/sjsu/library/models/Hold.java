@@ -19,7 +19,7 @@ public class Hold {
     private LocalDateTime placedAt;
     private LocalDateTime readyAt;
     private LocalDateTime pickupExpire;
-    private int position; // Position is based on a FIFO queue where 1 is the very beginning of the queue (first to be served).
+    private int position; // Position is based on a FIFO queue where 1 is the very beginning of the queue (first to be served). Computed on read (see HoldDAO); 0 once the hold is no longer active.
 
     private static final int PICKUP_WINDOW_DAYS = 3; // Members have 3 days to pickup their copy after it's ready.
     
@@ -0,0 +1,67 @@
+/*
+    This is a small model for the outcome of one bulk catalog import.
+    Skipped = rows rejected by the parser + repeats of an ISBN within the file + rows identical to what's already stored.
+*/
+package edu.sjsu.library.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResult {
+    public static final int MAX_ERRORS = 100; // Only the first few rejected rows are described.
+
+    private final String format;
+    private int read;               // Records found in the input, valid or not.
+    private int rejected;           // Records that failed validation and were never staged.
+    private int duplicates;         // Later rows in the file won over earlier ones with the same ISBN.
+    private int inserted;
+    private int updated;
+    private int unchanged;
+    private long elapsedMillis;
+    private final List<String> errors = new ArrayList<>();
+
+    public ImportResult(String format) {
+        this.format = format;
+    }
+
+    // Getters.
+    public String getFormat() { return format; }
+    public int getRead() { return read; }
+    public int getRejected() { return rejected; }
+    public int getDuplicates() { return duplicates; }
+    public int getInserted() { return inserted; }
+    public int getUpdated() { return updated; }
+    public int getUnchanged() { return unchanged; }
+    public int getSkipped() { return rejected + duplicates + unchanged; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public List<String> getErrors() { return errors; }
+
+    // Records processed per second over the whole import (parse + stage + merge).
+    public long getRecordsPerSecond() {
+        return elapsedMillis == 0 ? read : Math.round(read * 1000.0 / elapsedMillis);
+    }
+
+    // Setters.
+    public void setDuplicates(int duplicates) { this.duplicates = duplicates; }
+    public void setInserted(int inserted) { this.inserted = inserted; }
+    public void setUpdated(int updated) { this.updated = updated; }
+    public void setUnchanged(int unchanged) { this.unchanged = unchanged; }
+    public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+
+    public void countRead() { read++; }
+
+    public void reject(int line, String reason) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("Line " + line + ": " + reason);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Imported %d records (%s) in %d ms (%d/s): %d inserted, %d updated, %d skipped "
+                + "(%d rejected, %d duplicate ISBNs in file, %d unchanged).",
+                read, format, elapsedMillis, getRecordsPerSecond(), inserted, updated, getSkipped(),
+                rejected, duplicates, unchanged);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+    A loan record plus everything a loan list or loan detail page shows next to it: the copy
+    (barcode, location), its title, the borrower's name and the loan's fine totals. All of it is
+    read in the same joined query as the loan (see BookRecordDAO), so a page of loans is one
+    request. It is still a BookRecord, so it serializes with every loan field the existing
+    clients already use.
+*/
+package edu.sjsu.library.models;
+
+import java.math.BigDecimal;
+
+public class LoanView extends BookRecord {
+    private final String barcode;
+    private final String location;
+    private final Integer titleID;
+    private final String title;
+    private final String author;
+    private final String borrowerFname;
+    private final String borrowerLname;
+    private final BigDecimal fineTotal;
+    private final BigDecimal unpaidFines;
+
+    public LoanView(BookRecord loan, String barcode, String location, Integer titleID, String title, String author,
+                    String borrowerFname, String borrowerLname, BigDecimal fineTotal, BigDecimal unpaidFines) {
+        super(loan.getLoanID(), loan.getCopyID(), loan.getUserID(), loan.getCheckoutDate(),
+              loan.getDueDate(), loan.getReturnDate(), loan.getRenewCount());
+        this.barcode = barcode;
+        this.location = location;
+        this.titleID = titleID;
+        this.title = title;
+        this.author = author;
+        this.borrowerFname = borrowerFname;
+        this.borrowerLname = borrowerLname;
+        this.fineTotal = fineTotal;
+        this.unpaidFines = unpaidFines;
+    }
+
+    // Getters.
+    public String getBarcode() { return barcode; }
+    public String getLocation() { return location; }
+    public Integer getTitleID() { return titleID; }
+    public String getTitle() { return title; }
+    public String getAuthor() { return author; }
+    public String getBorrowerFname() { return borrowerFname; }
+    public String getBorrowerLname() { return borrowerLname; }
+    public String getBorrowerName() {
+        return borrowerFname == null ? null : borrowerFname + " " + borrowerLname; // null once the account is gone.
+    }
+    public BigDecimal getFineTotal() { return fineTotal; } // Every fine on this loan, paid or not.
+    public BigDecimal getUnpaidFines() { return unpaidFines; }
+}
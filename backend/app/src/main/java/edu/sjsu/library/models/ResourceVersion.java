@@ -0,0 +1,42 @@
+/*
+    This is a small model for conditional GETs: a strong ETag plus a Last-Modified time.
+    The ETag is a hash of the row versions behind a response and the viewer variant
+    (e.g. staff vs member), so it changes whenever anything shown on the page changes.
+*/
+package edu.sjsu.library.models;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+
+public class ResourceVersion {
+    private final String fingerprint;   // Row versions, e.g. "title:12:v3|copies:4:9".
+    private final LocalDateTime lastModified;
+
+    public ResourceVersion(String fingerprint, LocalDateTime lastModified) {
+        this.fingerprint = fingerprint;
+        this.lastModified = lastModified;
+    }
+
+    // Strong ETag (quoted) for this version as seen by the given viewer variant.
+    public String eTag(String variant) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] digest = sha.digest((fingerprint + "|" + variant).getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Last-Modified as epoch millis (what WebRequest.checkNotModified expects).
+    public long lastModifiedMillis() {
+        return lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public String getFingerprint() { return fingerprint; }
+    public LocalDateTime getLastModified() { return lastModified; }
+}
@@ -0,0 +1,47 @@
+/*
+    This is a small model to help with composing catalog searches.
+    Any field left null is simply not filtered on.
+*/
+package edu.sjsu.library.models;
+
+public class TitleQuery {
+    private String title;       // Case-insensitive substring match.
+    private String author;      // Case-insensitive substring match.
+    private Title.Genre genre;
+    private Integer startYear;  // Inclusive.
+    private Integer endYear;    // Inclusive.
+    private boolean visibleOnly;
+    private boolean availableOnly; // At least one AVAILABLE copy.
+    private Integer afterId;    // Keyset cursor: only titles with a larger id.
+    private Integer limit;      // Page size (null means unbounded).
+
+    public TitleQuery() {
+    }
+
+    // Getters.
+    public String getTitle() { return title; }
+    public String getAuthor() { return author; }
+    public Title.Genre getGenre() { return genre; }
+    public Integer getStartYear() { return startYear; }
+    public Integer getEndYear() { return endYear; }
+    public boolean isVisibleOnly() { return visibleOnly; }
+    public boolean isAvailableOnly() { return availableOnly; }
+    public Integer getAfterId() { return afterId; }
+    public Integer getLimit() { return limit; }
+
+    // True if a title or author text filter is set (the part CatalogIndex can match).
+    public boolean hasTextFilter() {
+        return (title != null && !title.isBlank()) || (author != null && !author.isBlank());
+    }
+
+    // Setters.
+    public void setTitle(String title) { this.title = title; }
+    public void setAuthor(String author) { this.author = author; }
+    public void setGenre(Title.Genre genre) { this.genre = genre; }
+    public void setStartYear(Integer startYear) { this.startYear = startYear; }
+    public void setEndYear(Integer endYear) { this.endYear = endYear; }
+    public void setVisibleOnly(boolean visibleOnly) { this.visibleOnly = visibleOnly; }
+    public void setAvailableOnly(boolean availableOnly) { this.availableOnly = availableOnly; }
+    public void setAfterId(Integer afterId) { this.afterId = afterId; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+}
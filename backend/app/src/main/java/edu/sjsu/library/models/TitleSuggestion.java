@@ -0,0 +1,21 @@
+/*
+    This is a small model for one typeahead suggestion.
+*/
+package edu.sjsu.library.models;
+
+public class TitleSuggestion {
+    private int titleID;
+    private String title;
+    private String author;
+
+    public TitleSuggestion(int titleID, String title, String author) {
+        this.titleID = titleID;
+        this.title = title;
+        this.author = author;
+    }
+
+    // Getters.
+    public int getTitleID() { return titleID; }
+    public String getTitle() { return title; }
+    public String getAuthor() { return author; }
+}
@@ -20,6 +20,7 @@ public class User {
         RESTRICTED
     };
     private UserStatus status;
+    private long version; // Row version, bumped by every update (see UserPrincipal).
 
     // Constructor for new user (database auto-increments, default UserStatus is ACTIVE).
     public User(String fname, String lname, String email, String passwordhash, UserRole role) {
@@ -50,12 +51,14 @@ public class User {
     public String getPasswordHash() { return this.passwordhash; }
     public UserRole getRole() { return role; }
     public UserStatus getStatus() { return status; }
+    public long getVersion() { return version; }
 
     // Setters:
     public void setFname(String fname) { this.fname = fname; }
     public void setLname(String lname) { this.lname = lname; }
     public void setEmail(String email) { this.email = email; }
     public void setPasswordHash(String passwordhash) { this.passwordhash = passwordhash; }
+    public void setVersion(long version) { this.version = version; }
 
     // Public methods:
     public boolean isActive() { return this.status == UserStatus.ACTIVE; }
@@ -0,0 +1,48 @@
+package edu.sjsu.library.models;
+
+import java.io.Serializable;
+
+// Immutable copy of the logged-in user, kept in the session (attribute "PRINCIPAL") next to USER_ID.
+// It is trusted for as long as its version matches the users row (see RequestPrincipal / UserVersions),
+// so ordinary requests can authorize without reading the users table. The password hash is never kept.
+public final class UserPrincipal implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String SESSION_ATTRIBUTE = "PRINCIPAL";
+
+    private final int userID;
+    private final String fname;
+    private final String lname;
+    private final String email;
+    private final User.UserRole role;
+    private final User.UserStatus status;
+    private final long version;
+
+    private UserPrincipal(User user) {
+        this.userID = user.getUserID();
+        this.fname = user.getFname();
+        this.lname = user.getLname();
+        this.email = user.getEmail();
+        this.role = user.getRole();
+        this.status = user.getStatus();
+        this.version = user.getVersion();
+    }
+
+    public static UserPrincipal of(User user) {
+        return new UserPrincipal(user);
+    }
+
+    // Getters:
+    public int getUserID() { return userID; }
+    public User.UserRole getRole() { return role; }
+    public User.UserStatus getStatus() { return status; }
+    public long getVersion() { return version; }
+
+    // A fresh User with the snapshot's fields (password hash left null). Never pass it to UserDAO.update
+    // (UserService.save refuses a user without a hash).
+    public User toUser() {
+        User user = new User(userID, fname, lname, email, null, role, status);
+        user.setVersion(version);
+        return user;
+    }
+}
@@ -5,13 +5,20 @@ package edu.sjsu.library.services;
 
 import edu.sjsu.library.utils.AuthorizationUtils;
 import edu.sjsu.library.models.AvailabilitySummary;
+import edu.sjsu.library.models.CatalogPage;
+import edu.sjsu.library.models.ResourceVersion;
 import edu.sjsu.library.models.Copy;
 import java.util.stream.Collectors;
 import java.util.List;
+import java.util.Map;
 import java.time.Year;
 import edu.sjsu.library.dao.TitleDAO;
+import edu.sjsu.library.dao.CatalogIndex;
+import edu.sjsu.library.dao.TitleSuggestIndex;
 import edu.sjsu.library.dao.CopyDAO;
+import edu.sjsu.library.dao.TitleAvailabilityDAO;
 import edu.sjsu.library.models.Title;
+import edu.sjsu.library.models.TitleQuery;
 import edu.sjsu.library.models.User;
 
 import org.springframework.stereotype.Service;
@@ -24,12 +31,19 @@ public class BookService {
     private final TitleDAO titleDAO;
     private final CopyDAO copyDAO;
     private final AuthorizationUtils authUtils;
+    private final CatalogIndex catalogIndex;
+    private final TitleAvailabilityDAO titleAvailabilityDAO;
+    private final TitleSuggestIndex titleSuggestIndex;
 
     // Constructor:
-    public BookService(TitleDAO titleDAO, CopyDAO copyDAO, AuthorizationUtils authUtils) {
+    public BookService(TitleDAO titleDAO, CopyDAO copyDAO, AuthorizationUtils authUtils, CatalogIndex catalogIndex,
+                       TitleAvailabilityDAO titleAvailabilityDAO, TitleSuggestIndex titleSuggestIndex) {
         this.titleDAO = titleDAO;
         this.copyDAO = copyDAO;
         this.authUtils = authUtils;
+        this.catalogIndex = catalogIndex;
+        this.titleAvailabilityDAO = titleAvailabilityDAO;
+        this.titleSuggestIndex = titleSuggestIndex;
     }
 
     // Helper methods:
@@ -62,9 +76,14 @@ public class BookService {
 
         // Insert into DB.
         int titleID = titleDAO.insert(newTitle);
+        Title created = titleDAO.findById(titleID);
+
+        // Make it searchable once the insert commits.
+        catalogIndex.indexAfterCommit(created);
+        titleSuggestIndex.upsertAfterCommit(created);
 
         // Return the created title.
-        return titleDAO.findById(titleID);
+        return created;
     }
 
     // 2. Remove a title from the catalogue (STAFF ONLY).
@@ -81,6 +100,8 @@ public class BookService {
 
         // Return the deletion result.
         int affectedRows = titleDAO.delete(titleID);
+        catalogIndex.removeAfterCommit(titleID);
+        titleSuggestIndex.removeAfterCommit(titleID);
         return affectedRows > 0;
     }
 
@@ -91,7 +112,7 @@ public class BookService {
         authUtils.validateStaffAccess(requestorID);
 
         // Check if the title exists in our collection.
-        Title existingTitle = titleDAO.findById(titleID);
+        Title existingTitle = titleDAO.findByIdForUpdate(titleID);
         if (existingTitle == null) {
             throw new IllegalArgumentException("Title not found with ID: " + titleID);
         }
@@ -106,6 +127,8 @@ public class BookService {
 
         // Save changes to DB.
         titleDAO.update(existingTitle);
+        catalogIndex.indexAfterCommit(existingTitle);
+        titleSuggestIndex.upsertAfterCommit(existingTitle);
 
         return existingTitle;
     }
@@ -128,7 +151,7 @@ public class BookService {
         }
 
         // Return title information.
-        return titleDAO.findById(titleID);
+        return title;
     }
 
 
@@ -154,41 +177,31 @@ public class BookService {
     }
 
     // 6. Search titles by author (STAFF & MEMBERS can use this).
+    // Results are relevance-ranked and tolerate typos (see CatalogIndex / TitleDAO.rankedSearchByAuthor).
     public List<Title> searchByAuthor(String author, int requestorID) {
         
         // Confirm user is authenticated and get user details.
         User requestor = authUtils.getRequestor(requestorID);
         
-        // Find by author.
-        List<Title> titles = titleDAO.findByAuthor(author);
-        
-        // Filter view by role.
-        if (requestor.isStaff()) {
-            return titles; 
-        } else {
-            return titles.stream()
-                    .filter(Title::isVisible)
-                    .collect(Collectors.toList());
+        // Find by author, members only see visible titles.
+        if (catalogIndex.isReady()) {
+            return titleDAO.findByIds(catalogIndex.rankedSearchByAuthor(author, !requestor.isStaff()));
         }
+        return titleDAO.rankedSearchByAuthor(author, !requestor.isStaff());
     }
 
     // Search titles by title name (STAFF & MEMBERS can use this).
+    // Results are relevance-ranked and tolerate typos (see CatalogIndex / TitleDAO.rankedSearchByTitle).
     public List<Title> searchByTitle(String title, int requestorID) {
         
         // Confirm user is authenticated and get user details.
         User requestor = authUtils.getRequestor(requestorID);
         
-        // Find by title.
-        List<Title> titles = titleDAO.findByTitle(title);
-        
-        // Filter view by role.
-        if (requestor.isStaff()) {
-            return titles; 
-        } else {
-            return titles.stream()
-                    .filter(Title::isVisible)
-                    .collect(Collectors.toList());
+        // Find by title, members only see visible titles.
+        if (catalogIndex.isReady()) {
+            return titleDAO.findByIds(catalogIndex.rankedSearchByTitle(title, !requestor.isStaff()));
         }
+        return titleDAO.rankedSearchByTitle(title, !requestor.isStaff());
     }
 
     // 7. Search titles by genre (STAFF & MEMBERS can use this)
@@ -243,6 +256,42 @@ public class BookService {
         }
     }
 
+    // Version of a title and its copies, for conditional GETs (MEMBERS & STAFF can use this).
+    // Null if the title doesn't exist; callers then fall through to their normal not-found handling.
+    public ResourceVersion getTitleVersion(int titleID, int requestorID) {
+        authUtils.validateUserAccess(requestorID);
+        return titleDAO.findVersion(titleID);
+    }
+
+    // Version of the whole catalogue, for conditional GETs on catalog list and search pages (MEMBERS & STAFF can use this).
+    public ResourceVersion getCatalogVersion(int requestorID) {
+        authUtils.validateUserAccess(requestorID);
+        return titleDAO.findCatalogVersion();
+    }
+
+    // Search the catalogue and count genre / decade / availability facets for the whole result (MEMBERS & STAFF can use this).
+    public CatalogPage searchCatalogWithFacets(TitleQuery query, int requestorID) {
+
+        // Confirm user is authenticated and get user details.
+        User requestor = authUtils.getRequestor(requestorID);
+
+        // Members only ever see visible titles.
+        if (!requestor.isStaff()) {
+            query.setVisibleOnly(true);
+        }
+
+        // Title/author text is matched in the Lucene index when it's built; SQL applies the other filters,
+        // pages and counts facets over those hits. Browsing and structured filters go straight to SQL, as do
+        // text filters too broad to hand over as IDs (matchText returns null then).
+        if (catalogIndex.isReady() && query.hasTextFilter()) {
+            List<Integer> matches = catalogIndex.matchText(query);
+            if (matches != null) {
+                return titleDAO.searchWithFacets(query, matches);
+            }
+        }
+        return titleDAO.searchWithFacets(query);
+    }
+
     // 10. Get copies for a specific title (shows physical availability).
     public List<Copy> getCopiesForTitle(int titleID, int requestorID) {
 
@@ -280,39 +329,34 @@ public class BookService {
                 .collect(Collectors.toList());
     }
 
-    // 12. Filter titles by availability (use after search results)
-    public List<Title> filterTitlesByAvailability(List<Title> titles, boolean availableOnly, int requestorID) {
+    // Available-copy counts for a list of titles in a single query (MEMBERS & STAFF can use this).
+    // Titles with no available copies are left out of the map.
+    public Map<Integer, Integer> getAvailableCopyCounts(List<Integer> titleIDs, int requestorID) {
 
-        // Return all titles if no availability filter.
-        if (!availableOnly) {
-            return titles; 
-        }
-        
-        // Return by filter.
-        return titles.stream()
-                .filter(title -> {
-                    List<Copy> availableCopies = getAvailableCopiesForTitle(title.getTitleID(), requestorID);
-                    return !availableCopies.isEmpty(); // Has at least one available copy
-                })
-                .collect(Collectors.toList());
+        // Confirm user is authenticated and get user details.
+        User requestor = authUtils.getRequestor(requestorID);
+
+        // Members only count visible copies of visible titles (hidden titles report nothing available).
+        return copyDAO.countAvailableByTitles(titleIDs, !requestor.isStaff());
     }
 
     // 13. Get availability summary for a title
     public AvailabilitySummary getAvailabilitySummary(int titleID, int requestorID) {
 
-        // Get all copies for a title.
-        List<Copy> copies = getCopiesForTitle(titleID, requestorID);
-        
-        // Calculate statistics...
-        int total = copies.size();
-        int available = (int) copies.stream()
-                .filter(copy -> copy.getStatus() == Copy.CopyStatus.AVAILABLE)
-                .count();
-        int checkedOut = (int) copies.stream()
-                .filter(copy -> copy.getStatus() == Copy.CopyStatus.CHECKED_OUT)
-                .count();
-        int other = total - available - checkedOut; // Lost, damaged, maintenance, reserved.
+        // Confirm user is authenticated and get user details.
+        User requestor = authUtils.getRequestor(requestorID);
+
+        // Check if title exists and if user can view it.
+        Title title = titleDAO.findById(titleID);
+        if (title == null || !canUserViewTitle(title, requestorID)) {
+            throw new IllegalArgumentException("Title not found or not accessible.");
+        }
         
-        return new AvailabilitySummary(total, available, checkedOut, other);
+        // Staff: the counters are kept current by CopyDAO, so this is a single primary-key lookup.
+        // Members: the counters include hidden copies, so count the visible ones instead.
+        if (requestor.isStaff()) {
+            return titleAvailabilityDAO.findByTitleId(titleID);
+        }
+        return titleAvailabilityDAO.countVisibleByTitleId(titleID);
     }
 }
\ No newline at end of file
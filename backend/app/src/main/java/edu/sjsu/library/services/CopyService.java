@@ -5,10 +5,12 @@ import edu.sjsu.library.dao.TitleDAO;
 import edu.sjsu.library.dao.BookRecordDAO;
 import edu.sjsu.library.dao.HoldDAO;
 import edu.sjsu.library.models.Copy;
+import edu.sjsu.library.models.CopyBatchRequest;
 import edu.sjsu.library.models.Title;
 import edu.sjsu.library.models.User;
 import edu.sjsu.library.models.BookRecord;
 import edu.sjsu.library.models.Hold;
+import edu.sjsu.library.models.ResourceVersion;
 import edu.sjsu.library.utils.AuthorizationUtils;
 import edu.sjsu.library.exceptions.AuthorizationFailedException;
 
@@ -16,6 +18,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +31,9 @@ public class CopyService {
     private final HoldDAO holdDAO;
     private final AuthorizationUtils authUtils;
 
+    // Upper bound on copies created by one batch request.
+    public static final int MAX_BATCH_COPIES = 10_000;
+
     public CopyService(CopyDAO copyDAO, TitleDAO titleDAO, BookRecordDAO bookRecordDAO, HoldDAO holdDAO, AuthorizationUtils authUtils) {
         this.copyDAO = copyDAO;
         this.titleDAO = titleDAO;
@@ -36,10 +42,10 @@ public class CopyService {
         this.authUtils = authUtils;
     }
 
-    // 1. Get all copies (STAFF only)
-    public List<Copy> getAllCopies(int requestorID) {
+    // 1. Get all copies, one keyset page at a time (STAFF only)
+    public List<Copy> getAllCopies(int requestorID, int afterCopyID, int limit) {
         authUtils.validateStaffAccess(requestorID);
-        return copyDAO.findAll();
+        return copyDAO.findPage(afterCopyID, limit);
     }
 
     // 2. Get copy by ID (STAFF can view any, MEMBERS cannot)
@@ -48,6 +54,18 @@ public class CopyService {
         return copyDAO.findById(copyID);
     }
 
+    // Version of one copy, for conditional GETs (STAFF only). Null if the copy doesn't exist.
+    public ResourceVersion getCopyVersion(int copyID, int requestorID) {
+        authUtils.validateStaffAccess(requestorID);
+        return copyDAO.findVersion(copyID);
+    }
+
+    // Version of a title's copies, for conditional GETs (MEMBERS & STAFF). Null if the title doesn't exist.
+    public ResourceVersion getCopiesForTitleVersion(int titleID, int requestorID) {
+        authUtils.validateUserAccess(requestorID);
+        return titleDAO.findVersion(titleID);
+    }
+
     // 3. Get all copies for a title (STAFF can view any, MEMBERS can view visible copies only)
     public List<Copy> getCopiesForTitle(int titleID, int requestorID) {
         User requestor = authUtils.getRequestor(requestorID);
@@ -73,6 +91,44 @@ public class CopyService {
         return copyDAO.findById(copyID);
     }
 
+    // 4b. Add many copies at once, e.g. when a shipment arrives (STAFF only).
+    // All lines are validated first, then every copy is inserted in one statement with generated barcodes.
+    public List<Copy> addCopiesBatch(List<CopyBatchRequest> items, int requestorID) {
+        authUtils.validateStaffAccess(requestorID);
+
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one line.");
+        }
+        long total = 0;
+        for (CopyBatchRequest item : items) {
+            if (item.getCount() < 1) {
+                throw new IllegalArgumentException("Copy count must be at least 1 (title " + item.getTitleID() + ").");
+            }
+            if (item.getLocation() == null || item.getLocation().isBlank()) {
+                throw new IllegalArgumentException("Location is required (title " + item.getTitleID() + ").");
+            }
+            if (item.getLocation().length() > 100) {
+                throw new IllegalArgumentException("Location must be at most 100 characters (title " + item.getTitleID() + ").");
+            }
+            total += item.getCount();
+        }
+        if (total > MAX_BATCH_COPIES) {
+            throw new IllegalArgumentException("A batch can create at most " + MAX_BATCH_COPIES + " copies.");
+        }
+
+        // Validate that every title exists (one query for the whole batch).
+        Set<Integer> titleIDs = items.stream().map(CopyBatchRequest::getTitleID).collect(Collectors.toSet());
+        Set<Integer> found = titleDAO.findByIds(List.copyOf(titleIDs)).stream()
+                .map(Title::getTitleID)
+                .collect(Collectors.toSet());
+        titleIDs.removeAll(found);
+        if (!titleIDs.isEmpty()) {
+            throw new IllegalArgumentException("Cannot add copies: Title(s) do not exist: " + titleIDs);
+        }
+
+        return copyDAO.insertBatch(items);
+    }
+
     // 5. Update an existing copy (STAFF only)
     public Copy updateCopy(Copy updatedCopy, int requestorID) {
         authUtils.validateStaffAccess(requestorID);
@@ -147,7 +203,7 @@ public class CopyService {
     public Copy changeCopyStatus(int copyID, Copy.CopyStatus newStatus, int requestorID) {
         authUtils.validateStaffAccess(requestorID);
 
-        Copy copy = copyDAO.findById(copyID);
+        Copy copy = copyDAO.findByIdForUpdate(copyID);
         if (copy == null) {
             throw new IllegalArgumentException("Copy not found with ID: " + copyID);
         }
@@ -161,7 +217,7 @@ public class CopyService {
     public Copy setCopyVisibility(int copyID, boolean visible, int requestorID) {
         authUtils.validateStaffAccess(requestorID);
 
-        Copy copy = copyDAO.findById(copyID);
+        Copy copy = copyDAO.findByIdForUpdate(copyID);
         if (copy == null) {
             throw new IllegalArgumentException("Copy not found with ID: " + copyID);
         }
@@ -5,11 +5,11 @@ package edu.sjsu.library.services;
 
 // Adding dependencies...
 import edu.sjsu.library.dao.FineDAO;
-import edu.sjsu.library.dao.UserDAO;
 import edu.sjsu.library.dao.BookRecordDAO;
 import edu.sjsu.library.models.Fine;
 import edu.sjsu.library.models.User;
 import edu.sjsu.library.models.BookRecord;
+import edu.sjsu.library.utils.RequestPrincipal;
 import edu.sjsu.library.exceptions.AuthorizationFailedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,31 +19,32 @@ import edu.sjsu.library.exceptions.AuthenticationFailedException;
 
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Transactional // Most of the services require multiple database operations.
 public class FineService {
     private final FineDAO fineDAO;
-    private final UserDAO userDAO;
+    private final RequestPrincipal requestPrincipal;
     private final BookRecordDAO bookRecordDAO;
 
     // Constructor:
-    public FineService(FineDAO fineDAO, UserDAO userDAO, BookRecordDAO bookRecordDAO) {
+    public FineService(FineDAO fineDAO, RequestPrincipal requestPrincipal, BookRecordDAO bookRecordDAO) {
         this.fineDAO = fineDAO;
-        this.userDAO = userDAO;
+        this.requestPrincipal = requestPrincipal;
         this.bookRecordDAO = bookRecordDAO;
     }
 
     // 1. Get all fines for a user (don't support individual fine display).
     public List<Fine> getUserFines(int requestorID, int subjectUserID) {
         // Find user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
 
         // Validate that the subject user exists.
-        User subjectUser = userDAO.findById(subjectUserID);
+        User subjectUser = requestPrincipal.findUser(subjectUserID);
         if (subjectUser == null) {
             throw new IllegalArgumentException("Subject user not found with ID: " + subjectUserID);
         }
@@ -59,13 +60,13 @@ public class FineService {
     // 2. Get all outstanding fines for a user.
     public List<Fine> getOutstandingFines(int requestorID, int subjectUserID) {
         // Find the user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
 
         // Validate that the subject user exists.
-        User subjectUser = userDAO.findById(subjectUserID);
+        User subjectUser = requestPrincipal.findUser(subjectUserID);
         if (subjectUser == null) {
             throw new IllegalArgumentException("Subject user not found with ID: " + subjectUserID);
         }
@@ -87,7 +88,7 @@ public class FineService {
             throw new IllegalArgumentException("Fine not found with ID: " + fineID);
         }
 
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -111,7 +112,7 @@ public class FineService {
     // 4. Waive a fine. THIS IS AN ADMIN ONLY ACTION!
     public Fine waiveFine(int fineID, int requestorID) {
         // Check that the user calling this function is STAFF:
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -138,7 +139,7 @@ public class FineService {
 
     // 5. Create a new fine. THIS IS AN ADMIN ONLY ACTION!
     public Fine createFine(int subjectUserID, int loanID, BigDecimal amount, String reason, int requestorID) {
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         // Authorization concern: only library STAFF can create new fines.
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
@@ -154,7 +155,7 @@ public class FineService {
         }
 
         // Validate that the subject user exists.
-        User subjectUser = userDAO.findById(subjectUserID);
+        User subjectUser = requestPrincipal.findUser(subjectUserID);
         if (subjectUser == null) {
             throw new IllegalArgumentException("Subject user not found with ID: " + subjectUserID);
         }
@@ -196,7 +197,7 @@ public class FineService {
 
     // 8. Get all fines (STAFF only).
     public List<Fine> getAllFines(int requestorID) {
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -208,6 +209,33 @@ public class FineService {
         return fineDAO.findAll();
     }
 
+    // Get one keyset page of all fines (STAFF only).
+    public List<Fine> getAllFines(int requestorID, int afterFineID, int limit) {
+        User requestor = requestPrincipal.findUser(requestorID);
+        if (requestor == null) {
+            throw new AuthenticationFailedException("User not found.");
+        }
+        
+        if (!requestor.isStaff()) {
+            throw new AuthorizationFailedException("Access denied: staff privileges required.");
+        }
+        
+        return fineDAO.findPage(afterFineID, limit);
+    }
+
+    // Stream every fine to the sink (STAFF only). Read-only transaction so the DAO can use a cursor.
+    @Transactional(readOnly = true)
+    public void exportAllFines(int requestorID, Consumer<Fine> sink) {
+        User requestor = requestPrincipal.findUser(requestorID);
+        if (requestor == null) {
+            throw new AuthenticationFailedException("User not found.");
+        }
+        if (!requestor.isStaff()) {
+            throw new AuthorizationFailedException("Access denied: staff privileges required.");
+        }
+        fineDAO.streamAll(sink);
+    }
+
     // 9. Get fines by user (alias for getUserFines with different parameter order for controller convenience).
     public List<Fine> getFinesByUser(int subjectUserID, int requestorID) {
         return getUserFines(requestorID, subjectUserID);
@@ -215,7 +243,7 @@ public class FineService {
 
     // 10. Get single fine by ID.
     public Fine getFineById(int fineID, int requestorID) {
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -7,6 +7,7 @@ import edu.sjsu.library.dao.HoldDAO;
 import edu.sjsu.library.dao.TitleDAO;
 import edu.sjsu.library.dao.CopyDAO;
 import edu.sjsu.library.dao.BookRecordDAO;
+import edu.sjsu.library.dao.TitleAvailabilityDAO;
 import edu.sjsu.library.models.Hold;
 import edu.sjsu.library.models.Title;
 import edu.sjsu.library.models.Copy;
@@ -20,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,36 +32,20 @@ public class HoldService {
     private final TitleDAO titleDAO;
     private final CopyDAO copyDAO;
     private final BookRecordDAO bookRecordDAO;
+    private final TitleAvailabilityDAO titleAvailabilityDAO;
     private final AuthorizationUtils authUtils;
     
     // Constructor:
-    public HoldService(HoldDAO holdDAO, TitleDAO titleDAO, CopyDAO copyDAO, BookRecordDAO bookRecordDAO, AuthorizationUtils authUtils) {
+    public HoldService(HoldDAO holdDAO, TitleDAO titleDAO, CopyDAO copyDAO, BookRecordDAO bookRecordDAO,
+                       TitleAvailabilityDAO titleAvailabilityDAO, AuthorizationUtils authUtils) {
         this.holdDAO = holdDAO;
         this.titleDAO = titleDAO;
         this.copyDAO = copyDAO;
         this.bookRecordDAO = bookRecordDAO;
+        this.titleAvailabilityDAO = titleAvailabilityDAO;
         this.authUtils = authUtils;
     }
     
-    // Helper methods:
-    // Reorder hold queue after cancellation or expiration.
-    private void reorderHoldQueue(int titleID) {
-        
-        // Grab all active holds for a title and order by position.
-        List<Hold> holds = holdDAO.findByTitleOrderedByPosition(titleID);
-        
-        // Iterate over the holds in ascending order while assigning new consecutive positions. 
-        for (int i = 0; i < holds.size(); i++) {
-            Hold hold = holds.get(i);
-            int newPosition = i + 1;
-            
-            if (hold.getPosition() != newPosition) {
-                hold.setPosition(newPosition);
-                holdDAO.update(hold);
-            }
-        }
-    }
-
     // 1. Place a hold on a title (MEMBERS only - staff don't need holds).
     public Hold placeHold(int titleID, int requestorID) {
 
@@ -93,15 +79,11 @@ public class HoldService {
         }
         
         // Check if there are available copies (if yes, they should check out instead).
-        List<Copy> availableCopies = allCopies.stream()
-            .filter(copy -> copy.getStatus() == Copy.CopyStatus.AVAILABLE)
-            .collect(Collectors.toList());
-
-        if (!availableCopies.isEmpty()) {
+        if (titleAvailabilityDAO.findByTitleId(titleID).isAvailable()) {
             throw new IllegalArgumentException("Copies are currently available - please check out directly instead of placing a hold.");
         }
         
-        // Create the hold with next position in queue.
+        // Create the hold at the back of the queue (HoldDAO.insert assigns its queue key).
         int position = holdDAO.getNextPosition(titleID);
         Hold newHold = new Hold(requestorID, titleID, (Integer) null, position); // -1 b/c copyID not assigned yet.
         
@@ -129,7 +111,7 @@ public class HoldService {
         
         // If hold had a reserved copy, release it
         if (hold.getCopyID() != null) {
-            Copy copy = copyDAO.findById(hold.getCopyID());
+            Copy copy = copyDAO.findByIdForUpdate(hold.getCopyID());
             if (copy != null && copy.getStatus() == Copy.CopyStatus.RESERVED) {
                 copy.markAvailable();
                 copyDAO.update(copy);
@@ -137,13 +119,11 @@ public class HoldService {
         }
         
         // Mark hold as cancelled and clear the copyid reference
+        // Holds behind it move up on their own: positions are ranked when read (see HoldDAO).
         hold.markCancelled();
         hold.setCopyID(null);
         holdDAO.update(hold);
         
-        // Reorder the queue for this title
-        reorderHoldQueue(hold.getTitleID());
-        
         return true;
     }
     
@@ -154,7 +134,7 @@ public class HoldService {
         authUtils.validateStaffAccess(requestorID);
         
         // Verify copy exists and is available.
-        Copy copy = copyDAO.findById(copyID);
+        Copy copy = copyDAO.findByIdForUpdate(copyID);
         if (copy == null || copy.getStatus() != Copy.CopyStatus.AVAILABLE) {
             throw new IllegalArgumentException("Copy is not available for hold processing.");
         }
@@ -192,18 +172,15 @@ public class HoldService {
         }
         
         // Mark copy as checked out (this should integrate with LoanService)
-        Copy copy = copyDAO.findById(hold.getCopyID());
+        Copy copy = copyDAO.findByIdForUpdate(hold.getCopyID());
         if (copy != null) {
             copy.markCheckedOut();
             copyDAO.update(copy);
         }
         
-        // Mark hold as picked up.
+        // Mark hold as picked up (this leaves the queue, so the holds behind it move up).
         hold.markPickedUp();
         holdDAO.update(hold);
-
-        // Reorder the queue for this title.
-        reorderHoldQueue(hold.getTitleID());
         
         return true;
     }
@@ -221,7 +198,7 @@ public class HoldService {
         for (Hold expiredHold : expiredHolds) {
             // Mark copy as available again.
             if (expiredHold.getCopyID() != (Integer) null && expiredHold.getCopyID() != 0) {
-                Copy copy = copyDAO.findById(expiredHold.getCopyID());
+                Copy copy = copyDAO.findByIdForUpdate(expiredHold.getCopyID());
                 if (copy != null && copy.getStatus() == Copy.CopyStatus.RESERVED) {
                     copy.markAvailable();
                     copyDAO.update(copy);
@@ -274,6 +251,7 @@ public class HoldService {
     }
     
     // 8. Get hold queue position (MEMBERS & STAFF).
+    // The position is computed from the title's current queue when the hold is read; 0 once the hold is no longer active.
     public int getHoldPosition(int holdID, int requestorID) {
         User requestor = authUtils.getRequestor(requestorID);
         
@@ -323,17 +301,20 @@ public class HoldService {
         }
         
         // Check if copies are available (shouldn't place hold if available).
-        List<Copy> availableCopies = allCopies.stream()
-            .filter(copy -> copy.getStatus() == Copy.CopyStatus.AVAILABLE)
-            .collect(Collectors.toList());
+        return !titleAvailabilityDAO.findByTitleId(titleID).isAvailable();
+    }
 
-        return availableCopies.isEmpty();
+    // 10. Get all holds, one keyset page at a time (STAFF only).
+    public List<Hold> getAllHolds(int requestorID, int afterHoldID, int limit) {
+        authUtils.validateStaffAccess(requestorID);
+        return holdDAO.findPage(afterHoldID, limit);
     }
 
-    // 10. Get all holds (STAFF only).
-    public List<Hold> getAllHolds(int requestorID) {
+    // Stream every hold to the sink (STAFF only). Read-only transaction so the DAO can use a cursor.
+    @Transactional(readOnly = true)
+    public void exportAllHolds(int requestorID, Consumer<Hold> sink) {
         authUtils.validateStaffAccess(requestorID);
-        return holdDAO.findAll();
+        holdDAO.streamAll(sink);
     }
 
     // 11. Mark hold as ready (STAFF only).
@@ -350,7 +331,7 @@ public class HoldService {
         }
         
         // Verify copy exists and is available
-        Copy copy = copyDAO.findById(copyID);
+        Copy copy = copyDAO.findByIdForUpdate(copyID);
         if (copy == null) {
             throw new IllegalArgumentException("Copy not found with ID: " + copyID);
         }
@@ -390,19 +371,17 @@ public class HoldService {
         
         // Mark copy as available again if it was reserved
         if (hold.getCopyID() != null && hold.getCopyID() != 0) {
-            Copy copy = copyDAO.findById(hold.getCopyID());
+            Copy copy = copyDAO.findByIdForUpdate(hold.getCopyID());
             if (copy != null && copy.getStatus() == Copy.CopyStatus.RESERVED) {
                 copy.markAvailable();
                 copyDAO.update(copy);
             }
         }
         
+        // Expired holds leave the queue, so the holds behind it move up.
         hold.markExpired();
         holdDAO.update(hold);
         
-        // Reorder the queue
-        reorderHoldQueue(hold.getTitleID());
-        
         return hold;
     }
 }
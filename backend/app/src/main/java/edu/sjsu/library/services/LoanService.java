@@ -4,14 +4,15 @@
 package edu.sjsu.library.services;
 
 import edu.sjsu.library.dao.BookRecordDAO;
-import edu.sjsu.library.dao.UserDAO;
-import edu.sjsu.library.dao.FineDAO;
+import edu.sjsu.library.dao.FineAccrualDAO;
 import edu.sjsu.library.dao.CopyDAO;
 
 import edu.sjsu.library.models.User;
 import edu.sjsu.library.models.BookRecord;
-import edu.sjsu.library.models.Fine;
 import edu.sjsu.library.models.Copy;
+import edu.sjsu.library.models.LoanView;
+
+import edu.sjsu.library.utils.RequestPrincipal;
 
 import edu.sjsu.library.exceptions.AuthorizationFailedException;
 import edu.sjsu.library.exceptions.CheckoutNotAllowedException;
@@ -23,120 +24,94 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.ArrayList;
-import java.time.temporal.ChronoUnit; 
+import java.util.function.Consumer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Service
 @Transactional
 public class LoanService {
     private final BookRecordDAO bookRecordDAO;
-    private final UserDAO userDAO;
-    private final FineDAO fineDAO;
+    private final RequestPrincipal requestPrincipal;
+    private final FineAccrualDAO fineAccrualDAO;
     private final CopyDAO copyDAO;
 
     // Business rule constants (service-level policies):
     private static final int MAX_ACTIVE_LOANS = 5; // Users can checkout a limited number of books at a time.
     private static final BigDecimal MAX_OUTSTANDING_FINES = new BigDecimal("30.00");
-    private static final BigDecimal OVERDUE_FINE = new BigDecimal("5.00");
 
     // Constructor:
-    public LoanService(BookRecordDAO bookRecordDAO, UserDAO userDAO, FineDAO fineDAO, CopyDAO copyDAO) {
+    public LoanService(BookRecordDAO bookRecordDAO, RequestPrincipal requestPrincipal, FineAccrualDAO fineAccrualDAO, CopyDAO copyDAO) {
         this.bookRecordDAO = bookRecordDAO;
-        this.userDAO = userDAO;
-        this.fineDAO = fineDAO;
+        this.requestPrincipal = requestPrincipal;
+        this.fineAccrualDAO = fineAccrualDAO;
         this.copyDAO = copyDAO;
     }
 
-    // Helper methods:
-    // Check if user reached the maximum loan limit.
-    private boolean hasMaxLoansReached(int userID) {
-        List<BookRecord> activeLoans = bookRecordDAO.findActiveByUser(userID);
-        return activeLoans.size() >= MAX_ACTIVE_LOANS;
-    }
-
-    // Check if user reached maximum fine limit.
-    private boolean hasExcessiveOutstandingFines(int userId) {
-        List<Fine> outstandingFines = fineDAO.findByUserAndStatus(userId, Fine.FineStatus.UNPAID);
-        BigDecimal totalFines = outstandingFines.stream()
-            .map(Fine::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        return totalFines.compareTo(MAX_OUTSTANDING_FINES) > 0;
-    }
-
-    // Automatically generate an overdue fine.
-    private void createOverdueFine(BookRecord loan) {
-        long daysOverdue = ChronoUnit.DAYS.between(loan.getDueDate(), loan.getReturnDate());
-        BigDecimal fineAmount = OVERDUE_FINE;
-        
-        Fine overdueFine = new Fine(
-            loan.getUserID(),
-            loan.getLoanID(),
-            fineAmount,
-            "System generated fine: Overdue return - " + daysOverdue + " days late."
-        );
-        
-        fineDAO.insert(overdueFine);
-    }
-
     // 1. Book checkout (this is a MEMBER only service).
     // This needs to check the status of the user account as well as total oustanding fines to verify is they can checkout or not.
     public BookRecord checkoutBook(String barcode, int requestorID) {
 
-        // Find the user who is requesting the checkout service.
-        User requestor = userDAO.findById(requestorID);
-        if (requestor == null) {
+        // Check account status, role, fine and loan limits, flip the copy to CHECKED_OUT and create the loan
+        // in one statement. Every check reads the users row there, not the session's copy of the user, so a
+        // member restricted on another node can't check out here. The copy only changes if it is still
+        // AVAILABLE at that moment, so two members can't both get it.
+        LocalDateTime now = LocalDateTime.now();
+        CopyDAO.CheckoutAttempt attempt = copyDAO.checkOut(
+            barcode,
+            requestorID,
+            now,
+            now.plusDays(BookRecord.getLoanPeriodDays()),
+            MAX_ACTIVE_LOANS,
+            MAX_OUTSTANDING_FINES
+        );
+
+        // No such user.
+        if (attempt == null) {
             throw new AuthenticationFailedException("User not found.");
         }
+        if (attempt.loan() != null) {
+            return attempt.loan();
+        }
 
+        // Nothing was checked out: report why, in the order the checks have always been made.
         // Find the copy of the book that is being checked out by barcode.
-        Copy copy = copyDAO.findByBarcode(barcode);
-        if (copy == null) {
+        if (attempt.copyId() == null) {
             throw new IllegalArgumentException("No book found with barcode: " + barcode);
         }
 
         // Make sure their account is active.
-        if (!requestor.isActive()) {
+        if (attempt.userStatus() != User.UserStatus.ACTIVE) {
             throw new CheckoutNotAllowedException("Your account status is currently INACTIVE. Please visit staff to re-activate account to complete checkout.");
         }
 
         // Make sure sure their account is unrestricted.
-        if (requestor.isRestricted()) {
+        if (attempt.userStatus() == User.UserStatus.RESTRICTED) {
             throw new CheckoutNotAllowedException("Your account is currently restricted. Please pay outstanding fines and see library staff to remove account restriction.");
         }
 
         // Make sure they are not checking out with large sums of unpaid fines.
-        if (hasExcessiveOutstandingFines(requestorID)) {
+        if (attempt.unpaidFines().compareTo(MAX_OUTSTANDING_FINES) > 0) {
             throw new CheckoutNotAllowedException("Outstanding fines exceed limit.");
         }
 
         // Make sure they are not STAFF.
-        if (requestor.isStaff()) {
+        if (attempt.userRole() == User.UserRole.STAFF) {
             throw new AuthorizationFailedException("Staff cannot checkout books for personal use. Please switch to a member account.");
         }
 
         // Make sure that the copy is actually available for checkout.
-        if (!copy.isAvailable()) {
+        if (!Copy.CopyStatus.AVAILABLE.name().equals(attempt.copyStatus())) {
             throw new CheckoutNotAllowedException("Copy is not available for checkout. Please see staff for details.");
         }
 
         // Check to see if the user already hit their maximum checkout limit.
-        if (hasMaxLoansReached(requestorID)) {
+        if (attempt.activeLoans() >= MAX_ACTIVE_LOANS) {
             throw new CheckoutNotAllowedException("Maximum loan limit reached.");
         }
 
-        // Create the loan.
-        BookRecord loan = new BookRecord(copy.getCopyID(), requestorID);
-
-        // Persist to database.
-        bookRecordDAO.insert(loan);
-
-        // Update the copy status.
-        copy.markCheckedOut();
-
-        // Persist to database.
-        copyDAO.update(copy);
-
-        return loan;        
+        // The copy was AVAILABLE when read but someone else checked it out first.
+        throw new CheckoutNotAllowedException("Copy is not available for checkout. Please see staff for details.");
     }
 
     // 2. Book renewal.
@@ -145,7 +120,7 @@ public class LoanService {
     // In either case, we need to make sure the book is not on hold.
     public BookRecord renewLoan(int loanID, int requestorID) {
         // Find the user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -169,7 +144,9 @@ public class LoanService {
             if (loan.getUserID() != requestorID) {
                 throw new AuthorizationFailedException("You can only renew your own loans.");
             }
-            if (hasExcessiveOutstandingFines(loan.getUserID())) {
+            // Fine total is summed in SQL; no fine rows are loaded.
+            BookRecordDAO.Eligibility borrower = bookRecordDAO.findEligibility(loan.getUserID());
+            if (borrower != null && borrower.unpaidFines().compareTo(MAX_OUTSTANDING_FINES) > 0) {
                 throw new CheckoutNotAllowedException("Cannot renew with outstanding fines.");
             }
         }
@@ -194,7 +171,7 @@ public class LoanService {
     // 3. Book return (MEMBER only function).
     public BookRecord returnBook(int loanID, int requestorID) {
         // Find the user who is requesting the return service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -218,16 +195,17 @@ public class LoanService {
         // Return the book.
         loan.returnBook();
 
+        // Persist changes to DB.
+        bookRecordDAO.update(loan);
+
         // Overdue fines are calculated after successful return!
+        // Days already charged by FineAccrualJob are skipped; this adds the ones since its last run.
         if (loan.getReturnDate().isAfter(loan.getDueDate())) {
-            createOverdueFine(loan);
+            fineAccrualDAO.accrueReturnedLoan(loan.getLoanID(), loan.getReturnDate().toLocalDate());
         }
 
-        // Persist changes to DB.
-        bookRecordDAO.update(loan);
-
         // Update the copy information.
-        Copy copy = copyDAO.findById(loan.getCopyID());
+        Copy copy = copyDAO.findByIdForUpdate(loan.getCopyID());
         copy.markAvailable();
 
         // Persist changes to DB.
@@ -239,31 +217,33 @@ public class LoanService {
     // 4. View all loan records by user.
     // STAFF can view the loan records by user.
     // MEMBERS can only view their own loan records.
-    public List<BookRecord> getLoanHistoryByUser(int requestorID, int subjectUserID) {
+    // Archived loans (see jobs/LoanArchivalJob) are only included when asked for.
+    // Each loan carries its copy, title and fine totals (one joined query, see LoanView).
+    public List<LoanView> getLoanHistoryByUser(int requestorID, int subjectUserID, boolean includeArchived) {
         // Find the user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
 
         // Authorization logic.
         if (requestor.isStaff()) {
-            return bookRecordDAO.findByUser(subjectUserID);
+            return bookRecordDAO.findViewsByUser(subjectUserID, false, includeArchived);
         } else {
             if (requestorID != subjectUserID) {
                 throw new AuthorizationFailedException("You can only view your own loan records.");
             }
 
-            return bookRecordDAO.findByUser(requestorID);
+            return bookRecordDAO.findViewsByUser(requestorID, false, includeArchived);
         }
     }
 
     // 5. View active loans by user.
     // STAFF can view the active records by user.
     // MEMBERS can only view their own active loans.
-    public List<BookRecord> getCurrentLoansByUser(int requestorID, int subjectUserID) {
+    public List<LoanView> getCurrentLoansByUser(int requestorID, int subjectUserID) {
         // Find the user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -271,20 +251,22 @@ public class LoanService {
         // Authorization logic
         if (requestor.isStaff()) {
             // STAFF can view any user's current loans
-            return bookRecordDAO.findActiveByUser(subjectUserID);
+            return bookRecordDAO.findViewsByUser(subjectUserID, true, false);
         } else {
             // MEMBERS can only view their own current loans
             if (requestorID != subjectUserID) {
                 throw new AuthorizationFailedException("You can only view your own loan records.");
             }
-            return bookRecordDAO.findActiveByUser(requestorID);
+            return bookRecordDAO.findViewsByUser(requestorID, true, false);
         }
     }
 
     // 6. View loan record by book title. This is a STAFF only function.
-    public List<BookRecord> getLoanHistoryByTitle(int requestorID, int titleID) {
+    // One page, newest loan first, optionally limited to checkouts between from and to (both days inclusive).
+    public List<LoanView> getLoanHistoryByTitle(int requestorID, int titleID, LocalDate from, LocalDate to,
+                                                int beforeLoanID, int limit, boolean includeArchived) {
         // Find the user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -293,23 +275,26 @@ public class LoanService {
         if (!requestor.isStaff()) {
             throw new AuthorizationFailedException("Staff access required to view loan records by book.");
         }
-        
-        // This would find all copies of the title, then get loans for all those copies.
-        List<Copy> titleCopies = copyDAO.findByTitle(titleID);
-        List<BookRecord> allLoans = new ArrayList<>();
-        
-        for (Copy copy : titleCopies) {
-            List<BookRecord> copyLoans = bookRecordDAO.findByCopy(copy.getCopyID());
-            allLoans.addAll(copyLoans);
+
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date.");
         }
-        
-        return allLoans;
+
+        // Copies, borrowers and fines are joined in the same query, so this is one round trip per page.
+        return bookRecordDAO.findHistoryByTitle(
+            titleID,
+            from == null ? null : from.atStartOfDay(),
+            to == null ? null : to.plusDays(1).atStartOfDay(),
+            beforeLoanID,
+            limit,
+            includeArchived
+        );
     }
 
     // 7. View loan record by specific copy. This is a STAFF only function.
-    public List<BookRecord> getLoanHistoryByCopy(int requestorID, int copyID) {
+    public List<LoanView> getLoanHistoryByCopy(int requestorID, int copyID, boolean includeArchived) {
         // Find the user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -326,13 +311,13 @@ public class LoanService {
         }
         
         // Get all loan records for this specific copy
-        return bookRecordDAO.findByCopy(copyID);
+        return bookRecordDAO.findViewsByCopy(copyID, false, includeArchived);
     }
 
     // 8. Get current loan for a specific copy. This is a STAFF only function.
-    public BookRecord getCurrentLoanByCopy(int requestorID, int copyID) {
+    public LoanView getCurrentLoanByCopy(int requestorID, int copyID) {
         // Find the user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -343,19 +328,21 @@ public class LoanService {
         }
         
         // Get the current active loan for this copy (if any)
-        return bookRecordDAO.findActiveByCopy(copyID);
+        List<LoanView> active = bookRecordDAO.findViewsByCopy(copyID, true, false);
+        return active.isEmpty() ? null : active.get(0);
     }
 
     // 9. Get a specific loan by ID. Staff can view any loan, members can only view their own loans.
-    public BookRecord getLoanById(int requestorID, int loanID) {
+    // The loan comes with its copy, title, borrower name and fine totals.
+    public LoanView getLoanById(int requestorID, int loanID) {
         // Find the user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
         
         // Get the loan record.
-        BookRecord loan = bookRecordDAO.findById(loanID);
+        LoanView loan = bookRecordDAO.findViewById(loanID);
         if (loan == null) {
             return null;
         }
@@ -368,10 +355,10 @@ public class LoanService {
         return loan;
     }
 
-    // 10. Get all loans (STAFF only). This allows staff to view all loan records in the system.
-    public List<BookRecord> getAllLoans(int requestorID) {
+    // 10. Get all loans (STAFF only). This allows staff to page through every loan record in the system.
+    public List<LoanView> getAllLoans(int requestorID, int afterLoanID, int limit) {
         // Find the user who is requesting the service.
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -381,7 +368,20 @@ public class LoanService {
             throw new AuthorizationFailedException("Staff access required to view all loans.");
         }
         
-        // Return all loan records.
-        return bookRecordDAO.findAll();
+        // Return one keyset page of loan records, enriched in the same query.
+        return bookRecordDAO.findViewPage(afterLoanID, limit);
+    }
+
+    // 11. Stream every loan record to the sink (STAFF only). Read-only transaction so the DAO can use a cursor.
+    @Transactional(readOnly = true)
+    public void exportAllLoans(int requestorID, Consumer<BookRecord> sink) {
+        User requestor = requestPrincipal.findUser(requestorID);
+        if (requestor == null) {
+            throw new AuthenticationFailedException("User not found.");
+        }
+        if (!requestor.isStaff()) {
+            throw new AuthorizationFailedException("Staff access required to export loans.");
+        }
+        bookRecordDAO.streamAll(sink);
     }
 }
@@ -0,0 +1,120 @@
+/*
+    TitleImportService.java handles bulk catalogue loads (vendor CSV or MARC feeds).
+    The whole file is staged with COPY and merged by ISBN in one transaction, so an import either
+    lands completely or not at all.
+*/
+package edu.sjsu.library.services;
+
+import edu.sjsu.library.dao.CatalogIndex;
+import edu.sjsu.library.dao.TitleDAO;
+import edu.sjsu.library.dao.TitleImportDAO;
+import edu.sjsu.library.dao.TitleImportDAO.MergeCounts;
+import edu.sjsu.library.dao.TitleSuggestIndex;
+import edu.sjsu.library.models.ImportResult;
+import edu.sjsu.library.models.Title;
+import edu.sjsu.library.utils.AuthorizationUtils;
+import edu.sjsu.library.utils.TitleImportReader;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@Transactional
+public class TitleImportService {
+
+    // Up to this many changed titles are pushed into the search indexes one by one; beyond it they are rebuilt.
+    private static final int INCREMENTAL_INDEX_LIMIT = 1000;
+
+    private final TitleImportDAO titleImportDAO;
+    private final TitleDAO titleDAO;
+    private final CatalogIndex catalogIndex;
+    private final TitleSuggestIndex titleSuggestIndex;
+    private final AuthorizationUtils authUtils;
+
+    public TitleImportService(TitleImportDAO titleImportDAO, TitleDAO titleDAO, CatalogIndex catalogIndex,
+                              TitleSuggestIndex titleSuggestIndex, AuthorizationUtils authUtils) {
+        this.titleImportDAO = titleImportDAO;
+        this.titleDAO = titleDAO;
+        this.catalogIndex = catalogIndex;
+        this.titleSuggestIndex = titleSuggestIndex;
+        this.authUtils = authUtils;
+    }
+
+    // 1. Import a feed on behalf of a logged-in user (STAFF only).
+    public ImportResult importTitles(Reader input, TitleImportReader.Format format, int requestorID) {
+        authUtils.validateStaffAccess(requestorID);
+        return importTitles(input, format);
+    }
+
+    // 2. Import a feed with no user check. Only for trusted callers such as the command-line importer.
+    public ImportResult importTitles(Reader input, TitleImportReader.Format format) {
+        long start = System.nanoTime();
+        ImportResult result = new ImportResult(format.name());
+
+        // Parse and stream valid rows straight into the COPY; bad rows are only counted and described.
+        TitleImportDAO.Stage stage = titleImportDAO.openStage();
+        int staged;
+        try {
+            TitleImportReader.read(input, format, new TitleImportReader.Sink() {
+                @Override
+                public void accept(TitleImportReader.Row row) {
+                    result.countRead();
+                    stage.add(row);
+                }
+
+                @Override
+                public void reject(int line, String reason) {
+                    result.countRead();
+                    result.reject(line, reason);
+                }
+            });
+            staged = stage.finish();
+        } catch (IOException e) {
+            stage.abort();
+            throw new UncheckedIOException("Could not read the import file: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            stage.abort();
+            throw e;
+        }
+
+        // One set-based merge against the existing ISBNs.
+        MergeCounts counts = titleImportDAO.merge(staged);
+        result.setInserted(counts.insertedIds().size());
+        result.setUpdated(counts.updatedIds().size());
+        result.setDuplicates(counts.staged() - counts.distinct());
+        result.setUnchanged(counts.distinct() - counts.insertedIds().size() - counts.updatedIds().size());
+
+        // Keep the lookup cache and search indexes in step with what was written.
+        for (int id : counts.updatedIds()) {
+            titleDAO.getCache().invalidate(id);
+        }
+        refreshIndexes(counts);
+
+        result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        System.out.println(result);
+        return result;
+    }
+
+    private void refreshIndexes(MergeCounts counts) {
+        List<Integer> changed = new ArrayList<>(counts.insertedIds());
+        changed.addAll(counts.updatedIds());
+        if (changed.isEmpty()) {
+            return;
+        }
+        if (changed.size() > INCREMENTAL_INDEX_LIMIT) {
+            catalogIndex.rebuildAfterCommit();
+            titleSuggestIndex.rebuildAfterCommit();
+            return;
+        }
+        for (Title t : titleDAO.findByIds(changed)) {
+            catalogIndex.indexAfterCommit(t);
+            titleSuggestIndex.upsertAfterCommit(t);
+        }
+    }
+}
@@ -7,8 +7,9 @@ import edu.sjsu.library.models.User;
 import edu.sjsu.library.exceptions.UserAlreadyExistsException;
 import edu.sjsu.library.exceptions.AuthenticationFailedException;
 import edu.sjsu.library.exceptions.UserStatusChangeNotAllowedException;
-import org.mindrot.jbcrypt.BCrypt;
 import edu.sjsu.library.utils.AuthorizationUtils;
+import edu.sjsu.library.utils.PasswordHasher;
+import edu.sjsu.library.utils.RequestPrincipal;
 import java.util.List;
 import java.util.stream.Collectors; 
 
@@ -18,13 +19,29 @@ import org.springframework.transaction.annotation.Transactional;
 @Service // Tell Springboot this is a service component so it can manage it for us.
 public class UserService {
     private final UserDAO userDao;
-    private final int bcryptWorkFactor = 12;
     private final AuthorizationUtils authUtils;
+    private final RequestPrincipal requestPrincipal;
+    private final PasswordHasher passwordHasher; // BCrypt runs on its own bounded pool, not the request thread.
 
     // Constructor.
-    public UserService(UserDAO userDao, AuthorizationUtils authUtils) {
+    public UserService(UserDAO userDao, AuthorizationUtils authUtils, RequestPrincipal requestPrincipal,
+                       PasswordHasher passwordHasher) {
         this.userDao = userDao;
         this.authUtils = authUtils;
+        this.requestPrincipal = requestPrincipal;
+        this.passwordHasher = passwordHasher;
+    }
+
+    // Writes the user (bumping users.version) and invalidates any cached copies of it:
+    // this request's lookup and every session's principal snapshot.
+    private void save(User user) {
+        if (user.getPasswordHash() == null) {
+            // A session snapshot (findRequestor) has no hash; writing it would wipe the password.
+            throw new IllegalStateException("User " + user.getUserID() + " was not loaded from the database; reload it before saving.");
+        }
+        if (userDao.update(user) > 0) {
+            requestPrincipal.userChanged(user);
+        }
     }
 
     // 1. Registration.
@@ -49,7 +66,7 @@ public class UserService {
         if (userDao.findByEmail(email) != null) {
             throw new UserAlreadyExistsException("Registration failed: email is already registered.");
         }
-        String hash = BCrypt.hashpw(rawPassword, BCrypt.gensalt(bcryptWorkFactor));
+        String hash = passwordHasher.hash(rawPassword);
         User user = new User(fname, lname, email, hash, role);
         userDao.insert(user);
         return user;
@@ -58,7 +75,7 @@ public class UserService {
     // 2. Authentication.
     public User authenticate(String email, String rawPassword) {
         User user = userDao.findByEmail(email);
-        if (user == null || !BCrypt.checkpw(rawPassword, user.getPasswordHash())) {
+        if (user == null || !passwordHasher.matches(rawPassword, user.getPasswordHash())) {
             throw new AuthenticationFailedException("Authentication failed: invalid credentials.");
         }
         // Allow login for all user statuses (ACTIVE, INACTIVE, RESTRICTED)
@@ -73,17 +90,17 @@ public class UserService {
         if (user == null) {
             throw new IllegalArgumentException("Password change failed: the user could not be located.");
         }
-        if (!BCrypt.checkpw(oldPassword, user.getPasswordHash())) {
+        if (!passwordHasher.matches(oldPassword, user.getPasswordHash())) {
             throw new AuthenticationFailedException("Password change failed: the old password did not match any stored passwords.");
         }
-        String newHash = BCrypt.hashpw(newPassword, BCrypt.gensalt(bcryptWorkFactor));
+        String newHash = passwordHasher.hash(newPassword);
         user.setPasswordHash(newHash);
-        userDao.update(user);
+        save(user);
     }
 
     // 4. Profile update.
     public void updateProfile(User updatedUser) {
-        userDao.update(updatedUser);
+        save(updatedUser);
     }
 
     // 5. Status change.
@@ -116,13 +133,17 @@ public class UserService {
             default:
                 throw new IllegalArgumentException("Unknown status: " + newStatus);
         }
-        userDao.update(user);
+        save(user);
     }
     
     // 6. User lookups.
     public User findByEmail(String email) { return userDao.findByEmail(email); }
     public User findById(int userID) { return userDao.findById(userID); }
 
+    // The user making the request, resolved once per HTTP request (often from the session snapshot,
+    // with no password hash). For display and checks only: load from findById before changing a user.
+    public User findRequestor(int requestorID) { return requestPrincipal.findUser(requestorID); }
+
     // 7. View all users (STAFF-only function).
     public List<User> getAllUsers(int requestorID) {
 
@@ -133,6 +154,16 @@ public class UserService {
         return userDao.findAll();
     }
 
+    // View one keyset page of users with optional filters (STAFF-only function).
+    public List<User> getUsersPage(String emailContains, User.UserRole role, User.UserStatus status,
+                                   int afterUserID, int limit, int requestorID) {
+
+        // Verify staff authorization.
+        authUtils.validateStaffAccess(requestorID);
+
+        return userDao.findPage(emailContains, role, status, afterUserID, limit);
+    }
+
     // 8. View all STAFF (STAFF-only function).
     public List<User> getAllStaff(int requestorID) {
 
@@ -192,7 +223,7 @@ public class UserService {
             setStatus(userID, status);
         }
 
-        userDao.update(user);
+        save(user);
         return user;
     }
 
@@ -223,7 +254,7 @@ public class UserService {
         }
 
         user.activate();
-        userDao.update(user);
+        save(user);
         return true;
     }
 
@@ -239,7 +270,7 @@ public class UserService {
         }
 
         user.deactivate();
-        userDao.update(user);
+        save(user);
         return true;
     }
 
@@ -255,7 +286,7 @@ public class UserService {
         }
 
         user.restrict();
-        userDao.update(user);
+        save(user);
         return true;
     }
 }
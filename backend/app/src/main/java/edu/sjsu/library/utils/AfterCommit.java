@@ -0,0 +1,28 @@
+/*
+    Runs side effects (search index updates and the like) only once the current transaction has
+    committed, so nothing outside the database ever sees a change that later rolls back.
+    Outside a transaction the action runs immediately.
+*/
+package edu.sjsu.library.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -3,7 +3,6 @@
 */
 package edu.sjsu.library.utils;
 
-import edu.sjsu.library.dao.UserDAO;
 import edu.sjsu.library.models.User;
 import edu.sjsu.library.exceptions.AuthenticationFailedException;
 import edu.sjsu.library.exceptions.AuthorizationFailedException;
@@ -13,11 +12,12 @@ import org.springframework.stereotype.Component;
 @Component
 public class AuthorizationUtils {
     
-    private final UserDAO userDAO;
+    // Users are looked up once per HTTP request and reused by every check in that request.
+    private final RequestPrincipal requestPrincipal;
 
     // Constructor:
-    public AuthorizationUtils(UserDAO userDAO) {
-        this.userDAO = userDAO;
+    public AuthorizationUtils(RequestPrincipal requestPrincipal) {
+        this.requestPrincipal = requestPrincipal;
     }
 
     /**
@@ -26,7 +26,7 @@ public class AuthorizationUtils {
      * @throws AuthenticationFailedException if user not found
      */
     public void validateUserAccess(int requestorID) {
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -39,7 +39,7 @@ public class AuthorizationUtils {
      * @throws AuthenticationFailedException if user not found
      */
     public User getRequestor(int requestorID) {
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
         if (requestor == null) {
             throw new AuthenticationFailedException("User not found.");
         }
@@ -53,7 +53,7 @@ public class AuthorizationUtils {
      * @throws AuthorizationFailedException if user is not staff
      */
     public void validateStaffAccess(int requestorID) {
-        User requestor = userDAO.findById(requestorID);
+        User requestor = requestPrincipal.findUser(requestorID);
             if (requestor == null) {
                 throw new AuthenticationFailedException("User not found.");
             }
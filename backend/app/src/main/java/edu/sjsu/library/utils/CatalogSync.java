@@ -0,0 +1,142 @@
+/*
+    Keeps this node's title/copy caches and its catalog search and typeahead indexes in step with
+    writes made on other nodes (several nodes share one database when library.session.store=jdbc).
+    Writes made here already update all of them after commit; this covers everyone else's.
+
+    - Polls titles.change_xid, copies.change_xid and the deleted_rows tombstones every
+      library.catalog.sync-poll-ms (default 2 s) (see CatalogChangeDAO, migration 015).
+    - Changed copies are evicted from CopyDAO's cache; changed titles are evicted from TitleDAO's
+      cache and re-indexed (or dropped from typeahead when hidden); deleted rows are evicted and
+      dropped from both indexes. More than REBUILD_THRESHOLD changed titles in one poll (a bulk
+      import elsewhere) rebuilds both indexes instead.
+
+    Each poll resumes from the oldest transaction that was still running at the previous one, so
+    a long transaction (e.g. a bulk import) is picked up whenever it commits. Its rows, and those of
+    transactions that ended in the meantime, can come back in the next poll too; rows seen again at
+    the same version are skipped, so a change is applied once, not once per poll.
+*/
+package edu.sjsu.library.utils;
+
+import edu.sjsu.library.dao.CatalogChangeDAO;
+import edu.sjsu.library.dao.CatalogIndex;
+import edu.sjsu.library.dao.CopyDAO;
+import edu.sjsu.library.dao.TitleDAO;
+import edu.sjsu.library.dao.TitleSuggestIndex;
+import edu.sjsu.library.models.Title;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+@Component
+public class CatalogSync implements SmartInitializingSingleton {
+
+    private static final Duration TOMBSTONE_RETENTION = Duration.ofDays(1);
+    private static final int REBUILD_THRESHOLD = 1000;
+
+    private final CatalogChangeDAO catalogChangeDAO;
+    private final TitleDAO titleDAO;
+    private final CopyDAO copyDAO;
+    private final CatalogIndex catalogIndex;
+    private final TitleSuggestIndex titleSuggestIndex;
+
+    private String cursor; // From the last successful poll (CatalogChangeDAO); null until the first one.
+    // What the previous poll saw, so rows returned again aren't applied twice.
+    private Map<Integer, Long> seenTitles = new HashMap<>();
+    private Map<Integer, Long> seenCopies = new HashMap<>();
+    private Set<Integer> seenDeletedTitles = new HashSet<>();
+    private Set<Integer> seenDeletedCopies = new HashSet<>();
+
+    public CatalogSync(CatalogChangeDAO catalogChangeDAO, TitleDAO titleDAO, CopyDAO copyDAO,
+                       CatalogIndex catalogIndex, TitleSuggestIndex titleSuggestIndex) {
+        this.catalogChangeDAO = catalogChangeDAO;
+        this.titleDAO = titleDAO;
+        this.copyDAO = copyDAO;
+        this.catalogIndex = catalogIndex;
+        this.titleSuggestIndex = titleSuggestIndex;
+    }
+
+    // Start the clock before the server takes requests; the caches are empty and the indexes are
+    // built from the database at startup, so nothing before this point needs applying.
+    @Override
+    public void afterSingletonsInstantiated() {
+        poll();
+    }
+
+    @Scheduled(fixedDelayString = "${library.catalog.sync-poll-ms:2000}")
+    public synchronized void poll() {
+        try {
+            CatalogChangeDAO.CatalogChanges changes = catalogChangeDAO.findChangedSince(cursor);
+            apply(changes);
+            cursor = changes.nextCursor();
+        } catch (RuntimeException e) {
+            // Keep serving with what we have; the next poll covers the gap from the same cursor.
+            System.err.println("Catalog sync poll failed: " + e.getMessage());
+        }
+    }
+
+    private void apply(CatalogChangeDAO.CatalogChanges changes) {
+        changes.copyVersions().forEach((copyID, version) -> {
+            if (!Objects.equals(seenCopies.get(copyID), version)) {
+                copyDAO.evictCached(copyID);
+            }
+        });
+        for (int copyID : changes.deletedCopies()) {
+            if (!seenDeletedCopies.contains(copyID)) {
+                copyDAO.evictCached(copyID);
+            }
+        }
+
+        int changedTitles = 0;
+        for (Map.Entry<Integer, Long> e : changes.titleVersions().entrySet()) {
+            if (!Objects.equals(seenTitles.get(e.getKey()), e.getValue())) {
+                changedTitles++;
+            }
+        }
+        boolean rebuild = changedTitles > REBUILD_THRESHOLD;
+        changes.titleVersions().forEach((titleID, version) -> {
+            if (!Objects.equals(seenTitles.get(titleID), version)) {
+                titleDAO.evictCached(titleID);
+                if (!rebuild) {
+                    Title title = changes.titles().get(titleID);
+                    catalogIndex.indexAfterCommit(title);
+                    titleSuggestIndex.upsertAfterCommit(title);
+                }
+            }
+        });
+        for (int titleID : changes.deletedTitles()) {
+            if (!seenDeletedTitles.contains(titleID)) {
+                titleDAO.evictCached(titleID);
+                if (!rebuild) {
+                    catalogIndex.removeAfterCommit(titleID);
+                    titleSuggestIndex.removeAfterCommit(titleID);
+                }
+            }
+        }
+        if (rebuild) {
+            catalogIndex.rebuildAfterCommit();
+            titleSuggestIndex.rebuildAfterCommit();
+        }
+
+        seenTitles = changes.titleVersions();
+        seenCopies = changes.copyVersions();
+        seenDeletedTitles = new HashSet<>(changes.deletedTitles());
+        seenDeletedCopies = new HashSet<>(changes.deletedCopies());
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    public void purgeTombstones() {
+        try {
+            catalogChangeDAO.purgeTombstones(TOMBSTONE_RETENTION);
+        } catch (RuntimeException e) {
+            System.err.println("Tombstone purge failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+    Writes rows straight to an HTTP response as they come off a JDBC cursor, so an export
+    holds one row in memory at a time no matter how big the table is.
+
+    - NDJSON: one JSON object per line, serialized with the application's ObjectMapper so
+      dates and enums look the same as in the paged JSON endpoints.
+    - CSV: RFC 4180 with a header row; the caller names the columns.
+
+    DAOs feed it through a RowCallbackHandler on a statement with FETCH_SIZE set, which makes
+    the PostgreSQL driver read the result in batches instead of buffering all of it. That only
+    happens inside a transaction, so the service methods that drive an export must be @Transactional.
+*/
+package edu.sjsu.library.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+public abstract class ExportWriter<T> implements Consumer<T>, AutoCloseable {
+
+    // Rows per round trip when a DAO reads through a server-side cursor.
+    public static final int FETCH_SIZE = 500;
+
+    public enum Format { NDJSON, CSV }
+
+    /**
+     * Parses the ?format= parameter (defaults to NDJSON).
+     * @throws IllegalArgumentException if the format isn't supported
+     */
+    public static Format parseFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return Format.NDJSON;
+        }
+        try {
+            return Format.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export format: " + format + " (use ndjson or csv).");
+        }
+    }
+
+    /**
+     * Sets the response headers for a download and returns a writer for the chosen format.
+     * @param columns CSV header -> value extractor, in column order (ignored for NDJSON)
+     */
+    public static <T> ExportWriter<T> open(HttpServletResponse response, Format format, String baseName,
+                                           ObjectMapper mapper, Map<String, Function<T, Object>> columns) {
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try {
+            if (format == Format.CSV) {
+                response.setContentType("text/csv");
+                response.setHeader("Content-Disposition", "attachment; filename=\"" + baseName + ".csv\"");
+                return new Csv<>(response, columns);
+            }
+            response.setContentType("application/x-ndjson");
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + baseName + ".ndjson\"");
+            return new NdJson<>(response, mapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Convenience for building the CSV column map in order.
+    public static <T> Map<String, Function<T, Object>> columns() {
+        return new LinkedHashMap<>();
+    }
+
+    private long rows;
+
+    @Override
+    public final void accept(T row) {
+        try {
+            write(row);
+            rows++;
+        } catch (IOException e) {
+            // Most likely the client went away; abort the query rather than reading the rest of the table.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getRowCount() {
+        return rows;
+    }
+
+    protected abstract void write(T row) throws IOException;
+
+    @Override
+    public abstract void close() throws IOException;
+
+    private static final class NdJson<T> extends ExportWriter<T> {
+        private final JsonGenerator out;
+        private final ObjectWriter writer;
+
+        NdJson(HttpServletResponse response, ObjectMapper mapper) throws IOException {
+            this.out = mapper.getFactory().createGenerator(response.getOutputStream());
+            out.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            out.setRootValueSeparator(null); // We write our own newline after every row.
+            // Let the generator's buffer decide when to hit the socket instead of flushing per row.
+            this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        protected void write(T row) throws IOException {
+            writer.writeValue(out, row);
+            out.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static final class Csv<T> extends ExportWriter<T> {
+        private final Writer out;
+        private final Map<String, Function<T, Object>> columns;
+
+        Csv(HttpServletResponse response, Map<String, Function<T, Object>> columns) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+            this.columns = columns;
+            writeLine(columns.keySet());
+        }
+
+        @Override
+        protected void write(T row) throws IOException {
+            writeLine(columns.values().stream().map(f -> f.apply(row)).toList());
+        }
+
+        private void writeLine(Iterable<?> values) throws IOException {
+            boolean first = true;
+            for (Object value : values) {
+                if (!first) {
+                    out.write(',');
+                }
+                out.write(escape(value));
+                first = false;
+            }
+            out.write("\r\n");
+        }
+
+        // Quote fields containing a delimiter, quote or line break; double any embedded quotes.
+        private static String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String s = value.toString();
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+                return s;
+            }
+            return '"' + s.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
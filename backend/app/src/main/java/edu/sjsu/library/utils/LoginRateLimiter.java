@@ -0,0 +1,140 @@
+/*
+    Sliding-window limits on login attempts, checked before any password hashing.
+
+    Two limits apply to every attempt: one per account (email) and one per client IP, each over
+    library.login.window-seconds. Each key keeps two counters (previous and current fixed window);
+    the count in the sliding window is estimated as current + previous weighted by how much of the
+    previous window still overlaps it. That is O(1) memory per key, unlike a log of timestamps.
+
+    A successful login clears its account's counter. Idle keys are purged every minute.
+
+    The counters live in this node's memory, so with several nodes the limits are per node. The
+    client IP is the forwarded one (server.forward-headers-strategy), not the load balancer's.
+*/
+package edu.sjsu.library.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+@Component
+public class LoginRateLimiter {
+
+    private final int maxPerAccount;
+    private final int maxPerIp;
+    private final long windowMillis;
+    private final LongSupplier clock; // Epoch millis; fixed in tests.
+
+    private final Map<String, Window> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Window> addresses = new ConcurrentHashMap<>();
+
+    private final LongAdder rejectedByAccount = new LongAdder();
+    private final LongAdder rejectedByIp = new LongAdder();
+
+    @Autowired
+    public LoginRateLimiter(@Value("${library.login.max-per-account:10}") int maxPerAccount,
+                            @Value("${library.login.max-per-ip:50}") int maxPerIp,
+                            @Value("${library.login.window-seconds:300}") long windowSeconds) {
+        this(maxPerAccount, maxPerIp, windowSeconds, System::currentTimeMillis);
+    }
+
+    LoginRateLimiter(int maxPerAccount, int maxPerIp, long windowSeconds, LongSupplier clock) {
+        this.maxPerAccount = maxPerAccount;
+        this.maxPerIp = maxPerIp;
+        this.windowMillis = windowSeconds * 1000;
+        this.clock = clock;
+    }
+
+    // Two adjacent fixed windows for one key.
+    private static final class Window {
+        long index;     // Which fixed window "current" counts (epoch millis / window length).
+        int previous;
+        int current;
+
+        // Moves the counters forward to the window containing now.
+        void roll(long nowIndex) {
+            if (nowIndex == index) {
+                return;
+            }
+            previous = nowIndex == index + 1 ? current : 0;
+            current = 0;
+            index = nowIndex;
+        }
+
+        double estimate(long now, long windowMillis) {
+            double overlap = 1.0 - (double) (now % windowMillis) / windowMillis;
+            return current + previous * overlap;
+        }
+    }
+
+    /**
+     * Records a login attempt if both its account and its IP are under their limits.
+     * @param email The email being logged in to (case-insensitive)
+     * @param ip The client address
+     * @return 0 if the attempt may proceed, otherwise the number of seconds to wait before retrying
+     */
+    public long tryAcquire(String email, String ip) {
+        long now = clock.getAsLong();
+        long nowIndex = now / windowMillis;
+        Window account = accounts.computeIfAbsent(accountKey(email), k -> new Window());
+        Window address = addresses.computeIfAbsent(ip == null ? "" : ip, k -> new Window());
+
+        // Always account first, then address, so concurrent attempts cannot deadlock.
+        synchronized (account) {
+            synchronized (address) {
+                account.roll(nowIndex);
+                address.roll(nowIndex);
+                boolean accountFull = account.estimate(now, windowMillis) >= maxPerAccount;
+                boolean addressFull = address.estimate(now, windowMillis) >= maxPerIp;
+                if (accountFull || addressFull) {
+                    (accountFull ? rejectedByAccount : rejectedByIp).increment();
+                    // The estimate drops as the previous window slides out; by the next boundary it is at most "current".
+                    return Math.max(1, (windowMillis - now % windowMillis + 999) / 1000);
+                }
+                account.current++;
+                address.current++;
+                return 0;
+            }
+        }
+    }
+
+    /** Clears the account's counter after a successful login (the IP counter is kept). */
+    public void succeeded(String email) {
+        accounts.remove(accountKey(email));
+    }
+
+    private static String accountKey(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Drop keys with nothing left in either window.
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeIdle() {
+        long nowIndex = clock.getAsLong() / windowMillis;
+        accounts.values().removeIf(w -> isIdle(w, nowIndex));
+        addresses.values().removeIf(w -> isIdle(w, nowIndex));
+    }
+
+    private static boolean isIdle(Window w, long nowIndex) {
+        synchronized (w) {
+            return w.index < nowIndex - 1;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedAccounts", accounts.size());
+        stats.put("trackedAddresses", addresses.size());
+        stats.put("rejectedByAccount", rejectedByAccount.sum());
+        stats.put("rejectedByIp", rejectedByIp.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+    Helper functions for keyset (cursor) pagination on list endpoints.
+    A cursor is simply the primary key of the last row on the previous page, so every
+    page is a "WHERE id > ? ORDER BY id LIMIT ?" index range scan no matter how deep it is.
+*/
+package edu.sjsu.library.utils;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+public final class Pagination {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private Pagination() {
+    }
+
+    /**
+     * Clamps a client supplied page size into [1, MAX_LIMIT].
+     * @param limit The requested page size (may be null)
+     * @return A safe page size
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * Converts an optional "after" cursor into the lower key bound used by the DAOs.
+     * @param after The last key the client has already seen (may be null)
+     * @return The exclusive lower bound (0 for the first page, since all keys are SERIAL)
+     */
+    public static int afterKey(Integer after) {
+        return after == null ? 0 : after;
+    }
+
+    /**
+     * Converts an optional "before" cursor into the upper key bound, for lists paged newest first.
+     * @param before The last key the client has already seen (may be null)
+     * @return The exclusive upper bound (Integer.MAX_VALUE for the first page)
+     */
+    public static int beforeKey(Integer before) {
+        return before == null ? Integer.MAX_VALUE : before;
+    }
+
+    /**
+     * Returns the cursor for the next page, or null if this was the last page.
+     * @param rows The rows on the current page
+     * @param limit The page size that was requested
+     * @param keyOf Extracts the keyset column from a row
+     */
+    public static <T> Integer nextCursor(List<T> rows, int limit, ToIntFunction<T> keyOf) {
+        if (rows.size() < limit) {
+            return null;
+        }
+        return keyOf.applyAsInt(rows.get(rows.size() - 1));
+    }
+
+    /**
+     * Builds a 200 response with the page as the body and the next cursor (if any) in a header.
+     * The body stays a plain JSON array so existing clients keep working.
+     */
+    public static <T> ResponseEntity<List<T>> ok(List<T> rows, int limit, ToIntFunction<T> keyOf) {
+        Integer next = nextCursor(rows, limit, keyOf);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (next != null) {
+            builder.header(NEXT_CURSOR_HEADER, String.valueOf(next));
+        }
+        return builder.body(rows);
+    }
+}
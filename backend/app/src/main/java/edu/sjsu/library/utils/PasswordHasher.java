@@ -0,0 +1,134 @@
+/*
+    BCrypt hashing and checking on a small dedicated pool instead of Tomcat request threads.
+
+    A work-factor-12 hash is deliberately slow (hundreds of ms of CPU), so a burst of logins
+    running on request threads would take every core away from catalog and checkout traffic.
+    Here at most library.password.threads hashes run at once and at most
+    library.password.queue-size wait; anything beyond that, or anything still waiting after
+    library.password.timeout-ms, fails fast with PasswordHashingUnavailableException.
+
+    Counters are exposed through stats() (GET /api/cache/stats -> "passwordHasher").
+*/
+package edu.sjsu.library.utils;
+
+import edu.sjsu.library.exceptions.PasswordHashingUnavailableException;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class PasswordHasher {
+
+    private static final int WORK_FACTOR = 12;
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+
+    public PasswordHasher(@Value("${library.password.threads:0}") int threads,
+                          @Value("${library.password.queue-size:64}") int queueSize,
+                          @Value("${library.password.timeout-ms:5000}") long timeoutMillis) {
+        // Default: half the cores, so hashing can never use all of them.
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+            r -> {
+                Thread t = new Thread(r, "bcrypt-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /** Hashes a new password. */
+    public String hash(String rawPassword) {
+        return run(() -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(WORK_FACTOR)));
+    }
+
+    /** Checks a password against a stored hash. */
+    public boolean matches(String rawPassword, String hash) {
+        return run(() -> BCrypt.checkpw(rawPassword, hash));
+    }
+
+    private <T> T run(Callable<T> work) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                waitNanos.add(started - submitted);
+                try {
+                    return work.call();
+                } finally {
+                    hashNanos.add(System.nanoTime() - started);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingUnavailableException("Too many password checks in progress, please try again shortly.", e);
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new PasswordHashingUnavailableException("Password check timed out, please try again shortly.", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Password check was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re; // e.g. IllegalArgumentException from BCrypt for a malformed stored hash.
+            }
+            throw new IllegalStateException("Password hashing failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long done = completed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        stats.put("completed", done);
+        stats.put("rejected", rejected.sum());
+        stats.put("timedOut", timedOut.sum());
+        stats.put("avgWaitMillis", done == 0 ? 0.0 : waitNanos.sum() / 1e6 / done);
+        stats.put("avgHashMillis", done == 0 ? 0.0 : hashNanos.sum() / 1e6 / done);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+    A compressed (radix) prefix trie from string tokens to integer IDs, used for typeahead.
+
+    - Edges carry whole substrings, so long tokens with no siblings take a single node.
+    - Every node tracks how many postings sit under it, which lets callers pick the most
+      selective token of a multi-word query without walking its subtree.
+    - Every node also keeps the best `capacity` IDs of its subtree (by the trie's rank), so
+      top() never walks a subtree. add() merges the new ID into the lists on its path; remove()
+      rebuilds a list from the node's children only where the removed ID was in it.
+    - The rank must not change while an ID is in the trie: to re-rank one, remove it, change
+      what the comparator reads, and add it back.
+
+    Not thread-safe for writers: callers must serialize add/remove against reads.
+*/
+package edu.sjsu.library.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class PrefixTrie {
+
+    private static final class Node {
+        String label;                                   // Edge label from the parent.
+        final Map<Character, Node> children = new HashMap<>();
+        final Set<Integer> ids = new HashSet<>();       // Tokens that end exactly here.
+        int subtreeSize;                                // Postings here and below.
+        int[] top = new int[0];                         // Best distinct IDs of the subtree, best first.
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Node root = new Node("");
+    private final int capacity;
+    private final Comparator<Integer> rank;
+
+    // capacity is the largest k top() can answer; rank orders IDs best first.
+    public PrefixTrie(int capacity, Comparator<Integer> rank) {
+        this.capacity = capacity;
+        this.rank = rank;
+    }
+
+    public void add(String token, int id) {
+        if (token.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        int i = 0;
+        List<Node> path = new ArrayList<>();
+        while (true) {
+            path.add(node);
+            if (i == token.length()) {
+                if (node.ids.add(id)) {
+                    for (Node n : path) {
+                        n.subtreeSize++;
+                        n.top = offer(n.top, id);
+                    }
+                }
+                return;
+            }
+            Node child = node.children.get(token.charAt(i));
+            if (child == null) {
+                Node leaf = new Node(token.substring(i));
+                leaf.ids.add(id);
+                leaf.subtreeSize = 1;
+                leaf.top = new int[] { id };
+                node.children.put(token.charAt(i), leaf);
+                for (Node n : path) {
+                    n.subtreeSize++;
+                    n.top = offer(n.top, id);
+                }
+                return;
+            }
+            int common = commonPrefixLength(child.label, token, i);
+            if (common < child.label.length()) {
+                // Split the edge so the shared part gets its own node.
+                Node mid = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                mid.children.put(child.label.charAt(0), child);
+                mid.subtreeSize = child.subtreeSize;
+                mid.top = child.top;
+                node.children.put(mid.label.charAt(0), mid);
+                child = mid;
+            }
+            i += common;
+            node = child;
+        }
+    }
+
+    public void remove(String token, int id) {
+        if (!token.isEmpty()) {
+            remove(root, token, 0, id);
+        }
+    }
+
+    // Returns true if a posting was removed below this node.
+    private boolean remove(Node node, String token, int i, int id) {
+        boolean removed;
+        if (i == token.length()) {
+            removed = node.ids.remove(id);
+        } else {
+            Node child = node.children.get(token.charAt(i));
+            if (child == null || !token.startsWith(child.label, i)) {
+                return false;
+            }
+            removed = remove(child, token, i + child.label.length(), id);
+            if (removed && child.subtreeSize == 0) {
+                node.children.remove(token.charAt(i));
+            }
+        }
+        if (removed) {
+            node.subtreeSize--;
+            if (contains(node.top, id)) {
+                node.top = rerank(node);
+            }
+        }
+        return removed;
+    }
+
+    // top with id merged in at its rank, still at most capacity long (O(capacity)).
+    private int[] offer(int[] top, int id) {
+        if (contains(top, id)) {
+            return top;
+        }
+        int at = top.length;
+        while (at > 0 && rank.compare(id, top[at - 1]) < 0) {
+            at--;
+        }
+        if (at >= capacity) {
+            return top;
+        }
+        int[] out = new int[Math.min(top.length + 1, capacity)];
+        System.arraycopy(top, 0, out, 0, at);
+        out[at] = id;
+        System.arraycopy(top, at, out, at + 1, out.length - at - 1);
+        return out;
+    }
+
+    // A node's list from its own IDs and its children's lists (their best IDs cover the subtree's).
+    private int[] rerank(Node node) {
+        int[] top = best(node.ids);
+        for (Node child : node.children.values()) {
+            for (int id : child.top) {
+                top = offer(top, id);
+            }
+        }
+        return top;
+    }
+
+    private int[] best(Collection<Integer> ids) {
+        int[] top = new int[0];
+        for (int id : ids) {
+            top = offer(top, id);
+        }
+        return top;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int x : ids) {
+            if (x == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Number of postings whose token starts with the prefix.
+    public int countWithPrefix(String prefix) {
+        Node node = find(prefix);
+        return node == null ? 0 : node.subtreeSize;
+    }
+
+    // All IDs whose token starts with the prefix.
+    public Set<Integer> idsWithPrefix(String prefix) {
+        Set<Integer> out = new HashSet<>();
+        Node node = find(prefix);
+        if (node != null) {
+            collect(node, out);
+        }
+        return out;
+    }
+
+    /**
+     * The best k IDs (by rank, k up to the trie's capacity) among tokens starting with the prefix.
+     * Read straight from the node the prefix ends on; no subtree walk.
+     */
+    public int[] top(String prefix, int k) {
+        Node node = find(prefix);
+        if (node == null) {
+            return new int[0];
+        }
+        int[] top = node.top;
+        return top.length <= k ? top.clone() : Arrays.copyOf(top, k);
+    }
+
+    // The node covering every token that starts with the prefix (the prefix may end mid-edge).
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.children.get(prefix.charAt(i));
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefixLength(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            i += common;
+            node = child;
+        }
+        return node;
+    }
+
+    private static void collect(Node node, Set<Integer> out) {
+        out.addAll(node.ids);
+        for (Node child : node.children.values()) {
+            collect(child, out);
+        }
+    }
+
+    private static int commonPrefixLength(String label, String s, int offset) {
+        int n = Math.min(label.length(), s.length() - offset);
+        int i = 0;
+        while (i < n && label.charAt(i) == s.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+}
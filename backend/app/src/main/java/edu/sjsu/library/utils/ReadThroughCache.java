@@ -0,0 +1,102 @@
+/*
+    A bounded read-through cache for single-row DAO lookups, backed by Caffeine (W-TinyLFU eviction).
+
+    - get() serves from memory or calls the loader; null results (row not found) are never cached.
+      Callers get their own copy of the cached object, since services mutate models before saving.
+    - invalidate() evicts immediately and again once the surrounding transaction finishes, so a
+      reader that raced with the writer can't leave the pre-commit value behind. Keys written in the
+      current transaction bypass the cache until it ends, so uncommitted rows are never shared.
+    - Rows written by other nodes are evicted by CatalogSync within one poll. Read-modify-write
+      paths don't read through the cache at all (CopyDAO/TitleDAO.findByIdForUpdate).
+    - When disabled every call goes straight to the loader.
+*/
+package edu.sjsu.library.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+public class ReadThroughCache<K, V> {
+
+    private final String name;
+    private final boolean enabled;
+    private final Cache<K, V> cache;
+    private final UnaryOperator<V> copyOf;
+
+    public ReadThroughCache(String name, boolean enabled, long maximumSize, UnaryOperator<V> copyOf) {
+        this.name = name;
+        this.enabled = enabled;
+        this.copyOf = copyOf;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        if (!enabled || writtenInCurrentTransaction(key)) {
+            return loader.apply(key);
+        }
+        V value = cache.get(key, loader);
+        return value == null ? null : copyOf.apply(value);
+    }
+
+    public void invalidate(K key) {
+        if (!enabled) {
+            return;
+        }
+        cache.invalidate(key);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        // Track keys written in this transaction; evict them all again once it commits or rolls back.
+        @SuppressWarnings("unchecked")
+        Set<K> written = (Set<K>) TransactionSynchronizationManager.getResource(this);
+        if (written == null) {
+            Set<K> keys = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, keys);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReadThroughCache.this);
+                    cache.invalidateAll(keys);
+                }
+            });
+            written = keys;
+        }
+        written.add(key);
+    }
+
+    private boolean writtenInCurrentTransaction(K key) {
+        Object written = TransactionSynchronizationManager.getResource(this);
+        return written != null && ((Set<?>) written).contains(key);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Hit/miss counters since startup, in a JSON-friendly shape.
+    public Map<String, Object> stats() {
+        CacheStats s = cache.stats();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("size", cache.estimatedSize());
+        out.put("hits", s.hitCount());
+        out.put("misses", s.missCount());
+        out.put("hitRate", s.hitRate());
+        out.put("evictions", s.evictionCount());
+        return out;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+    Per-request user lookups.
+
+    A single page can check the same user several times (controller, AuthorizationUtils, then each
+    service it calls). Within one HTTP request the first findUser(id) resolves the user and later
+    calls for the same ID reuse it. Outside a request (scheduled jobs, the command-line importer)
+    every call goes straight to UserDAO, as before.
+
+    For the session's own user the first lookup doesn't touch the database either: the session
+    keeps a UserPrincipal snapshot, used as long as its version is current (UserVersions). Only a
+    stale or missing snapshot reads the users table, and the snapshot is refreshed from that read.
+
+    Each request's counts are added up by RequestPrincipalFilter (see stats(), GET /api/cache/stats).
+*/
+package edu.sjsu.library.utils;
+
+import edu.sjsu.library.dao.UserDAO;
+import edu.sjsu.library.models.User;
+import edu.sjsu.library.models.UserPrincipal;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class RequestPrincipal {
+
+    static final String ATTRIBUTE = RequestPrincipal.class.getName() + ".LOOKUPS";
+
+    private static final String SESSION_USER_ID = "USER_ID";
+
+    private final UserDAO userDAO;
+    private final UserVersions userVersions;
+
+    // Totals over all finished requests.
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder fromSession = new LongAdder();
+
+    public RequestPrincipal(UserDAO userDAO, UserVersions userVersions) {
+        this.userDAO = userDAO;
+        this.userVersions = userVersions;
+    }
+
+    // The users seen in one request and where they came from.
+    static final class Lookups {
+        private final Map<Integer, User> users = new HashMap<>(4);
+        int queries;
+        int reused;
+        int fromSession;
+    }
+
+    /**
+     * Finds a user by ID, reading the users table at most once per ID per HTTP request, and not at
+     * all for the session's own user while its snapshot is current. A user served from the snapshot
+     * has no password hash, so callers that write users must load them from UserDAO.
+     * @param userID The user ID (usually the session's USER_ID)
+     * @return The User, or null if there is no such user
+     */
+    public User findUser(int userID) {
+        Lookups lookups = current();
+        if (lookups == null) {
+            return userDAO.findById(userID);
+        }
+        if (lookups.users.containsKey(userID)) {
+            lookups.reused++;
+            return lookups.users.get(userID);
+        }
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        boolean sessionUser = Integer.valueOf(userID).equals(
+                attributes.getAttribute(SESSION_USER_ID, RequestAttributes.SCOPE_SESSION));
+        User user = null;
+        if (sessionUser) {
+            UserPrincipal snapshot = (UserPrincipal) attributes.getAttribute(
+                    UserPrincipal.SESSION_ATTRIBUTE, RequestAttributes.SCOPE_SESSION);
+            if (snapshot != null && userVersions.isCurrent(userID, snapshot.getVersion())) {
+                user = snapshot.toUser();
+                lookups.fromSession++;
+            }
+        }
+        if (user == null) {
+            user = userDAO.findById(userID);
+            lookups.queries++;
+            if (sessionUser && user != null) {
+                attributes.setAttribute(UserPrincipal.SESSION_ATTRIBUTE, UserPrincipal.of(user),
+                        RequestAttributes.SCOPE_SESSION);
+            }
+        }
+        lookups.users.put(userID, user);
+        return user;
+    }
+
+    /**
+     * Call after writing a user's row (with the version UserDAO.update returned): forgets the user
+     * for the rest of this request, drops this session's snapshot if it is that user, and marks
+     * every other session's snapshot of the user stale once the transaction commits.
+     */
+    public void userChanged(User user) {
+        int userID = user.getUserID();
+        userVersions.changed(userID, user.getVersion());
+        Lookups lookups = current();
+        if (lookups != null) {
+            lookups.users.remove(userID);
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            if (Integer.valueOf(userID).equals(attributes.getAttribute(SESSION_USER_ID, RequestAttributes.SCOPE_SESSION))) {
+                attributes.removeAttribute(UserPrincipal.SESSION_ATTRIBUTE, RequestAttributes.SCOPE_SESSION);
+            }
+        }
+    }
+
+    // The current request's lookups, created on first use; null when not in a request.
+    private static Lookups current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Lookups lookups = (Lookups) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (lookups == null) {
+            lookups = new Lookups();
+            attributes.setAttribute(ATTRIBUTE, lookups, RequestAttributes.SCOPE_REQUEST);
+        }
+        return lookups;
+    }
+
+    // Called by RequestPrincipalFilter once the request is done.
+    void record(Lookups lookups) {
+        requests.increment();
+        if (lookups != null) {
+            queries.add(lookups.queries);
+            reused.add(lookups.reused);
+            fromSession.add(lookups.fromSession);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long r = requests.sum();
+        long q = queries.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", r);
+        stats.put("userQueries", q);
+        stats.put("userLookupsReused", reused.sum());
+        stats.put("userLookupsFromSession", fromSession.sum());
+        stats.put("userQueriesPerRequest", r == 0 ? 0.0 : (double) q / r);
+        return stats;
+    }
+}
@@ -0,0 +1,15 @@
+package edu.sjsu.library.utils;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+// Session store selection:
+//   library.session.store=jdbc    - sessions live in Postgres (dao/JdbcSessionRepository), shared by all nodes
+//   library.session.store=memory  - the servlet container's own in-memory sessions (single node / sticky sessions)
+// Controllers are unaffected either way: they keep using HttpSession and its USER_ID attribute.
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(name = "library.session.store", havingValue = "jdbc")
+public class SessionStoreConfig {
+}
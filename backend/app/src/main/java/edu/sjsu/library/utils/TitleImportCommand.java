@@ -0,0 +1,60 @@
+package edu.sjsu.library.utils;
+
+import edu.sjsu.library.models.ImportResult;
+import edu.sjsu.library.services.TitleImportService;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Command-line bulk import. Only active when --import-titles is given; imports the file and exits:
+//   ./gradlew bootRun --args='--import-titles=/path/feed.csv --spring.main.web-application-type=none'
+//   ./gradlew bootRun --args='--import-titles=/path/feed.mrk --import-format=marc --spring.main.web-application-type=none'
+// The format defaults to MARC for .mrk/.marc files and CSV otherwise.
+@Component
+@ConditionalOnProperty(name = "import-titles")
+public class TitleImportCommand implements ApplicationRunner {
+
+    private final TitleImportService titleImportService;
+    private final ConfigurableApplicationContext context;
+    private final String path;
+    private final String format;
+
+    public TitleImportCommand(TitleImportService titleImportService,
+                              ConfigurableApplicationContext context,
+                              @Value("${import-titles}") String path,
+                              @Value("${import-format:}") String format) {
+        this.titleImportService = titleImportService;
+        this.context = context;
+        this.path = path;
+        this.format = format;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode;
+        try (Reader in = Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8)) {
+            String lower = path.toLowerCase();
+            String fmt = !format.isBlank() ? format : (lower.endsWith(".mrk") || lower.endsWith(".marc") ? "marc" : "csv");
+            ImportResult result = titleImportService.importTitles(in, TitleImportReader.parseFormat(fmt));
+            for (String error : result.getErrors()) {
+                System.err.println(error);
+            }
+            exitCode = 0;
+        } catch (Exception e) {
+            System.err.println("Title import failed: " + e.getMessage());
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
@@ -0,0 +1,376 @@
+/*
+    Parses vendor catalog feeds for the bulk title import, one record at a time.
+
+    - CSV: RFC 4180 with a header row. Columns are matched by name (case and punctuation ignored):
+      isbn, title, author, year (or yearPublished), genre, and optionally visible (or isVisible).
+    - MARC: the line-based "mnemonic" text form of MARC 21 (MarcEdit .mrk), one "=TAG  ind$a...$b..."
+      field per line and a blank line (or a new =LDR) between records. Used fields:
+          020 $a ISBN, 100/110 $a author, 245 $a $b title,
+          264/260 $c year (008/07-10 as a fallback), 655/650 $a genre (must name a Title.Genre).
+
+    Records that can't be used are reported to the sink with their line number instead of
+    aborting the import.
+*/
+package edu.sjsu.library.utils;
+
+import edu.sjsu.library.models.Title.Genre;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class TitleImportReader {
+
+    public enum Format { CSV, MARC }
+
+    // One validated input record. A null visible means "not given": new titles default to visible,
+    // existing titles keep their current visibility.
+    public record Row(int line, String isbn, String title, String author, int year, Genre genre, Boolean visible) {
+    }
+
+    public interface Sink {
+        void accept(Row row);
+        void reject(int line, String reason);
+    }
+
+    private static final int MAX_TEXT_LENGTH = 255; // titles.isbn/title/author are VARCHAR(255).
+    private static final Pattern YEAR = Pattern.compile("\\d{4}");
+    private static final Pattern ISBN_TOKEN = Pattern.compile("[0-9Xx-]{10,17}");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^A-Z0-9]+");
+
+    private TitleImportReader() {
+    }
+
+    /**
+     * Parses the ?format= parameter (defaults to CSV).
+     * @throws IllegalArgumentException if the format isn't supported
+     */
+    public static Format parseFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return Format.CSV;
+        }
+        String f = format.trim().toUpperCase(Locale.ROOT);
+        if (f.equals("MRK")) {
+            return Format.MARC;
+        }
+        try {
+            return Format.valueOf(f);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported import format: " + format + " (use csv or marc).");
+        }
+    }
+
+    public static void read(Reader in, Format format, Sink sink) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader b ? b : new BufferedReader(in, 1 << 16);
+        if (format == Format.MARC) {
+            readMarc(reader, sink);
+        } else {
+            readCsv(reader, sink);
+        }
+    }
+
+    // ==================== CSV ====================
+
+    private static void readCsv(BufferedReader in, Sink sink) throws IOException {
+        CsvRecords records = new CsvRecords(in);
+        List<String> header = records.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).toLowerCase(Locale.ROOT).replaceAll("[^a-z]", ""), i);
+        }
+        int isbnCol = column(columns, "isbn");
+        int titleCol = column(columns, "title");
+        int authorCol = column(columns, "author");
+        int yearCol = column(columns, "year", "yearpublished");
+        int genreCol = column(columns, "genre");
+        Integer visibleCol = columns.containsKey("visible") ? columns.get("visible") : columns.get("isvisible");
+
+        List<String> fields;
+        while (true) {
+            int line = records.line();
+            fields = records.next();
+            if (fields == null) {
+                break;
+            }
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue; // Blank line.
+            }
+
+            Integer year = parseYear(field(fields, yearCol));
+            Boolean visible = null;
+            String v = visibleCol == null ? null : field(fields, visibleCol);
+            if (v != null && !v.isBlank()) {
+                visible = parseBoolean(v);
+                if (visible == null) {
+                    sink.reject(line, "visible must be true/false, got '" + v + "'.");
+                    continue;
+                }
+            }
+            emit(sink, line, field(fields, isbnCol), field(fields, titleCol), field(fields, authorCol),
+                    year, parseGenre(field(fields, genreCol)), field(fields, genreCol), visible);
+        }
+    }
+
+    private static int column(Map<String, Integer> columns, String... names) {
+        for (String name : names) {
+            Integer i = columns.get(name);
+            if (i != null) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("CSV header is missing the '" + names[0] + "' column.");
+    }
+
+    private static String field(List<String> fields, int i) {
+        return i < fields.size() ? fields.get(i).trim() : null;
+    }
+
+    // Streaming RFC 4180 reader: quoted fields may contain commas, doubled quotes and line breaks.
+    private static final class CsvRecords {
+        private final BufferedReader in;
+        private int line = 1;       // Line the next record starts on.
+
+        CsvRecords(BufferedReader in) {
+            this.in = in;
+        }
+
+        int line() {
+            return line;
+        }
+
+        List<String> next() throws IOException {
+            int c = in.read();
+            if (c < 0) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (c < 0) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int n = in.read();
+                        if (n == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            in.reset();
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        in.mark(1);
+                        if (in.read() != '\n') {
+                            in.reset();
+                        }
+                    }
+                    line++;
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+        }
+    }
+
+    // ==================== MARC (mnemonic) ====================
+
+    private static void readMarc(BufferedReader in, Sink sink) throws IOException {
+        Map<String, List<String>> fields = new HashMap<>();
+        int recordLine = 0;
+        int lineNo = 0;
+        String text;
+        while ((text = in.readLine()) != null) {
+            lineNo++;
+            if (text.isBlank() || text.startsWith("=LDR")) {
+                if (!fields.isEmpty()) {
+                    emitMarc(sink, recordLine, fields);
+                    fields = new HashMap<>();
+                }
+                if (text.isBlank()) {
+                    continue;
+                }
+            }
+            if (!text.startsWith("=") || text.length() < 4) {
+                sink.reject(lineNo, "not a MARC field line.");
+                continue;
+            }
+            if (fields.isEmpty()) {
+                recordLine = lineNo;
+            }
+            String tag = text.substring(1, 4);
+            String body = text.length() > 6 ? text.substring(6) : ""; // "=TAG  " prefix.
+            fields.computeIfAbsent(tag, k -> new ArrayList<>()).add(body);
+        }
+        if (!fields.isEmpty()) {
+            emitMarc(sink, recordLine, fields);
+        }
+    }
+
+    private static void emitMarc(Sink sink, int line, Map<String, List<String>> fields) {
+        String isbn = null;
+        String rawIsbn = subfield(fields, 'a', "020");
+        if (rawIsbn != null) {
+            Matcher m = ISBN_TOKEN.matcher(rawIsbn);
+            isbn = m.find() ? m.group() : rawIsbn;
+        }
+
+        String title = subfield(fields, 'a', "245");
+        String subtitle = subfield(fields, 'b', "245");
+        if (title != null && subtitle != null) {
+            title = stripPunctuation(title) + ": " + subtitle;
+        }
+
+        String author = subfield(fields, 'a', "100", "110");
+        String date = subfield(fields, 'c', "264", "260");
+        Integer year = parseYear(date);
+        if (year == null && fields.containsKey("008")) {
+            String f008 = fields.get("008").get(0);
+            year = f008.length() >= 11 ? parseYear(f008.substring(7, 11)) : null;
+        }
+
+        // First 655 (genre/form) or 650 (topic) heading that names one of our genres.
+        Genre genre = null;
+        String firstHeading = null;
+        for (String tag : new String[] {"655", "650"}) {
+            for (String body : fields.getOrDefault(tag, List.of())) {
+                String heading = subfield(body, 'a');
+                if (heading != null && genre == null) {
+                    firstHeading = firstHeading == null ? heading : firstHeading;
+                    genre = parseGenre(stripPunctuation(heading));
+                }
+            }
+        }
+
+        emit(sink, line, isbn, title == null ? null : stripPunctuation(title),
+                author == null ? null : stripPunctuation(author), year, genre, firstHeading, null);
+    }
+
+    private static String subfield(Map<String, List<String>> fields, char code, String... tags) {
+        for (String tag : tags) {
+            for (String body : fields.getOrDefault(tag, List.of())) {
+                String value = subfield(body, code);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    // "10$aThe hobbit /$cby J.R.R. Tolkien." -> 'a' -> "The hobbit /"
+    private static String subfield(String body, char code) {
+        int start = body.indexOf("$" + code);
+        if (start < 0) {
+            return null;
+        }
+        int end = body.indexOf('$', start + 2);
+        String value = body.substring(start + 2, end < 0 ? body.length() : end);
+        return value.replace("{dollar}", "$").trim();
+    }
+
+    // Cataloguers end fields with ISBD punctuation (" /", " :", ",", "."); drop it, but keep initials like "R. R.".
+    private static String stripPunctuation(String s) {
+        String out = s.trim();
+        while (!out.isEmpty()) {
+            char last = out.charAt(out.length() - 1);
+            boolean initial = last == '.' && out.length() >= 3
+                    && Character.isUpperCase(out.charAt(out.length() - 2))
+                    && !Character.isLetter(out.charAt(out.length() - 3));
+            if ((last == '/' || last == ':' || last == ';' || last == ',' || last == '.') && !initial) {
+                out = out.substring(0, out.length() - 1).trim();
+            } else {
+                break;
+            }
+        }
+        return out;
+    }
+
+    // ==================== Validation ====================
+
+    private static void emit(Sink sink, int line, String isbn, String title, String author,
+                             Integer year, Genre genre, String rawGenre, Boolean visible) {
+        String error = null;
+        if (isbn == null || isbn.isBlank()) {
+            error = "ISBN is missing.";
+        } else if (title == null || title.isBlank()) {
+            error = "title is missing.";
+        } else if (author == null || author.isBlank()) {
+            error = "author is missing.";
+        } else if (isbn.length() > MAX_TEXT_LENGTH || title.length() > MAX_TEXT_LENGTH || author.length() > MAX_TEXT_LENGTH) {
+            error = "ISBN, title and author must be at most " + MAX_TEXT_LENGTH + " characters.";
+        } else if (year == null) {
+            error = "publication year is missing or not a number.";
+        } else if (genre == null) {
+            error = rawGenre == null || rawGenre.isBlank()
+                    ? "genre is missing."
+                    : "unknown genre '" + rawGenre + "'.";
+        }
+
+        if (error != null) {
+            sink.reject(line, error);
+        } else {
+            sink.accept(new Row(line, isbn.trim(), title.trim(), author.trim(), year, genre, visible));
+        }
+    }
+
+    private static Integer parseYear(String s) {
+        if (s == null) {
+            return null;
+        }
+        Matcher m = YEAR.matcher(s);
+        return m.find() ? Integer.valueOf(m.group()) : null;
+    }
+
+    // "Science Fiction", "science-fiction" and "SCIENCE_FICTION" all name Genre.SCIENCE_FICTION.
+    private static Genre parseGenre(String s) {
+        if (s == null || s.isBlank()) {
+            return null;
+        }
+        String name = NON_ALNUM.matcher(s.trim().toUpperCase(Locale.ROOT)).replaceAll("_");
+        name = name.replaceAll("^_+|_+$", "");
+        try {
+            return Genre.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Boolean parseBoolean(String s) {
+        switch (s.trim().toLowerCase(Locale.ROOT)) {
+            case "true", "t", "yes", "y", "1":
+                return Boolean.TRUE;
+            case "false", "f", "no", "n", "0":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+}
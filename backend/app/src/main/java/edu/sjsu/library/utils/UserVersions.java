@@ -0,0 +1,77 @@
+/*
+    Latest known users.version for every user written since startup (plus every user ever written,
+    loaded on startup). A session's UserPrincipal is current while its version is at least this one.
+
+    - Writes on this node are recorded as soon as their transaction commits.
+    - Writes on other nodes are picked up by polling users.updated_at every
+      library.principal.version-poll-ms (default 5 s), so a role/status change made elsewhere
+      takes effect here within one poll interval.
+
+    The first poll runs once every bean is created, before the web server starts taking requests.
+    Until a poll has succeeded (e.g. the database was down at startup) no snapshot counts as
+    current, so requests read the users row instead of trusting a possibly stale session.
+
+    Each poll looks back a little before the previous one (POLL_OVERLAP), because updated_at is
+    the writing transaction's start time and a long transaction can commit after a poll that
+    started later than it did.
+*/
+package edu.sjsu.library.utils;
+
+import edu.sjsu.library.dao.UserDAO;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class UserVersions implements SmartInitializingSingleton {
+
+    private static final Duration POLL_OVERLAP = Duration.ofMinutes(1);
+
+    private final UserDAO userDAO;
+    private final Map<Integer, Long> latest = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastReadAt; // DB time of the last successful poll; null until the first one.
+
+    public UserVersions(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+
+    /** The newest version seen for the user (0 for users never written since they were created). */
+    public long latest(int userID) {
+        return latest.getOrDefault(userID, 0L);
+    }
+
+    /** Whether a session snapshot of the user at this version can be used without reading the users row. */
+    public boolean isCurrent(int userID, long version) {
+        return lastReadAt != null && version >= latest(userID);
+    }
+
+    /** Records a write made on this node, once the surrounding transaction commits. */
+    public void changed(int userID, long version) {
+        AfterCommit.run(() -> latest.merge(userID, version, Math::max));
+    }
+
+    // Runs before the web server starts, so the first requests already see every version.
+    @Override
+    public void afterSingletonsInstantiated() {
+        poll();
+    }
+
+    @Scheduled(fixedDelayString = "${library.principal.version-poll-ms:5000}")
+    public synchronized void poll() {
+        try {
+            UserDAO.VersionChanges changes = userDAO.findVersionsChangedSince(
+                    lastReadAt == null ? null : lastReadAt.minus(POLL_OVERLAP));
+            changes.versions().forEach((id, version) -> latest.merge(id, version, Math::max));
+            lastReadAt = changes.readAt();
+        } catch (RuntimeException e) {
+            // Keep serving with what we know; the next poll covers the gap since lastReadAt.
+            System.err.println("User version poll failed: " + e.getMessage());
+        }
+    }
+}
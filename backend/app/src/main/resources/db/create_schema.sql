@@ -1,10 +1,18 @@
 -- Drop existing tables if they exist (for development/testing purposes)
+DROP TABLE IF EXISTS http_sessions;
+DROP TABLE IF EXISTS title_availability CASCADE;
+DROP TABLE IF EXISTS title_loan_counts CASCADE;
+DROP TABLE IF EXISTS deleted_rows;
 DROP TABLE IF EXISTS holds CASCADE;
+DROP TABLE IF EXISTS fine_accruals;
 DROP TABLE IF EXISTS fines CASCADE;
 DROP TABLE IF EXISTS book_records CASCADE;
+DROP TABLE IF EXISTS book_records_archive CASCADE;
 DROP TABLE IF EXISTS copies CASCADE;
 DROP TABLE IF EXISTS titles CASCADE;
 DROP TABLE IF EXISTS users CASCADE;
+DROP SEQUENCE IF EXISTS copy_barcode_seq;
+DROP SEQUENCE IF EXISTS hold_queue_seq;
 
 -- Users table
 CREATE TABLE IF NOT EXISTS users (
@@ -14,9 +22,14 @@ CREATE TABLE IF NOT EXISTS users (
     email VARCHAR(100) UNIQUE NOT NULL,
     passwordhash VARCHAR(255) NOT NULL,
     role VARCHAR(20) NOT NULL,
-    status VARCHAR(20) NOT NULL
+    status VARCHAR(20) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,                 -- Bumped on every update (session snapshots).
+    updated_at TIMESTAMP NOT NULL DEFAULT now()
 );
 
+-- Polled for user changes made on other nodes (see migrations/006_user_versions.sql)
+CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users (updated_at);
+
 -- Titles table
 CREATE TABLE IF NOT EXISTS titles (
     id SERIAL PRIMARY KEY,
@@ -25,9 +38,22 @@ CREATE TABLE IF NOT EXISTS titles (
     author VARCHAR(255) NOT NULL,
     yearPublished INT NOT NULL,
     genre VARCHAR(100) NOT NULL,
-    isVisible BOOLEAN DEFAULT TRUE NOT NULL
+    isVisible BOOLEAN DEFAULT TRUE NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,                 -- Bumped on every update (ETags).
+    updated_at TIMESTAMP NOT NULL DEFAULT now(),
+    -- Weighted full-text document (title = A, author = B), maintained by Postgres.
+    search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(author, '')), 'B')
+    ) STORED
 );
 
+-- Title search indexes (see migrations/001_title_search.sql)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_titles_search_vector ON titles USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_titles_title_trgm ON titles USING GIN (LOWER(title) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_titles_author_trgm ON titles USING GIN (LOWER(author) gin_trgm_ops);
+
 -- Copies table
 CREATE TABLE IF NOT EXISTS copies (
     copyid SERIAL PRIMARY KEY,
@@ -35,32 +61,105 @@ CREATE TABLE IF NOT EXISTS copies (
     barcode VARCHAR(100) UNIQUE NOT NULL,
     status VARCHAR(20) NOT NULL,
     location VARCHAR(100) NOT NULL,
-    isvisible BOOLEAN NOT NULL
+    isvisible BOOLEAN NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,                 -- Bumped on every update (ETags).
+    updated_at TIMESTAMP NOT NULL DEFAULT now()
 );
 
--- Book records (loans) table
+-- Barcodes for batch-provisioned copies (see migrations/005_copy_barcode_sequence.sql)
+CREATE SEQUENCE IF NOT EXISTS copy_barcode_seq START WITH 100000 CACHE 100;
+
+-- Copy lookups by title/status (see migrations/002_copy_availability_index.sql)
+CREATE INDEX IF NOT EXISTS idx_copies_titleid_status ON copies (titleid, status);
+
+-- Change tracking for other app nodes' caches and indexes (see migrations/015_catalog_change_tracking.sql)
+ALTER TABLE titles ADD COLUMN IF NOT EXISTS change_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+ALTER TABLE copies ADD COLUMN IF NOT EXISTS change_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+CREATE INDEX IF NOT EXISTS idx_titles_change_xid ON titles (change_xid);
+CREATE INDEX IF NOT EXISTS idx_copies_change_xid ON copies (change_xid);
+CREATE TABLE IF NOT EXISTS deleted_rows (
+    tablename VARCHAR(20) NOT NULL,   -- 'titles' or 'copies'
+    id INTEGER NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT now(),
+    change_xid xid8 NOT NULL DEFAULT pg_current_xact_id()
+);
+CREATE INDEX IF NOT EXISTS idx_deleted_rows_deleted_at ON deleted_rows (deleted_at);
+CREATE INDEX IF NOT EXISTS idx_deleted_rows_change_xid ON deleted_rows (change_xid);
+
+-- Per-title copy status counters, maintained by CopyDAO (see migrations/003_title_availability.sql)
+CREATE TABLE IF NOT EXISTS title_availability (
+    titleid INTEGER PRIMARY KEY REFERENCES titles(id) ON DELETE CASCADE,
+    total INTEGER NOT NULL DEFAULT 0,
+    available INTEGER NOT NULL DEFAULT 0,
+    checked_out INTEGER NOT NULL DEFAULT 0,
+    reserved INTEGER NOT NULL DEFAULT 0,
+    other INTEGER NOT NULL DEFAULT 0   -- Lost, damaged, maintenance.
+);
+
+-- Book records (loans) table, partitioned by checkout year (see migrations/010_partition_book_records.sql).
+-- Rows land in book_records_default until LoanArchivalJob creates the yearly partitions at startup.
 CREATE TABLE IF NOT EXISTS book_records (
-    loanid SERIAL PRIMARY KEY,
+    loanid SERIAL,
     copyid INTEGER NOT NULL REFERENCES copies(copyid),
     userid INTEGER NOT NULL REFERENCES users(id),
     checkoutdate TIMESTAMP NOT NULL,
     duedate TIMESTAMP NOT NULL,
     returndate TIMESTAMP,
-    renewcount INTEGER NOT NULL
+    renewcount INTEGER NOT NULL,
+    PRIMARY KEY (loanid, checkoutdate)
+) PARTITION BY RANGE (checkoutdate);
+CREATE TABLE IF NOT EXISTS book_records_default PARTITION OF book_records DEFAULT;
+CREATE INDEX IF NOT EXISTS idx_book_records_active_by_user ON book_records (userid) WHERE returndate IS NULL;
+CREATE INDEX IF NOT EXISTS idx_book_records_copy ON book_records (copyid, loanid);
+CREATE INDEX IF NOT EXISTS idx_book_records_overdue ON book_records (loanid, duedate) WHERE returndate IS NULL;
+
+-- Returned loans moved out of book_records by LoanArchivalJob
+CREATE TABLE IF NOT EXISTS book_records_archive (
+    loanid INTEGER NOT NULL,
+    copyid INTEGER NOT NULL,
+    userid INTEGER NOT NULL,
+    checkoutdate TIMESTAMP NOT NULL,
+    duedate TIMESTAMP NOT NULL,
+    returndate TIMESTAMP,
+    renewcount INTEGER NOT NULL,
+    PRIMARY KEY (loanid, checkoutdate)
+) PARTITION BY RANGE (checkoutdate);
+CREATE TABLE IF NOT EXISTS book_records_archive_default PARTITION OF book_records_archive DEFAULT;
+CREATE INDEX IF NOT EXISTS idx_book_records_archive_user ON book_records_archive (userid, checkoutdate);
+CREATE INDEX IF NOT EXISTS idx_book_records_archive_copy ON book_records_archive (copyid, loanid);
+
+-- All-time loans per title, maintained by CopyDAO.checkOut (see migrations/014_title_loan_counts.sql)
+CREATE TABLE IF NOT EXISTS title_loan_counts (
+    titleid INTEGER PRIMARY KEY REFERENCES titles(id) ON DELETE CASCADE,
+    loans INTEGER NOT NULL DEFAULT 0
 );
 
 -- Fines table
 CREATE TABLE IF NOT EXISTS fines (
     id SERIAL PRIMARY KEY,
     userid INTEGER NOT NULL REFERENCES users(id),
-    loanid INTEGER NOT NULL REFERENCES book_records(loanid),
+    loanid INTEGER NOT NULL, -- book_records is partitioned, so this can't be a foreign key.
     amount NUMERIC(10,2) NOT NULL,
     finedate TIMESTAMP NOT NULL,
     reason VARCHAR(255) NOT NULL,
-    status VARCHAR(20) NOT NULL
+    status VARCHAR(20) NOT NULL,
+    accrual BOOLEAN NOT NULL DEFAULT FALSE -- TRUE for the fine FineAccrualJob adds overdue days to.
+);
+CREATE INDEX IF NOT EXISTS idx_fines_unpaid_by_user ON fines (userid) INCLUDE (amount) WHERE status = 'UNPAID';
+CREATE UNIQUE INDEX IF NOT EXISTS idx_fines_open_accrual ON fines (loanid) WHERE accrual AND status = 'UNPAID';
+CREATE INDEX IF NOT EXISTS idx_fines_loan ON fines (loanid) INCLUDE (amount, status);
+
+-- One row per overdue loan-day already charged (see migrations/011_fine_accrual.sql)
+CREATE TABLE IF NOT EXISTS fine_accruals (
+    loanid INTEGER NOT NULL,
+    accrualdate DATE NOT NULL,
+    userid INTEGER NOT NULL,
+    amount NUMERIC(10,2) NOT NULL,
+    PRIMARY KEY (loanid, accrualdate)
 );
 
 -- Holds table
+CREATE SEQUENCE IF NOT EXISTS hold_queue_seq;
 CREATE TABLE IF NOT EXISTS holds (
     id SERIAL PRIMARY KEY,
     userid INTEGER NOT NULL REFERENCES users(id),
@@ -70,5 +169,18 @@ CREATE TABLE IF NOT EXISTS holds (
     placedat TIMESTAMP NOT NULL,
     readyat TIMESTAMP NULL,
     pickupexpire TIMESTAMP NULL,
-    position INTEGER NOT NULL
-);
\ No newline at end of file
+    position INTEGER NOT NULL DEFAULT nextval('hold_queue_seq') -- Queue key, not the queue position (see migrations/013_hold_queue_keys.sql).
+);
+ALTER SEQUENCE hold_queue_seq OWNED BY holds.position;
+CREATE INDEX IF NOT EXISTS idx_holds_queue ON holds (titleid, position, id) WHERE status IN ('QUEUED', 'READY');
+
+-- Shared HTTP sessions (see migrations/007_http_sessions.sql)
+CREATE UNLOGGED TABLE IF NOT EXISTS http_sessions (
+    session_id TEXT PRIMARY KEY,
+    creation_time BIGINT NOT NULL,
+    last_access_time BIGINT NOT NULL,
+    max_inactive_seconds INT NOT NULL,
+    expiry_time BIGINT NOT NULL,
+    attributes BYTEA NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_http_sessions_expiry ON http_sessions (expiry_time);
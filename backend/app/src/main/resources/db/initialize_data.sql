@@ -152,3 +152,32 @@ INSERT INTO holds (userid, titleid, copyid, status, placedat, readyat, pickupexp
 
 -- PICKED_UP hold (old, completed transaction - was picked up and checked out)
 (1, 15, NULL, 'PICKED_UP', '2025-10-15 10:00:00', '2025-10-18 12:00:00', '2025-10-25 23:59:59', 1);
+
+-- The positions above are queue keys; new holds must get larger ones (see migrations/013_hold_queue_keys.sql)
+SELECT setval('hold_queue_seq', (SELECT MAX(position) FROM holds));
+
+-- Seed per-title availability counters from the copies above
+INSERT INTO title_availability (titleid, total, available, checked_out, reserved, other)
+SELECT t.id,
+       COUNT(c.copyid),
+       COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) = 'AVAILABLE'),
+       COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) = 'CHECKED_OUT'),
+       COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) = 'RESERVED'),
+       COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) NOT IN ('AVAILABLE', 'CHECKED_OUT', 'RESERVED'))
+FROM titles t
+LEFT JOIN copies c ON c.titleid = t.id
+GROUP BY t.id
+ON CONFLICT (titleid) DO UPDATE SET
+    total = EXCLUDED.total,
+    available = EXCLUDED.available,
+    checked_out = EXCLUDED.checked_out,
+    reserved = EXCLUDED.reserved,
+    other = EXCLUDED.other;
+
+-- Seed per-title loan counts from the loans above
+INSERT INTO title_loan_counts (titleid, loans)
+SELECT c.titleid, COUNT(*)
+FROM book_records br
+JOIN copies c ON c.copyid = br.copyid
+GROUP BY c.titleid
+ON CONFLICT (titleid) DO UPDATE SET loans = EXCLUDED.loans;
@@ -0,0 +1,24 @@
+-- Migration 001: full-text and trigram search over titles.
+-- Safe to run more than once. Requires permission to create the pg_trgm extension.
+--
+-- search_vector is a STORED generated column, so Postgres fills it in for every
+-- existing row when the column is added (the backfill) and keeps it current on
+-- every INSERT/UPDATE without a trigger. Title words carry weight A, author words B.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE titles
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(author, '')), 'B')
+    ) STORED;
+
+-- Ranked word/phrase search.
+CREATE INDEX IF NOT EXISTS idx_titles_search_vector ON titles USING GIN (search_vector);
+
+-- Typo-tolerant (%) and substring (LIKE '%x%') matching on lower-cased columns.
+CREATE INDEX IF NOT EXISTS idx_titles_title_trgm ON titles USING GIN (LOWER(title) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_titles_author_trgm ON titles USING GIN (LOWER(author) gin_trgm_ops);
+
+ANALYZE titles;
@@ -0,0 +1,10 @@
+-- Migration 002: index copies by title and status.
+-- Safe to run more than once.
+--
+-- Lets per-title copy lookups (CopyDAO.findByTitle) and the batched available-copy
+-- counts (CopyDAO.countAvailableByTitles) read only the copies of the requested
+-- titles instead of scanning the whole table.
+
+CREATE INDEX IF NOT EXISTS idx_copies_titleid_status ON copies (titleid, status);
+
+ANALYZE copies;
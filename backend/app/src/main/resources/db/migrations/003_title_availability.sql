@@ -0,0 +1,36 @@
+-- Migration 003: per-title copy status counters.
+-- Safe to run more than once (the backfill simply recounts).
+--
+-- CopyDAO keeps title_availability in step with every copy insert, status change
+-- and delete inside the same transaction, so availability reads are a single
+-- primary-key lookup. AvailabilityRepairJob re-runs the backfill below nightly
+-- to correct any drift (e.g. rows edited by hand in psql).
+
+CREATE TABLE IF NOT EXISTS title_availability (
+    titleid INTEGER PRIMARY KEY REFERENCES titles(id) ON DELETE CASCADE,
+    total INTEGER NOT NULL DEFAULT 0,
+    available INTEGER NOT NULL DEFAULT 0,
+    checked_out INTEGER NOT NULL DEFAULT 0,
+    reserved INTEGER NOT NULL DEFAULT 0,
+    other INTEGER NOT NULL DEFAULT 0   -- Lost, damaged, maintenance.
+);
+
+-- Backfill from the current copies.
+INSERT INTO title_availability (titleid, total, available, checked_out, reserved, other)
+SELECT t.id,
+       COUNT(c.copyid),
+       COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) = 'AVAILABLE'),
+       COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) = 'CHECKED_OUT'),
+       COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) = 'RESERVED'),
+       COUNT(c.copyid) FILTER (WHERE UPPER(TRIM(c.status)) NOT IN ('AVAILABLE', 'CHECKED_OUT', 'RESERVED'))
+FROM titles t
+LEFT JOIN copies c ON c.titleid = t.id
+GROUP BY t.id
+ON CONFLICT (titleid) DO UPDATE SET
+    total = EXCLUDED.total,
+    available = EXCLUDED.available,
+    checked_out = EXCLUDED.checked_out,
+    reserved = EXCLUDED.reserved,
+    other = EXCLUDED.other;
+
+ANALYZE title_availability;
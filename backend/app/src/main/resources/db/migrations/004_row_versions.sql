@@ -0,0 +1,14 @@
+-- Migration 004: row versions and last-modified times for titles and copies.
+-- Safe to run more than once.
+--
+-- TitleDAO.update and CopyDAO.update bump version and set updated_at on every write.
+-- The pair feeds the ETag / Last-Modified headers on the title page and the catalog
+-- and copy APIs, so unchanged resources can be answered with 304 Not Modified.
+
+ALTER TABLE titles
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT now();
+
+ALTER TABLE copies
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT now();
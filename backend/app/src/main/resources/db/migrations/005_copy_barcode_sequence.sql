@@ -0,0 +1,8 @@
+-- Migration 005: sequence-backed barcodes for batch copy provisioning.
+-- Safe to run more than once.
+--
+-- CopyDAO.insertBatch draws one value per new copy and formats it as
+-- 'LIB' || 9-digit number (LIB000100000, LIB000100001, ...). Sequence values are
+-- never handed out twice, so concurrent batches can't collide on barcode.
+
+CREATE SEQUENCE IF NOT EXISTS copy_barcode_seq START WITH 100000 CACHE 100;
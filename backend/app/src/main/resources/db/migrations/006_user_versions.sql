@@ -0,0 +1,13 @@
+-- Migration 006: row version and last-modified time for users.
+-- Safe to run more than once.
+--
+-- UserDAO.update bumps version and sets updated_at on every write (status changes, profile
+-- edits, password changes). Each session keeps a snapshot of its user tagged with the version
+-- it was read at; a node only goes back to the users table when that version is stale.
+-- Nodes learn about changes made elsewhere by polling updated_at (see UserVersions).
+
+ALTER TABLE users
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT now();
+
+CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users (updated_at);
@@ -0,0 +1,20 @@
+-- Migration 007: shared HTTP session store (library.session.store=jdbc).
+-- Safe to run more than once.
+--
+-- Login state is kept here instead of in one node's memory, so any node behind the load balancer
+-- can serve any request. The table is UNLOGGED: writes skip the WAL, and after a database crash it
+-- comes back empty, which only means everyone logs in again.
+--
+-- Times are epoch milliseconds. last_access_time / expiry_time are advanced in batches every
+-- library.session.touch-flush-ms rather than on every request (see JdbcSessionRepository).
+
+CREATE UNLOGGED TABLE IF NOT EXISTS http_sessions (
+    session_id TEXT PRIMARY KEY,
+    creation_time BIGINT NOT NULL,
+    last_access_time BIGINT NOT NULL,
+    max_inactive_seconds INT NOT NULL,
+    expiry_time BIGINT NOT NULL,
+    attributes BYTEA NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_http_sessions_expiry ON http_sessions (expiry_time);
@@ -0,0 +1,12 @@
+-- Migration 008: partial indexes for the checkout / renewal eligibility counts.
+-- Safe to run more than once.
+--
+-- Checkout and renewal count a member's open loans and sum their unpaid fines
+-- (BookRecordDAO.findEligibility, CopyDAO.checkOut). These indexes cover only the
+-- rows those aggregates read, so the cost stays flat as loan and fine history grows.
+
+CREATE INDEX IF NOT EXISTS idx_book_records_active_by_user ON book_records (userid) WHERE returndate IS NULL;
+CREATE INDEX IF NOT EXISTS idx_fines_unpaid_by_user ON fines (userid) INCLUDE (amount) WHERE status = 'UNPAID';
+
+ANALYZE book_records;
+ANALYZE fines;
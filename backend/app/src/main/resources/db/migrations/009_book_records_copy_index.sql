@@ -0,0 +1,10 @@
+-- Migration 009: index loan records by copy.
+-- Safe to run more than once.
+--
+-- A title's loan history (BookRecordDAO.findHistoryByTitle) joins the title's copies to
+-- their loans. With this index each copy's loans are one index range read, already in
+-- loanid order, instead of a scan of the whole book_records table.
+
+CREATE INDEX IF NOT EXISTS idx_book_records_copy ON book_records (copyid, loanid);
+
+ANALYZE book_records;
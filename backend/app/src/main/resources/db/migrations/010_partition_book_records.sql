@@ -0,0 +1,84 @@
+-- Migration 010: range-partition book_records by checkoutdate and add the loan archive.
+-- Safe to run more than once (the conversion only happens while book_records is still a plain table).
+--
+-- book_records becomes a partitioned table with one partition per year (book_records_y2025, ...)
+-- plus book_records_default. Queries that filter on checkoutdate only read the years they need,
+-- and LoanArchivalJob creates the next year's partition ahead of time.
+--
+-- LoanArchivalJob moves returned loans older than library.loans.archive-after-days into
+-- book_records_archive (also partitioned by year, stored uncompressed like book_records).
+-- Everyday queries only read book_records; the history endpoints read both when asked
+-- (includeArchived=true).
+--
+-- Postgres requires a partitioned table's primary key to include the partition column, so the
+-- key becomes (loanid, checkoutdate) and fines.loanid can no longer be a foreign key.
+-- loanid still comes from the same sequence and stays unique.
+
+BEGIN;
+
+DO $$
+DECLARE
+    y INTEGER;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'book_records'::regclass) THEN
+        ALTER TABLE fines DROP CONSTRAINT IF EXISTS fines_loanid_fkey;
+
+        ALTER TABLE book_records RENAME TO book_records_unpartitioned;
+        ALTER INDEX IF EXISTS idx_book_records_active_by_user RENAME TO idx_book_records_unpartitioned_active;
+        ALTER INDEX IF EXISTS idx_book_records_copy RENAME TO idx_book_records_unpartitioned_copy;
+
+        CREATE TABLE book_records (
+            loanid INTEGER NOT NULL DEFAULT nextval('book_records_loanid_seq'),
+            copyid INTEGER NOT NULL REFERENCES copies(copyid),
+            userid INTEGER NOT NULL REFERENCES users(id),
+            checkoutdate TIMESTAMP NOT NULL,
+            duedate TIMESTAMP NOT NULL,
+            returndate TIMESTAMP,
+            renewcount INTEGER NOT NULL,
+            PRIMARY KEY (loanid, checkoutdate)
+        ) PARTITION BY RANGE (checkoutdate);
+        ALTER SEQUENCE book_records_loanid_seq OWNED BY book_records.loanid;
+
+        CREATE TABLE book_records_default PARTITION OF book_records DEFAULT;
+
+        -- One partition per year from the oldest loan through next year.
+        FOR y IN
+            SELECT generate_series(
+                COALESCE(EXTRACT(YEAR FROM MIN(checkoutdate))::int, EXTRACT(YEAR FROM now())::int),
+                EXTRACT(YEAR FROM now())::int + 1)
+            FROM book_records_unpartitioned
+        LOOP
+            EXECUTE format('CREATE TABLE book_records_y%s PARTITION OF book_records FOR VALUES FROM (%L) TO (%L)',
+                           y, make_date(y, 1, 1), make_date(y + 1, 1, 1));
+        END LOOP;
+
+        INSERT INTO book_records (loanid, copyid, userid, checkoutdate, duedate, returndate, renewcount)
+        SELECT loanid, copyid, userid, checkoutdate, duedate, returndate, renewcount
+        FROM book_records_unpartitioned;
+
+        DROP TABLE book_records_unpartitioned;
+    END IF;
+END $$;
+
+CREATE INDEX IF NOT EXISTS idx_book_records_active_by_user ON book_records (userid) WHERE returndate IS NULL;
+CREATE INDEX IF NOT EXISTS idx_book_records_copy ON book_records (copyid, loanid);
+
+-- Archived loans. No foreign keys, so copies and users can be removed later without touching history.
+CREATE TABLE IF NOT EXISTS book_records_archive (
+    loanid INTEGER NOT NULL,
+    copyid INTEGER NOT NULL,
+    userid INTEGER NOT NULL,
+    checkoutdate TIMESTAMP NOT NULL,
+    duedate TIMESTAMP NOT NULL,
+    returndate TIMESTAMP,
+    renewcount INTEGER NOT NULL,
+    PRIMARY KEY (loanid, checkoutdate)
+) PARTITION BY RANGE (checkoutdate);
+CREATE TABLE IF NOT EXISTS book_records_archive_default PARTITION OF book_records_archive DEFAULT;
+CREATE INDEX IF NOT EXISTS idx_book_records_archive_user ON book_records_archive (userid, checkoutdate);
+CREATE INDEX IF NOT EXISTS idx_book_records_archive_copy ON book_records_archive (copyid, loanid);
+
+COMMIT;
+
+ANALYZE book_records;
+ANALYZE book_records_archive;
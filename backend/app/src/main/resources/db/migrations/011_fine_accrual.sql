@@ -0,0 +1,24 @@
+-- Migration 011: daily accrual of overdue fines.
+-- Safe to run more than once.
+--
+-- FineAccrualJob charges library.fines.daily-rate for every day a loan is overdue. Each
+-- loan-day is recorded once in fine_accruals (primary key loanid + accrualdate), so re-running
+-- the job for the same night changes nothing. The day amounts are added to one open fine per
+-- loan: the UNPAID fines row with accrual = TRUE (at most one per loan, enforced by the index).
+
+ALTER TABLE fines ADD COLUMN IF NOT EXISTS accrual BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_fines_open_accrual ON fines (loanid) WHERE accrual AND status = 'UNPAID';
+
+CREATE TABLE IF NOT EXISTS fine_accruals (
+    loanid INTEGER NOT NULL,
+    accrualdate DATE NOT NULL,
+    userid INTEGER NOT NULL,
+    amount NUMERIC(10,2) NOT NULL,
+    PRIMARY KEY (loanid, accrualdate)
+);
+
+-- Unreturned overdue loans, in loanid order: the rows each accrual chunk reads.
+CREATE INDEX IF NOT EXISTS idx_book_records_overdue ON book_records (loanid, duedate) WHERE returndate IS NULL;
+
+ANALYZE fines;
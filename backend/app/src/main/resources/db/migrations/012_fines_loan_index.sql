@@ -0,0 +1,10 @@
+-- Migration 012: index fines by loan.
+-- Safe to run more than once.
+--
+-- Loan lists and loan detail (BookRecordDAO's enriched loan queries) show each loan's fine
+-- totals from the same query as the loan. With this index that is one small index read per
+-- loan on the page, instead of a scan of the whole fines table.
+
+CREATE INDEX IF NOT EXISTS idx_fines_loan ON fines (loanid) INCLUDE (amount, status);
+
+ANALYZE fines;
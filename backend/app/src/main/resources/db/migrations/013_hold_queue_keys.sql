@@ -0,0 +1,24 @@
+-- Migration 013: hold queue keys instead of stored queue positions.
+-- Safe to run more than once.
+--
+-- holds.position used to hold each hold's place in its title's queue (1, 2, 3, ...), and every
+-- cancel, pickup or expiry renumbered the holds behind it, one UPDATE per hold. From now on
+-- the column holds a key that only grows: new holds take the next value of hold_queue_seq and
+-- keep it. HoldDAO computes positions when it reads holds, as row_number() over the title's
+-- active holds in key order, so a cancel is a single row write.
+--
+-- Existing positions are kept as keys (they are already in queue order), and the sequence
+-- starts after the largest one, so every new hold joins the back of its queue.
+
+CREATE SEQUENCE IF NOT EXISTS hold_queue_seq;
+
+SELECT setval('hold_queue_seq', GREATEST(MAX(position), (SELECT last_value FROM hold_queue_seq)))
+FROM holds;
+
+ALTER TABLE holds ALTER COLUMN position SET DEFAULT nextval('hold_queue_seq');
+ALTER SEQUENCE hold_queue_seq OWNED BY holds.position;
+
+-- One title's queue in key order: the range row_number() reads, and the head of the queue.
+CREATE INDEX IF NOT EXISTS idx_holds_queue ON holds (titleid, position, id) WHERE status IN ('QUEUED', 'READY');
+
+ANALYZE holds;
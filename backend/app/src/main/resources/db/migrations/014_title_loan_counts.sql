@@ -0,0 +1,23 @@
+-- Migration 014: per-title circulation counters for typeahead ranking.
+-- Safe to run more than once (the backfill simply recounts).
+--
+-- TitleSuggestIndex ranks suggestions by how often each title has been borrowed. It used to
+-- count every loan in book_records and book_records_archive on every node, every refresh.
+-- CopyDAO.checkOut now adds one to title_loan_counts in the same statement that inserts the
+-- loan, so a refresh reads one small row per borrowed title and re-ranks only the titles whose
+-- count moved. Archiving a loan leaves the count alone (it stays an all-time count).
+
+CREATE TABLE IF NOT EXISTS title_loan_counts (
+    titleid INTEGER PRIMARY KEY REFERENCES titles(id) ON DELETE CASCADE,
+    loans INTEGER NOT NULL DEFAULT 0
+);
+
+-- Backfill from live and archived loans.
+INSERT INTO title_loan_counts (titleid, loans)
+SELECT c.titleid, COUNT(*)
+FROM (SELECT copyid FROM book_records UNION ALL SELECT copyid FROM book_records_archive) br
+JOIN copies c ON c.copyid = br.copyid
+GROUP BY c.titleid
+ON CONFLICT (titleid) DO UPDATE SET loans = EXCLUDED.loans;
+
+ANALYZE title_loan_counts;
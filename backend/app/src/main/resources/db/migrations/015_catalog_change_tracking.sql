@@ -0,0 +1,29 @@
+-- Migration 015: change tracking for titles and copies, so every app node can follow writes
+-- made on the others. Needs PostgreSQL 13 or later (xid8, pg_current_xact_id).
+-- Safe to run more than once.
+--
+-- Each node caches titles and copies (ReadThroughCache) and keeps its own catalog search and
+-- typeahead indexes. CatalogSync polls change_xid, the ID of the transaction that last wrote
+-- the row, to evict and re-index what other nodes changed. A timestamp can't be used: it is
+-- taken when the row is written, and a long transaction (a bulk import) commits it long after
+-- other nodes have polled past that time. Transaction IDs let each poll resume from the oldest
+-- transaction still running at the previous one (pg_snapshot_xmin), so a late commit is still
+-- seen. Deleted rows leave nothing behind, so TitleDAO.delete and CopyDAO.delete record them
+-- in deleted_rows in the same statement. Tombstones older than a day are purged; a node that
+-- was down for longer rebuilds everything on startup anyway.
+
+ALTER TABLE titles ADD COLUMN IF NOT EXISTS change_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+ALTER TABLE copies ADD COLUMN IF NOT EXISTS change_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+CREATE INDEX IF NOT EXISTS idx_titles_change_xid ON titles (change_xid);
+CREATE INDEX IF NOT EXISTS idx_copies_change_xid ON copies (change_xid);
+
+CREATE TABLE IF NOT EXISTS deleted_rows (
+    tablename VARCHAR(20) NOT NULL,   -- 'titles' or 'copies'
+    id INTEGER NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT now(),
+    change_xid xid8 NOT NULL DEFAULT pg_current_xact_id()
+);
+ALTER TABLE deleted_rows ADD COLUMN IF NOT EXISTS change_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+
+CREATE INDEX IF NOT EXISTS idx_deleted_rows_deleted_at ON deleted_rows (deleted_at);
+CREATE INDEX IF NOT EXISTS idx_deleted_rows_change_xid ON deleted_rows (change_xid);
@@ -0,0 +1,139 @@
+package edu.sjsu.library;
+
+import edu.sjsu.library.dao.CatalogIndex;
+import edu.sjsu.library.dao.CopyDAO;
+import edu.sjsu.library.dao.TitleAvailabilityDAO;
+import edu.sjsu.library.dao.TitleDAO;
+import edu.sjsu.library.jobs.AvailabilityRepairJob;
+import edu.sjsu.library.models.CatalogPage;
+import edu.sjsu.library.models.Title.Genre;
+import edu.sjsu.library.models.TitleQuery;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Measures TitleDAO.searchWithFacets (first page + all facet counts in one statement)
+    as the catalogue grows, plus the text-search path where CatalogIndex matches the author
+    and SQL pages and facets over the hits (as BookService.searchCatalogWithFacets does).
+    Wipes the tables like DaoIntegrationIT, so only run it against a scratch database:
+
+        ./gradlew test --tests '*CatalogFacetBenchmark' -Dbenchmarks=true
+*/
+@SpringBootTest(classes = App.class, properties = "library.cache.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE) // use Postgres
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class CatalogFacetBenchmark {
+
+  private static final int[] CATALOG_SIZES = {1_000, 10_000, 100_000};
+  private static final int RUNS = 25;
+
+  @Autowired TitleDAO titleDao;
+  @Autowired CopyDAO copyDao;
+  @Autowired TitleAvailabilityDAO titleAvailabilityDao;
+  @Autowired CatalogIndex catalogIndex;
+  @Autowired AvailabilityRepairJob availabilityRepairJob;
+  @Autowired JdbcTemplate jdbc;
+
+  @Test
+  void facet_search_cost_by_catalog_size() {
+    titleDao.createTable();
+    copyDao.createTable();
+    titleAvailabilityDao.createTable();
+
+    System.out.println();
+    System.out.println("titles    | browse p50 ms | browse p95 ms | filtered p50 ms | filtered p95 ms | text p50 ms | text p95 ms");
+    System.out.println("----------+---------------+---------------+-----------------+-----------------+-------------+------------");
+
+    for (int size : CATALOG_SIZES) {
+      seed(size);
+
+      // Unfiltered first page, and a typical member search (visible + genre + decade).
+      TitleQuery browse = new TitleQuery();
+      browse.setVisibleOnly(true);
+      browse.setLimit(50);
+
+      TitleQuery filtered = new TitleQuery();
+      filtered.setVisibleOnly(true);
+      filtered.setGenre(Genre.MYSTERY);
+      filtered.setStartYear(1990);
+      filtered.setEndYear(1999);
+      filtered.setLimit(50);
+
+      // Author search: "42" prefix-matches about 1% of the seeded authors.
+      TitleQuery text = new TitleQuery();
+      text.setVisibleOnly(true);
+      text.setAuthor("Author 42");
+      text.setLimit(50);
+      List<Integer> matches = catalogIndex.matchText(text);
+      assertNotNull(matches);
+
+      CatalogPage page = titleDao.searchWithFacets(browse);
+      assertEquals(50, page.getTitles().size());
+      assertEquals(size, page.getTotalCount());
+
+      double[] browseMs = time(() -> titleDao.searchWithFacets(browse));
+      double[] filteredMs = time(() -> titleDao.searchWithFacets(filtered));
+      double[] textMs = time(() -> titleDao.searchWithFacets(text, catalogIndex.matchText(text)));
+      System.out.printf("%-9d | %13.2f | %13.2f | %15.2f | %15.2f | %11.2f | %11.2f%n",
+          size, browseMs[0], browseMs[1], filteredMs[0], filteredMs[1], textMs[0], textMs[1]);
+    }
+  }
+
+  // Returns {p50, p95} in milliseconds after a short warm-up.
+  private double[] time(Supplier<CatalogPage> search) {
+    for (int i = 0; i < 5; i++) {
+      search.get();
+    }
+    double[] samples = new double[RUNS];
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      search.get();
+      samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+    }
+    Arrays.sort(samples);
+    return new double[] { samples[RUNS / 2], samples[(int) (RUNS * 0.95)] };
+  }
+
+  // Synthetic catalogue: spread over every genre and 1900-2019, one copy per title, a third checked out.
+  private void seed(int size) {
+    jdbc.update("TRUNCATE TABLE fines, holds, book_records, copies, title_availability, titles RESTART IDENTITY CASCADE");
+
+    String[] genres = Arrays.stream(Genre.values()).map(Enum::name).toArray(String[]::new);
+    jdbc.update(con -> {
+      var ps = con.prepareStatement("""
+          INSERT INTO titles (isbn, title, author, yearpublished, genre, isvisible)
+          SELECT 'BENCH-' || g,
+                 'Benchmark Title ' || g,
+                 'Author ' || (g % 997),
+                 1900 + (g % 120),
+                 (?::text[])[1 + (g % cardinality(?::text[]))],
+                 TRUE
+          FROM generate_series(1, ?) g
+          """);
+      ps.setArray(1, con.createArrayOf("text", genres));
+      ps.setArray(2, con.createArrayOf("text", genres));
+      ps.setInt(3, size);
+      return ps;
+    });
+    jdbc.update("""
+        INSERT INTO copies (titleid, barcode, status, location, isvisible)
+        SELECT id, 'BENCH-C-' || id, CASE WHEN id % 3 = 0 THEN 'CHECKED_OUT' ELSE 'AVAILABLE' END, 'Main', TRUE
+        FROM titles
+        """);
+    availabilityRepairJob.run(); // Counters for the bulk-inserted copies.
+    jdbc.execute("ANALYZE titles");
+    jdbc.execute("ANALYZE title_availability");
+    catalogIndex.rebuild();
+  }
+}
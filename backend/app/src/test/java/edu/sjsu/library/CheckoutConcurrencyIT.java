@@ -0,0 +1,216 @@
+package edu.sjsu.library;
+
+import edu.sjsu.library.dao.UserDAO;
+import edu.sjsu.library.dao.TitleDAO;
+import edu.sjsu.library.dao.CopyDAO;
+import edu.sjsu.library.dao.BookRecordDAO;
+import edu.sjsu.library.dao.FineDAO;
+import edu.sjsu.library.dao.HoldDAO;
+import edu.sjsu.library.dao.TitleAvailabilityDAO;
+import edu.sjsu.library.exceptions.AuthorizationFailedException;
+import edu.sjsu.library.exceptions.CheckoutNotAllowedException;
+import edu.sjsu.library.models.AvailabilitySummary;
+import edu.sjsu.library.models.Copy;
+import edu.sjsu.library.models.Copy.CopyStatus;
+import edu.sjsu.library.models.Title;
+import edu.sjsu.library.models.Title.Genre;
+import edu.sjsu.library.models.User;
+import edu.sjsu.library.models.User.UserRole;
+import edu.sjsu.library.services.LoanService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Many members scan the same AVAILABLE copy at the same instant. Exactly one of them may get it:
+    one loan row, the copy CHECKED_OUT, and the title_availability and title_loan_counts counters
+    moved by exactly one. And one member scanning many different copies at once still ends up with
+    no more than the loan limit. Account status and role come from the users row at checkout time,
+    not from whatever copy of the user the session holds.
+*/
+@SpringBootTest(classes = App.class, properties = "library.cache.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE) // use Postgres
+class CheckoutConcurrencyIT {
+
+  private static final int ROUNDS = 20;
+  private static final int MEMBERS = 16;
+  private static final int MAX_ACTIVE_LOANS = 5; // LoanService.MAX_ACTIVE_LOANS
+  private static final int COPIES = 12;
+
+  @Autowired UserDAO userDao;
+  @Autowired TitleDAO titleDao;
+  @Autowired CopyDAO copyDao;
+  @Autowired BookRecordDAO bookRecordDao;
+  @Autowired FineDAO fineDao;
+  @Autowired HoldDAO holdDao;
+  @Autowired TitleAvailabilityDAO titleAvailabilityDao;
+  @Autowired LoanService loanService;
+
+  @Autowired JdbcTemplate jdbc;
+
+  @BeforeEach
+  void setup() {
+    userDao.createTable();
+    titleDao.createTable();
+    copyDao.createTable();
+    bookRecordDao.createTable();
+    fineDao.createTable();
+    holdDao.createTable();
+    titleAvailabilityDao.createTable();
+
+    jdbc.update("""
+      TRUNCATE TABLE fines, holds, book_records, book_records_archive, copies, title_availability, title_loan_counts, titles, users
+      RESTART IDENTITY CASCADE
+    """);
+  }
+
+  @Test
+  void concurrent_checkouts_of_one_copy_produce_exactly_one_loan() throws Exception {
+    List<Integer> members = new ArrayList<>();
+    for (int i = 0; i < MEMBERS; i++) {
+      members.add(userDao.insert(new User("Race", "Member" + i, "race+" + UUID.randomUUID() + "@example.com", "hash", UserRole.MEMBER)));
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(MEMBERS);
+    try {
+      for (int round = 0; round < ROUNDS; round++) {
+        String isbn = "978-9-" + UUID.randomUUID();
+        titleDao.insert(new Title(isbn, "Race Book " + round, "Race Author", Year.of(2024), Genre.FICTION));
+        int titleId = titleDao.findByIsbn(isbn).getTitleID();
+        String barcode = "RACE-" + UUID.randomUUID();
+        int copyId = copyDao.insert(new Copy(titleId, barcode, CopyStatus.AVAILABLE, "Main Branch"));
+
+        // Everyone waits at the gate, then checks out the same barcode at once.
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        for (int memberId : members) {
+          attempts.add(pool.submit(() -> {
+            gate.await();
+            try {
+              loanService.checkoutBook(barcode, memberId);
+              return true;
+            } catch (CheckoutNotAllowedException e) {
+              assertEquals("Copy is not available for checkout. Please see staff for details.", e.getMessage());
+              return false;
+            }
+          }));
+        }
+        gate.countDown();
+
+        int successes = 0;
+        for (Future<Boolean> attempt : attempts) {
+          if (attempt.get()) {
+            successes++;
+          }
+        }
+
+        assertEquals(1, successes, "round " + round);
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM book_records WHERE copyid = ?", Integer.class, copyId), "round " + round);
+        assertEquals(CopyStatus.CHECKED_OUT, copyDao.findById(copyId).getStatus());
+
+        AvailabilitySummary counters = titleAvailabilityDao.findByTitleId(titleId);
+        assertEquals(1, counters.getTotalCopies());
+        assertEquals(0, counters.getAvailableCopies());
+        assertEquals(1, counters.getCheckedOutCopies());
+        assertEquals(1, bookRecordDao.countLoansByTitle().get(titleId));
+
+        // Return the winner's loan count to zero so nobody hits the loan limit in later rounds.
+        jdbc.update("UPDATE book_records SET returndate = now() WHERE copyid = ?", copyId);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void one_member_checking_out_many_copies_at_once_stays_within_the_loan_limit() throws Exception {
+    int memberId = userDao.insert(new User("Race", "Solo", "solo+" + UUID.randomUUID() + "@example.com", "hash", UserRole.MEMBER));
+
+    ExecutorService pool = Executors.newFixedThreadPool(COPIES);
+    try {
+      for (int round = 0; round < ROUNDS; round++) {
+        String isbn = "978-8-" + UUID.randomUUID();
+        titleDao.insert(new Title(isbn, "Solo Book " + round, "Race Author", Year.of(2024), Genre.FICTION));
+        int titleId = titleDao.findByIsbn(isbn).getTitleID();
+        List<String> barcodes = new ArrayList<>();
+        for (int i = 0; i < COPIES; i++) {
+          String barcode = "SOLO-" + UUID.randomUUID();
+          copyDao.insert(new Copy(titleId, barcode, CopyStatus.AVAILABLE, "Main Branch"));
+          barcodes.add(barcode);
+        }
+
+        // The same member scans every copy at once.
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        for (String barcode : barcodes) {
+          attempts.add(pool.submit(() -> {
+            gate.await();
+            try {
+              loanService.checkoutBook(barcode, memberId);
+              return true;
+            } catch (CheckoutNotAllowedException e) {
+              assertEquals("Maximum loan limit reached.", e.getMessage());
+              return false;
+            }
+          }));
+        }
+        gate.countDown();
+
+        int successes = 0;
+        for (Future<Boolean> attempt : attempts) {
+          if (attempt.get()) {
+            successes++;
+          }
+        }
+
+        assertEquals(MAX_ACTIVE_LOANS, successes, "round " + round);
+        assertEquals(MAX_ACTIVE_LOANS, jdbc.queryForObject(
+            "SELECT COUNT(*) FROM book_records WHERE userid = ? AND returndate IS NULL", Integer.class, memberId), "round " + round);
+        assertEquals(MAX_ACTIVE_LOANS, titleAvailabilityDao.findByTitleId(titleId).getCheckedOutCopies());
+
+        // Return everything before the next round.
+        jdbc.update("UPDATE book_records SET returndate = now() WHERE userid = ?", memberId);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void checkout_reads_status_and_role_from_the_users_row() {
+    String isbn = "978-9-" + UUID.randomUUID();
+    titleDao.insert(new Title(isbn, "Status Book", "Status Author", Year.of(2024), Genre.FICTION));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+    String barcode = "STATUS-" + UUID.randomUUID();
+    int copyId = copyDao.insert(new Copy(titleId, barcode, CopyStatus.AVAILABLE, "Main Branch"));
+
+    // Restricted behind the application's back, as staff on another node would.
+    int memberId = userDao.insert(new User("Status", "Member", "status+" + UUID.randomUUID() + "@example.com", "hash", UserRole.MEMBER));
+    jdbc.update("UPDATE users SET status = 'RESTRICTED' WHERE id = ?", memberId);
+    assertThrows(CheckoutNotAllowedException.class, () -> loanService.checkoutBook(barcode, memberId));
+
+    int staffId = userDao.insert(new User("Status", "Staff", "status+" + UUID.randomUUID() + "@example.com", "hash", UserRole.STAFF));
+    assertThrows(AuthorizationFailedException.class, () -> loanService.checkoutBook(barcode, staffId));
+
+    // A bad barcode is still reported before the account checks.
+    assertThrows(IllegalArgumentException.class, () -> loanService.checkoutBook("NO-SUCH-" + UUID.randomUUID(), memberId));
+
+    assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM book_records WHERE copyid = ?", Integer.class, copyId));
+    assertEquals(CopyStatus.AVAILABLE, copyDao.findById(copyId).getStatus());
+  }
+}
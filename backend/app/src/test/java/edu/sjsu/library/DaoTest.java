@@ -5,7 +5,10 @@ import edu.sjsu.library.dao.TitleDAO;
 import edu.sjsu.library.dao.CopyDAO;
 import edu.sjsu.library.dao.BookRecordDAO;
 import edu.sjsu.library.dao.FineDAO;
+import edu.sjsu.library.dao.FineAccrualDAO;
 import edu.sjsu.library.dao.HoldDAO;
+import edu.sjsu.library.dao.LoanArchiveDAO;
+import edu.sjsu.library.dao.TitleAvailabilityDAO;
 
 import edu.sjsu.library.models.User;
 import edu.sjsu.library.models.User.UserRole;
@@ -17,6 +20,9 @@ import edu.sjsu.library.models.Copy.CopyStatus;
 import edu.sjsu.library.models.BookRecord;
 import edu.sjsu.library.models.Fine;
 import edu.sjsu.library.models.Hold;
+import edu.sjsu.library.models.LoanView;
+import edu.sjsu.library.models.CatalogPage;
+import edu.sjsu.library.models.TitleQuery;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,14 +31,17 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.Year;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.math.BigDecimal;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@SpringBootTest(classes = App.class)
+@SpringBootTest(classes = App.class, properties = "library.cache.enabled=false") // tables are truncated between tests
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE) // use Postgres
 class DaoIntegrationIT {
 
@@ -41,7 +50,10 @@ class DaoIntegrationIT {
   @Autowired CopyDAO copyDao;
   @Autowired BookRecordDAO bookRecordDao;
   @Autowired FineDAO fineDao;
+  @Autowired FineAccrualDAO fineAccrualDao;
   @Autowired HoldDAO holdDao;
+  @Autowired TitleAvailabilityDAO titleAvailabilityDao;
+  @Autowired LoanArchiveDAO loanArchiveDao;
 
   @Autowired JdbcTemplate jdbc;
 
@@ -53,11 +65,13 @@ class DaoIntegrationIT {
     copyDao.createTable();
     bookRecordDao.createTable();
     fineDao.createTable();
+    fineAccrualDao.createTable();
     holdDao.createTable();
+    titleAvailabilityDao.createTable();
 
     // TRUNCATE in FK-safe order (children first, then parents).
     jdbc.update("""
-      TRUNCATE TABLE fines, holds, book_records, copies, titles, users
+      TRUNCATE TABLE fine_accruals, fines, holds, book_records, book_records_archive, copies, title_availability, title_loan_counts, titles, users
       RESTART IDENTITY CASCADE
     """);
   }
@@ -159,6 +173,56 @@ class DaoIntegrationIT {
     assertFalse(copies.isEmpty());
   }
 
+  @Test
+  void copyDao_countAvailableByTitles_hides_hidden_titles_from_members() {
+    String isbn = "978-3-" + UUID.randomUUID();
+    assertEquals(1, titleDao.insert(new Title(isbn, "Hidden Book", "Hidden Author", Year.of(2021), Genre.FICTION)));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+    copyDao.insert(new Copy(titleId, "BC-HID-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+    jdbc.update("UPDATE titles SET isvisible = FALSE WHERE id = ?", titleId);
+
+    assertEquals(1, copyDao.countAvailableByTitles(List.of(titleId), false).get(titleId));
+    assertTrue(copyDao.countAvailableByTitles(List.of(titleId), true).isEmpty());
+  }
+
+  @Test
+  void titleAvailabilityDao_visible_counts_leave_out_hidden_copies() {
+    String isbn = "978-2-" + UUID.randomUUID();
+    assertEquals(1, titleDao.insert(new Title(isbn, "Shelf Book", "Shelf Author", Year.of(2020), Genre.FICTION)));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+    copyDao.insert(new Copy(titleId, "BC-VIS-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+    int hidden = copyDao.insert(new Copy(titleId, "BC-VIS-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+    jdbc.update("UPDATE copies SET isvisible = FALSE WHERE copyid = ?", hidden);
+
+    assertEquals(2, titleAvailabilityDao.findByTitleId(titleId).getAvailableCopies());
+    assertEquals(1, titleAvailabilityDao.countVisibleByTitleId(titleId).getAvailableCopies());
+    assertEquals(1, titleAvailabilityDao.countVisibleByTitleId(titleId).getTotalCopies());
+  }
+
+  @Test
+  void titleDao_searchWithFacets_members_see_only_visible_available_copies() {
+    String isbn = "978-4-" + UUID.randomUUID();
+    assertEquals(1, titleDao.insert(new Title(isbn, "Back Room Book", "Back Room Author", Year.of(2019), Genre.FICTION)));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+    int hidden = copyDao.insert(new Copy(titleId, "BC-FAC-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+    jdbc.update("UPDATE copies SET isvisible = FALSE WHERE copyid = ?", hidden);
+
+    TitleQuery staff = new TitleQuery();
+    staff.setAvailableOnly(true);
+    assertEquals(List.of(titleId), titleDao.searchWithFacets(staff, List.of(titleId)).getTitles().stream().map(Title::getTitleID).toList());
+
+    TitleQuery member = new TitleQuery();
+    member.setVisibleOnly(true);
+    CatalogPage page = titleDao.searchWithFacets(member, List.of(titleId));
+    assertEquals(1, page.getTitles().size());
+    assertEquals(0, page.getAvailableCount());
+    assertEquals(1, page.getUnavailableCount());
+
+    member.setAvailableOnly(true);
+    assertTrue(titleDao.searchWithFacets(member).getTitles().stream().noneMatch(t -> t.getTitleID() == titleId));
+    assertTrue(titleDao.searchWithFacets(member, List.of(titleId)).getTitles().isEmpty());
+  }
+
   // ---------------------------------------------------------------------------
   // BOOK RECORD DAO TESTS
   // ---------------------------------------------------------------------------
@@ -203,6 +267,137 @@ class DaoIntegrationIT {
     assertFalse(records.isEmpty());
   }
 
+  @Test
+  void bookRecordDao_findEligibility_counts_open_loans_and_unpaid_fines() {
+    String email = "eligible+" + UUID.randomUUID() + "@example.com";
+    int userId = userDao.insert(new User("Eligible", "User", email, "hash", UserRole.MEMBER));
+
+    String isbn = "978-5-" + UUID.randomUUID();
+    assertEquals(1, titleDao.insert(new Title(isbn, "Eligibility Book", "Eligibility Author", Year.of(2020), Genre.FICTION)));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+    int copy1 = copyDao.insert(new Copy(titleId, "BC-EL1-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+    int copy2 = copyDao.insert(new Copy(titleId, "BC-EL2-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+
+    // One open loan, one returned.
+    bookRecordDao.insert(new BookRecord(copy1, userId));
+    bookRecordDao.insert(new BookRecord(copy2, userId));
+    jdbc.update("UPDATE book_records SET returndate = now() WHERE copyid = ?", copy2);
+    int loanId = bookRecordDao.findAll().get(0).getLoanID();
+
+    // Two unpaid fines count, a paid one doesn't.
+    fineDao.insert(new Fine(userId, loanId, new BigDecimal("5.00"), "Overdue"));
+    fineDao.insert(new Fine(userId, loanId, new BigDecimal("7.50"), "Overdue"));
+    fineDao.insert(new Fine(userId, loanId, new BigDecimal("3.00"), "Damage"));
+    jdbc.update("UPDATE fines SET status = 'PAID' WHERE reason = 'Damage'");
+
+    BookRecordDAO.Eligibility e = bookRecordDao.findEligibility(userId);
+    assertNotNull(e);
+    assertEquals(UserStatus.ACTIVE, e.status());
+    assertEquals(UserRole.MEMBER, e.role());
+    assertEquals(1, e.activeLoans());
+    assertEquals(0, new BigDecimal("12.50").compareTo(e.unpaidFines()));
+
+    assertNull(bookRecordDao.findEligibility(userId + 1000));
+  }
+
+  @Test
+  void bookRecordDao_findHistoryByTitle_pages_newest_first_with_copy_and_borrower() {
+    int userId = userDao.insert(new User("Ada", "Reader", "history+" + UUID.randomUUID() + "@example.com", "hash", UserRole.MEMBER));
+
+    String isbn = "978-6-" + UUID.randomUUID();
+    assertEquals(1, titleDao.insert(new Title(isbn, "History Book", "History Author", Year.of(2019), Genre.HISTORY)));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+    int copy1 = copyDao.insert(new Copy(titleId, "BC-H1-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+    int copy2 = copyDao.insert(new Copy(titleId, "BC-H2-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+
+    // Three loans spread over both copies; the first one is from last year.
+    bookRecordDao.insert(new BookRecord(copy1, userId));
+    bookRecordDao.insert(new BookRecord(copy2, userId));
+    bookRecordDao.insert(new BookRecord(copy1, userId));
+    jdbc.update("UPDATE book_records SET checkoutdate = checkoutdate - INTERVAL '1 year' WHERE loanid = 1");
+
+    List<LoanView> first = bookRecordDao.findHistoryByTitle(titleId, null, null, Integer.MAX_VALUE, 2, false);
+    assertEquals(List.of(3, 2), first.stream().map(LoanView::getLoanID).toList());
+    assertEquals(copyDao.findById(copy1).getBarcode(), first.get(0).getBarcode());
+    assertEquals("Ada Reader", first.get(0).getBorrowerName());
+
+    List<LoanView> second = bookRecordDao.findHistoryByTitle(titleId, null, null, 2, 2, false);
+    assertEquals(List.of(1), second.stream().map(LoanView::getLoanID).toList());
+
+    LocalDateTime monthAgo = LocalDateTime.now().minusMonths(1);
+    assertEquals(2, bookRecordDao.findHistoryByTitle(titleId, monthAgo, null, Integer.MAX_VALUE, 10, false).size());
+    assertEquals(1, bookRecordDao.findHistoryByTitle(titleId, null, monthAgo, Integer.MAX_VALUE, 10, false).size());
+  }
+
+  @Test
+  void bookRecordDao_loan_views_carry_copy_title_borrower_and_fines() {
+    int userId = userDao.insert(new User("Grace", "Reader", "view+" + UUID.randomUUID() + "@example.com", "hash", UserRole.MEMBER));
+
+    String isbn = "978-5-" + UUID.randomUUID();
+    assertEquals(1, titleDao.insert(new Title(isbn, "View Book", "View Author", Year.of(2018), Genre.FICTION)));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+    String barcode = "BC-V-" + UUID.randomUUID();
+    int copyId = copyDao.insert(new Copy(titleId, barcode, CopyStatus.CHECKED_OUT, "West Branch"));
+
+    // Loan 1 is returned with one paid and one unpaid fine; loan 2 is current.
+    bookRecordDao.insert(new BookRecord(copyId, userId));
+    bookRecordDao.insert(new BookRecord(copyId, userId));
+    jdbc.update("UPDATE book_records SET returndate = now() WHERE loanid = 1");
+    fineDao.insert(new Fine(userId, 1, new BigDecimal("2.00"), "Overdue"));
+    fineDao.insert(new Fine(userId, 1, new BigDecimal("3.00"), "Damage"));
+    jdbc.update("UPDATE fines SET status = 'PAID' WHERE reason = 'Damage'");
+
+    LoanView returned = bookRecordDao.findViewById(1);
+    assertEquals(barcode, returned.getBarcode());
+    assertEquals("West Branch", returned.getLocation());
+    assertEquals(titleId, returned.getTitleID());
+    assertEquals("View Book", returned.getTitle());
+    assertEquals("View Author", returned.getAuthor());
+    assertEquals("Grace Reader", returned.getBorrowerName());
+    assertEquals(0, new BigDecimal("5.00").compareTo(returned.getFineTotal()));
+    assertEquals(0, new BigDecimal("2.00").compareTo(returned.getUnpaidFines()));
+    assertNull(bookRecordDao.findViewById(99));
+
+    assertEquals(List.of(1, 2), bookRecordDao.findViewPage(0, 10).stream().map(LoanView::getLoanID).toList());
+    assertEquals(List.of(2), bookRecordDao.findViewsByUser(userId, true, false).stream().map(LoanView::getLoanID).toList());
+    assertEquals(2, bookRecordDao.findViewsByCopy(copyId, false, true).size());
+    LoanView current = bookRecordDao.findViewsByCopy(copyId, true, false).get(0);
+    assertEquals(2, current.getLoanID());
+    assertEquals(0, BigDecimal.ZERO.compareTo(current.getFineTotal()));
+  }
+
+  @Test
+  void loanArchiveDao_moves_old_returned_loans_and_history_can_still_see_them() {
+    int userId = userDao.insert(new User("Old", "Reader", "archive+" + UUID.randomUUID() + "@example.com", "hash", UserRole.MEMBER));
+
+    String isbn = "978-7-" + UUID.randomUUID();
+    assertEquals(1, titleDao.insert(new Title(isbn, "Archive Book", "Archive Author", Year.of(2010), Genre.HISTORY)));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+    int copyId = copyDao.insert(new Copy(titleId, "BC-AR-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+
+    // Loan 1 was borrowed and returned three years ago; loan 2 is current.
+    bookRecordDao.insert(new BookRecord(copyId, userId));
+    bookRecordDao.insert(new BookRecord(copyId, userId));
+    jdbc.update("""
+      UPDATE book_records
+      SET checkoutdate = now() - INTERVAL '3 years', duedate = now() - INTERVAL '3 years' + INTERVAL '7 days',
+          returndate = now() - INTERVAL '3 years' + INTERVAL '5 days'
+      WHERE loanid = 1
+    """);
+
+    LocalDateTime cutoff = LocalDateTime.now().minusDays(730);
+    assertEquals(LocalDateTime.now().minusYears(3).getYear(), loanArchiveDao.findOldestArchivableYear(cutoff));
+    loanArchiveDao.ensureYearPartition(LoanArchiveDAO.ARCHIVE, LocalDateTime.now().minusYears(3).getYear());
+    assertEquals(1, loanArchiveDao.archiveReturnedBefore(cutoff, 100));
+    assertEquals(0, loanArchiveDao.archiveReturnedBefore(cutoff, 100));
+
+    assertEquals(List.of(2), bookRecordDao.findByUser(userId).stream().map(BookRecord::getLoanID).toList());
+    assertEquals(2, bookRecordDao.findByUser(userId, true).size());
+    assertEquals(2, bookRecordDao.findByCopy(copyId, true).size());
+    assertEquals(2, bookRecordDao.findHistoryByTitle(titleId, null, null, Integer.MAX_VALUE, 10, true).size());
+    assertNotNull(bookRecordDao.findById(1));
+  }
+
   // ---------------------------------------------------------------------------
   // FINE DAO TESTS
   // ---------------------------------------------------------------------------
@@ -256,6 +451,34 @@ class DaoIntegrationIT {
     assertFalse(fines.isEmpty());
   }
 
+  @Test
+  void fineAccrualDao_charges_each_overdue_day_once() {
+    int userId = userDao.insert(new User("Late", "Reader", "accrual+" + UUID.randomUUID() + "@example.com", "hash", UserRole.MEMBER));
+
+    String isbn = "978-8-" + UUID.randomUUID();
+    assertEquals(1, titleDao.insert(new Title(isbn, "Late Book", "Late Author", Year.of(2019), Genre.FICTION)));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+    int copyId = copyDao.insert(new Copy(titleId, "BC-ACC-" + UUID.randomUUID(), CopyStatus.CHECKED_OUT, "Main Branch"));
+
+    // Three days overdue, not returned.
+    bookRecordDao.insert(new BookRecord(copyId, userId));
+    jdbc.update("UPDATE book_records SET checkoutdate = now() - INTERVAL '10 days', duedate = now() - INTERVAL '3 days'");
+
+    FineAccrualDAO.Chunk first = fineAccrualDao.accrueOverdue(LocalDate.now(), 0, 100);
+    assertEquals(1, first.loans());
+    assertEquals(3, first.accruedDays());
+    assertEquals(1, first.finesTouched());
+
+    // Running again for the same day charges nothing new.
+    assertEquals(0, fineAccrualDao.accrueOverdue(LocalDate.now(), 0, 100).accruedDays());
+    assertNull(fineAccrualDao.accrueOverdue(LocalDate.now(), first.lastLoanId(), 100).lastLoanId());
+
+    // The next day adds to the same open fine.
+    assertEquals(1, fineAccrualDao.accrueOverdue(LocalDate.now().plusDays(1), 0, 100).accruedDays());
+    assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM fines WHERE accrual", Integer.class));
+    assertEquals(0, new BigDecimal("1.00").compareTo(jdbc.queryForObject("SELECT amount FROM fines WHERE accrual", BigDecimal.class)));
+  }
+
   // ---------------------------------------------------------------------------
   // HOLD DAO TESTS
   // ---------------------------------------------------------------------------
@@ -300,5 +523,35 @@ class DaoIntegrationIT {
     List<Hold> holds = holdDao.findAll();
     assertNotNull(holds);
     assertFalse(holds.isEmpty());
+    assertEquals(persistedCopy.getCopyID(), holds.get(0).getCopyID());
+  }
+
+  @Test
+  void holdDao_positions_are_ranked_on_read_and_cancel_touches_one_row() {
+    String isbn = "978-4-" + UUID.randomUUID();
+    assertEquals(1, titleDao.insert(new Title(isbn, "Queue Book", "Queue Author", Year.of(2022), Genre.FICTION)));
+    int titleId = titleDao.findByIsbn(isbn).getTitleID();
+
+    List<Integer> holdIds = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      int userId = userDao.insert(new User("Queue", "Member" + i, "queue+" + UUID.randomUUID() + "@example.com", "hash", UserRole.MEMBER));
+      assertEquals(i + 1, holdDao.getNextPosition(titleId));
+      holdIds.add(holdDao.insert(new Hold(userId, titleId, null, holdDao.getNextPosition(titleId))));
+    }
+    assertEquals(List.of(1, 2, 3), holdDao.findByTitleOrderedByPosition(titleId).stream().map(Hold::getPosition).toList());
+    assertNull(holdDao.findById(holdIds.get(0)).getCopyID());
+
+    // Cancel the middle hold: one row changes, and the last hold moves up to position 2.
+    Hold middle = holdDao.findById(holdIds.get(1));
+    middle.markCancelled();
+    String keysBefore = jdbc.queryForObject("SELECT string_agg(position::text, ',' ORDER BY id) FROM holds", String.class);
+    assertEquals(1, holdDao.update(middle));
+    assertEquals(keysBefore, jdbc.queryForObject("SELECT string_agg(position::text, ',' ORDER BY id) FROM holds", String.class));
+
+    assertEquals(1, holdDao.findById(holdIds.get(0)).getPosition());
+    assertEquals(0, holdDao.findById(holdIds.get(1)).getPosition());
+    assertEquals(2, holdDao.findById(holdIds.get(2)).getPosition());
+    assertEquals(holdIds.get(0), holdDao.findNextHoldForTitle(titleId).getHoldID());
+    assertEquals(3, holdDao.getNextPosition(titleId));
   }
 }
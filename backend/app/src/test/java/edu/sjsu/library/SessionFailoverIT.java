@@ -0,0 +1,159 @@
+package edu.sjsu.library;
+
+import edu.sjsu.library.dao.CopyDAO;
+import edu.sjsu.library.dao.JdbcSessionRepository;
+import edu.sjsu.library.dao.TitleDAO;
+import edu.sjsu.library.dao.UserDAO;
+import edu.sjsu.library.models.Copy;
+import edu.sjsu.library.models.Copy.CopyStatus;
+import edu.sjsu.library.models.Title;
+import edu.sjsu.library.models.Title.Genre;
+import edu.sjsu.library.models.User.UserRole;
+import edu.sjsu.library.services.UserService;
+import edu.sjsu.library.utils.CatalogSync;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Two app nodes on random ports sharing one Postgres session table (library.session.store=jdbc):
+    a login made on node 1 keeps working on node 2, including after node 1 is shut down, and
+    a plain read on node 2 doesn't write the session row until its batched touch flush.
+    Both nodes run with their caches and catalog index on: edits and deletes made on one node
+    reach the other's caches after one CatalogSync poll.
+*/
+class SessionFailoverIT {
+
+  private final HttpClient http = HttpClient.newHttpClient();
+  private ConfigurableApplicationContext node1;
+  private ConfigurableApplicationContext node2;
+
+  private static ConfigurableApplicationContext startNode() {
+    return new SpringApplicationBuilder(App.class)
+        .properties(
+            "server.port=0",
+            "library.session.store=jdbc",
+            "library.session.touch-flush-ms=3600000") // flushed explicitly below
+        .run();
+  }
+
+  @AfterEach
+  void stopNodes() {
+    if (node1 != null && node1.isActive()) node1.close();
+    if (node2 != null && node2.isActive()) node2.close();
+  }
+
+  @Test
+  void login_on_one_node_survives_that_node_going_away() throws Exception {
+    node1 = startNode();
+    node2 = startNode();
+    node1.getBean(UserDAO.class).createTable();
+    node1.getBean(JdbcSessionRepository.class).createTable();
+    JdbcTemplate jdbc = node2.getBean(JdbcTemplate.class); // node 2 outlives node 1
+
+    String email = "failover+" + UUID.randomUUID() + "@example.com";
+    node1.getBean(UserService.class).register("Fail", "Over", email, "secret-pw", UserRole.MEMBER, null);
+    int userId = node1.getBean(UserDAO.class).findByEmail(email).getUserID();
+
+    // Log in on node 1.
+    HttpResponse<String> login = http.send(
+        HttpRequest.newBuilder(url(node1, "/api/auth/login"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"" + email + "\",\"password\":\"secret-pw\"}"))
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+    assertEquals(200, login.statusCode());
+    String cookie = login.headers().firstValue("Set-Cookie").orElseThrow().split(";", 2)[0];
+    assertTrue(cookie.startsWith("SESSION="), cookie);
+    String sessionId = new String(Base64.getDecoder().decode(cookie.substring("SESSION=".length())), StandardCharsets.UTF_8);
+
+    // Node 2 knows the session.
+    HttpResponse<String> me = get(node2, "/api/auth/me", cookie);
+    assertEquals(200, me.statusCode());
+    assertTrue(me.body().contains("\"userID\":" + userId), me.body());
+
+    // That read only queued a touch; the row changes when node 2 flushes.
+    long storedAccess = lastAccess(jdbc, sessionId);
+    Thread.sleep(20);
+    assertEquals(200, get(node2, "/api/auth/me", cookie).statusCode());
+    assertEquals(storedAccess, lastAccess(jdbc, sessionId));
+    node2.getBean(JdbcSessionRepository.class).flushTouches();
+    assertTrue(lastAccess(jdbc, sessionId) > storedAccess);
+
+    // Node 1 goes away; node 2 still serves the session.
+    node1.close();
+    assertEquals(200, get(node2, "/api/auth/me", cookie).statusCode());
+
+    // Logging out on node 2 removes the shared row.
+    HttpResponse<String> logout = http.send(
+        HttpRequest.newBuilder(url(node2, "/api/auth/logout"))
+            .header("Cookie", cookie)
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+    assertEquals(204, logout.statusCode());
+    assertEquals(401, get(node2, "/api/auth/me", cookie).statusCode());
+    assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM http_sessions WHERE session_id = ?", Integer.class, sessionId));
+  }
+
+  @Test
+  void catalog_writes_on_one_node_reach_the_other_nodes_cache() {
+    node1 = startNode();
+    node2 = startNode();
+    TitleDAO titles1 = node1.getBean(TitleDAO.class);
+    TitleDAO titles2 = node2.getBean(TitleDAO.class);
+    CopyDAO copies1 = node1.getBean(CopyDAO.class);
+    CopyDAO copies2 = node2.getBean(CopyDAO.class);
+    titles1.createTable();
+    copies1.createTable();
+
+    String isbn = "978-7-" + UUID.randomUUID();
+    titles1.insert(new Title(isbn, "Before", "Node Author", Year.of(2020), Genre.FICTION));
+    int titleId = titles1.findByIsbn(isbn).getTitleID();
+    int copyId = copies1.insert(new Copy(titleId, "SYNC-" + UUID.randomUUID(), CopyStatus.AVAILABLE, "Main Branch"));
+
+    // Node 2 caches both rows.
+    assertEquals("Before", titles2.findById(titleId).getTitle());
+    assertNotNull(copies2.findById(copyId));
+
+    // Node 1 edits the title and deletes the copy; node 2 hears about it from its next poll.
+    Title edited = titles1.findById(titleId);
+    edited.setTitle("After");
+    titles1.update(edited);
+    copies1.delete(copyId);
+
+    node2.getBean(CatalogSync.class).poll();
+    assertEquals("After", titles2.findById(titleId).getTitle());
+    assertNull(copies2.findById(copyId));
+  }
+
+  private HttpResponse<String> get(ConfigurableApplicationContext node, String path, String cookie) throws Exception {
+    return http.send(
+        HttpRequest.newBuilder(url(node, path)).header("Cookie", cookie).GET().build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static URI url(ConfigurableApplicationContext node, String path) {
+    int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+    return URI.create("http://localhost:" + port + path);
+  }
+
+  private static long lastAccess(JdbcTemplate jdbc, String sessionId) {
+    return jdbc.queryForObject("SELECT last_access_time FROM http_sessions WHERE session_id = ?", Long.class, sessionId);
+  }
+}
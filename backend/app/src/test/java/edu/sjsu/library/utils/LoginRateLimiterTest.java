@@ -0,0 +1,100 @@
+package edu.sjsu.library.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    LoginRateLimiter on a fixed clock: 100 s windows starting at T0, so every expected estimate and
+    Retry-After below can be worked out by hand.
+*/
+class LoginRateLimiterTest {
+
+  private static final long T0 = 1_000_000_000_000L; // A window boundary (multiple of 100 000 ms).
+  private static final long WINDOW_SECONDS = 100;
+
+  private final AtomicLong now = new AtomicLong(T0);
+
+  private LoginRateLimiter limiter(int maxPerAccount, int maxPerIp) {
+    return new LoginRateLimiter(maxPerAccount, maxPerIp, WINDOW_SECONDS, now::get);
+  }
+
+  private void at(long secondsAfterT0) {
+    now.set(T0 + secondsAfterT0 * 1000);
+  }
+
+  @Test
+  void account_limit_rejects_with_seconds_until_the_next_window() {
+    LoginRateLimiter limiter = limiter(3, 100);
+    at(10);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+    }
+    assertEquals(90, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+    // Rejected attempts aren't counted, and other accounts are unaffected.
+    assertEquals(0, limiter.tryAcquire("b@example.com", "10.0.0.1"));
+  }
+
+  @Test
+  void previous_window_counts_by_how_much_of_it_still_overlaps() {
+    LoginRateLimiter limiter = limiter(3, 100);
+    at(90);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+    }
+
+    // 25 s into the next window: 3 * 0.75 = 2.25 < 3 lets one through; 1 + 2.25 doesn't.
+    at(125);
+    assertEquals(0, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+    assertEquals(75, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+
+    // 40 s in: 1 + 3 * 0.6 = 2.8 < 3.
+    at(140);
+    assertEquals(0, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+    assertTrue(limiter.tryAcquire("a@example.com", "10.0.0.1") > 0);
+  }
+
+  @Test
+  void a_window_with_no_attempts_in_between_forgets_the_old_count() {
+    LoginRateLimiter limiter = limiter(3, 100);
+    at(90);
+    for (int i = 0; i < 3; i++) {
+      limiter.tryAcquire("a@example.com", "10.0.0.1");
+    }
+    at(250); // Two windows later; nothing of the first one overlaps.
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+    }
+  }
+
+  @Test
+  void ip_limit_applies_across_accounts() {
+    LoginRateLimiter limiter = limiter(100, 2);
+    assertEquals(0, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+    assertEquals(0, limiter.tryAcquire("b@example.com", "10.0.0.1"));
+    assertEquals(100, limiter.tryAcquire("c@example.com", "10.0.0.1"));
+    assertEquals(0, limiter.tryAcquire("c@example.com", "10.0.0.2"));
+    assertEquals(1L, limiter.stats().get("rejectedByIp"));
+  }
+
+  @Test
+  void success_clears_the_account_counter_whatever_the_email_case() {
+    LoginRateLimiter limiter = limiter(2, 100);
+    limiter.tryAcquire("A@Example.com", "10.0.0.1");
+    limiter.tryAcquire("a@example.com ", "10.0.0.1");
+    assertTrue(limiter.tryAcquire("a@example.com", "10.0.0.1") > 0);
+
+    limiter.succeeded("a@EXAMPLE.com");
+    assertEquals(0, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+  }
+
+  @Test
+  void retry_after_is_at_least_one_second() {
+    LoginRateLimiter limiter = limiter(1, 100);
+    now.set(T0 + 99_999);
+    assertEquals(0, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+    assertEquals(1, limiter.tryAcquire("a@example.com", "10.0.0.1"));
+  }
+}
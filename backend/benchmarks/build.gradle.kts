@@ -0,0 +1,57 @@
+/*
+ * JMH micro-benchmarks for the app module.
+ *
+ *   ./gradlew :benchmarks:jmh
+ *
+ * Results are written as JMH JSON to build/results/jmh/results.json and copied to
+ * results/<git short commit>.json, so runs from different commits can be diffed side by side
+ * (for example with https://jmh.morethan.io or any JMH JSON comparison tool).
+ * Narrow a run with -PjmhIncludes=<regex>, e.g. -PjmhIncludes=RowMapperBenchmark.title
+ */
+
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    jmh(project(":app"))
+
+    // RowMapper is on the app's implementation classpath only; same version as Spring Boot 3.3.5 manages.
+    jmh("org.springframework:spring-jdbc:6.1.14")
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+val commit = providers.exec {
+    commandLine("git", "rev-parse", "--short", "HEAD")
+    isIgnoreExitValue = true
+}.standardOutput.asText.map { it.trim().ifEmpty { "local" } }
+
+jmh {
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes = listOf(it) }
+}
+
+// Keep one JSON file per commit next to the build so before/after runs can be compared.
+val archiveJmhResults by tasks.registering(Copy::class) {
+    from(layout.buildDirectory.file("results/jmh/results.json"))
+    into(layout.projectDirectory.dir("results"))
+    rename { "${commit.get()}.json" }
+}
+
+tasks.named("jmh") {
+    finalizedBy(archiveJmhResults)
+}
@@ -0,0 +1,120 @@
+package edu.sjsu.library.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+    A forward-only result set over pre-built rows, so the benchmarks measure the row mappers and
+    not the network or the driver's wire decoding. Column lookup by name mirrors the PostgreSQL
+    driver (a hash map keyed by label, then a lower-case retry), so by-name vs by-index costs
+    are comparable to production. Timestamps are stored as LocalDateTime.
+
+    The ResultSet itself is a java.lang.reflect.Proxy: invoke() answers the handful of methods the
+    row mappers call and throws SQLFeatureNotSupportedException for the rest. Every variant pays
+    the same dispatch cost per call, so the legacy vs shared comparison is unaffected.
+*/
+final class InMemoryResultSet implements InvocationHandler {
+
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final Object[][] rows;
+    private final ResultSet resultSet;
+    private int cursor = -1;
+    private boolean wasNull;
+
+    InMemoryResultSet(String[] columns, Object[][] rows) {
+        for (int i = 0; i < columns.length; i++) {
+            columnIndex.put(columns[i], i + 1);
+        }
+        this.rows = rows;
+        this.resultSet = (ResultSet) Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, this);
+    }
+
+    // The rows as a ResultSet, to hand to a RowMapper.
+    ResultSet resultSet() {
+        return resultSet;
+    }
+
+    // Rewinds so the same rows can be mapped again on the next benchmark invocation.
+    void reset() {
+        cursor = -1;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "InMemoryResultSet[" + rows.length + " rows]";
+            };
+        }
+        return switch (method.getName()) {
+            case "next" -> ++cursor < rows.length;
+            case "close" -> null;
+            case "isClosed" -> false;
+            case "wasNull" -> wasNull;
+            case "findColumn" -> findColumn((String) args[0]);
+            case "getObject" -> args.length == 1 ? value(column(args[0])) : typed(column(args[0]), (Class<?>) args[1]);
+            case "getString" -> {
+                Object v = value(column(args[0]));
+                yield v == null ? null : v.toString();
+            }
+            case "getInt" -> {
+                Object v = value(column(args[0]));
+                yield v == null ? 0 : (Integer) v;
+            }
+            case "getBoolean" -> {
+                Object v = value(column(args[0]));
+                yield v != null && (Boolean) v;
+            }
+            case "getBigDecimal" -> (BigDecimal) value(column(args[0]));
+            case "getTimestamp" -> {
+                Object v = value(column(args[0]));
+                yield v == null ? null : Timestamp.valueOf((LocalDateTime) v);
+            }
+            default -> throw new SQLFeatureNotSupportedException(
+                "InMemoryResultSet does not support " + method.getName() + "()");
+        };
+    }
+
+    // Column arguments come as an index (int) or a label (String), as in the ResultSet overloads.
+    private int column(Object arg) throws SQLException {
+        return arg instanceof Integer i ? i : findColumn((String) arg);
+    }
+
+    private int findColumn(String columnLabel) throws SQLException {
+        Integer i = columnIndex.get(columnLabel);
+        if (i == null) {
+            i = columnIndex.get(columnLabel.toLowerCase(Locale.US));
+        }
+        if (i == null) {
+            throw new SQLException("The column name " + columnLabel + " was not found in this ResultSet.");
+        }
+        return i;
+    }
+
+    private Object value(int columnIndex) {
+        Object v = rows[cursor][columnIndex - 1];
+        wasNull = v == null;
+        return v;
+    }
+
+    private Object typed(int columnIndex, Class<?> type) throws SQLException {
+        Object v = value(columnIndex);
+        if (v != null && !type.isInstance(v)) {
+            throw new SQLException("Column " + columnIndex + " is not a " + type.getSimpleName());
+        }
+        return v;
+    }
+}
@@ -0,0 +1,89 @@
+package edu.sjsu.library.benchmarks;
+
+import edu.sjsu.library.models.BookRecord;
+import edu.sjsu.library.models.Copy;
+import edu.sjsu.library.models.Fine;
+import edu.sjsu.library.models.Hold;
+import edu.sjsu.library.models.Title;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Year;
+
+/*
+    The per-DAO mapRow methods as they were before RowMappers: every column looked up by name,
+    enums parsed with trim().toUpperCase() + valueOf, timestamps read through java.sql.Timestamp.
+    Kept here unchanged as the baseline for RowMapperBenchmark.
+*/
+final class LegacyMappers {
+
+    private LegacyMappers() {
+    }
+
+    static Title title(ResultSet rs, int rowNum) throws SQLException {
+        return new Title(
+            rs.getInt("id"),
+            rs.getString("isbn"),
+            rs.getString("title"),
+            rs.getString("author"),
+            Year.of(rs.getInt("yearpublished")),
+            Title.Genre.valueOf(rs.getString("genre").trim().toUpperCase()),
+            rs.getBoolean("isvisible")
+        );
+    }
+
+    static Copy copy(ResultSet rs, int rowNum) throws SQLException {
+        return new Copy(
+            rs.getInt("copyid"),
+            rs.getInt("titleid"),
+            rs.getString("barcode"),
+            Copy.CopyStatus.valueOf(rs.getString("status").trim().toUpperCase()),
+            rs.getString("location"),
+            rs.getBoolean("isvisible")
+        );
+    }
+
+    static Hold hold(ResultSet rs, int rowNum) throws SQLException {
+        // Handle nullable copyid
+        Integer copyId = rs.getObject("copyid") != null ? rs.getInt("copyid") : null;
+
+        return new Hold(
+            rs.getInt("id"),
+            rs.getInt("userid"),
+            rs.getInt("titleid"),
+            copyId,
+            Hold.HoldStatus.valueOf(rs.getString("status").trim().toUpperCase()),
+            rs.getTimestamp("placedat").toLocalDateTime(),
+            rs.getTimestamp("readyat") != null ? rs.getTimestamp("readyat").toLocalDateTime() : null,
+            rs.getTimestamp("pickupexpire") != null ? rs.getTimestamp("pickupexpire").toLocalDateTime() : null,
+            rs.getInt("position")
+        );
+    }
+
+    static Fine fine(ResultSet rs, int rowNum) throws SQLException {
+        return new Fine(
+            rs.getInt("id"),
+            rs.getInt("userid"),
+            rs.getInt("loanid"),
+            rs.getBigDecimal("amount"),
+            rs.getTimestamp("finedate").toLocalDateTime(),
+            rs.getString("reason"),
+            Fine.FineStatus.valueOf(rs.getString("status").trim().toUpperCase())
+        );
+    }
+
+    static BookRecord bookRecord(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp returnTs = rs.getTimestamp("returndate");
+
+        return new BookRecord(
+            rs.getInt("loanid"),
+            rs.getInt("copyid"),
+            rs.getInt("userid"),
+            rs.getTimestamp("checkoutdate").toLocalDateTime(),
+            rs.getTimestamp("duedate").toLocalDateTime(),
+            returnTs == null ? null : returnTs.toLocalDateTime(),
+            rs.getInt("renewcount")
+        );
+    }
+}
@@ -0,0 +1,167 @@
+package edu.sjsu.library.benchmarks;
+
+import edu.sjsu.library.dao.RowMappers;
+import edu.sjsu.library.models.Copy;
+import edu.sjsu.library.models.Fine;
+import edu.sjsu.library.models.Hold;
+import edu.sjsu.library.models.Title;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Maps one "page" of rows per invocation, legacy (per-DAO mapRow) vs shared (RowMappers), for
+    each table. The rows are shaped like SELECT * from the current schema, including the columns
+    the mappers ignore, and use the value mix the app produces (mostly-null readyat/returndate,
+    canonical upper-case statuses).
+
+    The shared mappers are created once per invocation, the same way the DAOs create one per query,
+    so the column resolution on the first row is part of what is measured.
+
+    Run: ./gradlew :benchmarks:jmh   (results in build/results/jmh and benchmarks/results/<commit>.json)
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowMapperBenchmark {
+
+    @Param({"1000"})
+    int rows;
+
+    private InMemoryResultSet titles;
+    private InMemoryResultSet copies;
+    private InMemoryResultSet holds;
+    private InMemoryResultSet fines;
+    private InMemoryResultSet bookRecords;
+
+    @Setup(Level.Trial)
+    public void createRows() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        Title.Genre[] genres = Title.Genre.values();
+        Copy.CopyStatus[] copyStatuses = Copy.CopyStatus.values();
+        Hold.HoldStatus[] holdStatuses = Hold.HoldStatus.values();
+        Fine.FineStatus[] fineStatuses = Fine.FineStatus.values();
+
+        Object[][] t = new Object[rows][];
+        Object[][] c = new Object[rows][];
+        Object[][] h = new Object[rows][];
+        Object[][] f = new Object[rows][];
+        Object[][] b = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            int id = i + 1;
+            LocalDateTime at = base.plusMinutes(random.nextInt(500_000));
+            t[i] = new Object[] {
+                id, String.format("978%010d", id), "Title " + id, "Author " + (id % 97),
+                1950 + random.nextInt(75), genres[random.nextInt(genres.length)].name(), true,
+                (long) random.nextInt(5), at
+            };
+            c[i] = new Object[] {
+                id, 1 + random.nextInt(rows), String.format("LIB%09d", id),
+                copyStatuses[random.nextInt(copyStatuses.length)].name(), "Main Stacks", true,
+                (long) random.nextInt(5), at
+            };
+            boolean ready = random.nextInt(4) == 0;
+            h[i] = new Object[] {
+                id, 1 + random.nextInt(500), 1 + random.nextInt(rows), ready ? 1 + random.nextInt(rows) : null,
+                holdStatuses[random.nextInt(holdStatuses.length)].name(), at,
+                ready ? at.plusDays(3) : null, ready ? at.plusDays(10) : null, 1 + random.nextInt(5)
+            };
+            f[i] = new Object[] {
+                id, 1 + random.nextInt(500), 1 + random.nextInt(rows),
+                BigDecimal.valueOf(25 + random.nextInt(2000), 2), at, "Overdue",
+                fineStatuses[random.nextInt(fineStatuses.length)].name()
+            };
+            boolean returned = random.nextInt(3) != 0;
+            b[i] = new Object[] {
+                id, 1 + random.nextInt(rows), 1 + random.nextInt(500), at, at.plusDays(14),
+                returned ? at.plusDays(random.nextInt(20)) : null, random.nextInt(3)
+            };
+        }
+        titles = new InMemoryResultSet(new String[] {
+            "id", "isbn", "title", "author", "yearpublished", "genre", "isvisible", "version", "updated_at"}, t);
+        copies = new InMemoryResultSet(new String[] {
+            "copyid", "titleid", "barcode", "status", "location", "isvisible", "version", "updated_at"}, c);
+        holds = new InMemoryResultSet(new String[] {
+            "id", "userid", "titleid", "copyid", "status", "placedat", "readyat", "pickupexpire", "position"}, h);
+        fines = new InMemoryResultSet(new String[] {
+            "id", "userid", "loanid", "amount", "finedate", "reason", "status"}, f);
+        bookRecords = new InMemoryResultSet(new String[] {
+            "loanid", "copyid", "userid", "checkoutdate", "duedate", "returndate", "renewcount"}, b);
+    }
+
+    private static <T> void mapAll(InMemoryResultSet rs, RowMapper<T> mapper, Blackhole bh) throws SQLException {
+        rs.reset();
+        ResultSet resultSet = rs.resultSet();
+        int rowNum = 0;
+        while (resultSet.next()) {
+            bh.consume(mapper.mapRow(resultSet, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void titleLegacy(Blackhole bh) throws SQLException {
+        mapAll(titles, LegacyMappers::title, bh);
+    }
+
+    @Benchmark
+    public void titleShared(Blackhole bh) throws SQLException {
+        mapAll(titles, RowMappers.title(), bh);
+    }
+
+    @Benchmark
+    public void copyLegacy(Blackhole bh) throws SQLException {
+        mapAll(copies, LegacyMappers::copy, bh);
+    }
+
+    @Benchmark
+    public void copyShared(Blackhole bh) throws SQLException {
+        mapAll(copies, RowMappers.copy(), bh);
+    }
+
+    @Benchmark
+    public void holdLegacy(Blackhole bh) throws SQLException {
+        mapAll(holds, LegacyMappers::hold, bh);
+    }
+
+    @Benchmark
+    public void holdShared(Blackhole bh) throws SQLException {
+        mapAll(holds, RowMappers.hold(), bh);
+    }
+
+    @Benchmark
+    public void fineLegacy(Blackhole bh) throws SQLException {
+        mapAll(fines, LegacyMappers::fine, bh);
+    }
+
+    @Benchmark
+    public void fineShared(Blackhole bh) throws SQLException {
+        mapAll(fines, RowMappers.fine(), bh);
+    }
+
+    @Benchmark
+    public void bookRecordLegacy(Blackhole bh) throws SQLException {
+        mapAll(bookRecords, LegacyMappers::bookRecord, bh);
+    }
+
+    @Benchmark
+    public void bookRecordShared(Blackhole bh) throws SQLException {
+        mapAll(bookRecords, RowMappers.bookRecord(), bh);
+    }
+}
@@ -11,4 +11,4 @@ plugins {
 }
 
 rootProject.name = "backend"
-include("app")
+include("app", "benchmarks")